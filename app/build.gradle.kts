@@ -1,7 +1,201 @@
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+
 plugins {
     id("com.android.application")
 }
 
+/**
+ * Compiles assets/seed_story.sql into story.bin, the binary story format read by StoryAssetLoader.
+ * Only `INSERT INTO dialogs` and `INSERT INTO choices` statements are understood; choices without
+ * an explicit id are numbered from 1 in source order, the same ids AUTOINCREMENT would assign.
+ */
+abstract class CompileStoryTask : DefaultTask() {
+    @get:InputFile
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    abstract val seedFile: RegularFileProperty
+
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+
+    @TaskAction
+    fun compile() {
+        val sql = seedFile.get().asFile.readText(Charsets.UTF_8)
+        val dialogs = sortedMapOf<Int, String>()
+        val choices = mutableListOf<StoryChoice>()
+
+        for (row in parseInserts(sql)) {
+            when (row.table) {
+                "dialogs" -> dialogs[row.int("id")] = row.string("text")
+                "choices" -> choices += StoryChoice(
+                    row.intOrNull("id") ?: (choices.size + 1),
+                    row.int("dialog_id"),
+                    row.string("choice_text"),
+                    row.int("next_dialog_id")
+                )
+            }
+        }
+
+        val dialogIds = dialogs.keys.toIntArray()
+        val byDialog = choices.groupBy { it.dialogId }
+        val orphans = choices.count { it.dialogId !in dialogs }
+        if (orphans > 0) {
+            logger.warn("compileStoryAsset: ignoring $orphans choice(s) whose dialog does not exist")
+        }
+
+        // Strings: dialog i -> i, then choices in CSR order
+        val strings = mutableListOf<String>()
+        dialogIds.forEach { strings += dialogs.getValue(it) }
+        val orderedChoices = dialogIds.flatMap { id -> byDialog[id].orEmpty().sortedBy { it.id } }
+        orderedChoices.forEach { strings += it.text }
+
+        val encoded = strings.map { it.toByteArray(Charsets.UTF_8) }
+        val stringBytes = encoded.sumOf { it.size }
+
+        val bytes = ByteArrayOutputStream()
+        DataOutputStream(bytes).use { out ->
+            out.writeInt(0x504F4353) // "POCS"
+            out.writeShort(1)
+            out.writeShort(0)
+            out.writeInt(dialogIds.size)
+            out.writeInt(orderedChoices.size)
+            out.writeInt(strings.size)
+            out.writeInt(stringBytes)
+
+            dialogIds.forEachIndexed { index, id ->
+                out.writeInt(id)
+                out.writeInt(index)
+            }
+
+            var rowStart = 0
+            out.writeInt(0)
+            dialogIds.forEach { id ->
+                rowStart += byDialog[id]?.size ?: 0
+                out.writeInt(rowStart)
+            }
+
+            orderedChoices.forEachIndexed { index, choice ->
+                out.writeInt(choice.id)
+                out.writeInt(choice.nextDialogId)
+                out.writeInt(dialogIds.size + index)
+            }
+
+            var offset = 0
+            out.writeInt(0)
+            encoded.forEach {
+                offset += it.size
+                out.writeInt(offset)
+            }
+            encoded.forEach { out.write(it) }
+        }
+
+        val target = outputDir.get().file("story.bin").asFile
+        target.parentFile.mkdirs()
+        target.writeBytes(bytes.toByteArray())
+        logger.info("compileStoryAsset: ${dialogIds.size} dialogs, ${orderedChoices.size} choices, ${target.length()} bytes")
+    }
+
+    private data class StoryChoice(val id: Int, val dialogId: Int, val text: String, val nextDialogId: Int)
+
+    private class InsertRow(val table: String, private val values: Map<String, Any?>) {
+        fun intOrNull(column: String) = (values[column] as? Long)?.toInt()
+        fun int(column: String) = intOrNull(column) ?: throw GradleException("$table row is missing integer column '$column'")
+        fun string(column: String) = values[column] as? String ?: throw GradleException("$table row is missing text column '$column'")
+    }
+
+    /** Minimal tokenizer for `INSERT INTO t (cols) VALUES (...), (...);` with '' escapes and -- comments. */
+    private fun parseInserts(sql: String): List<InsertRow> {
+        val tokens = mutableListOf<Any>()
+        var i = 0
+        while (i < sql.length) {
+            val c = sql[i]
+            when {
+                c.isWhitespace() -> i++
+                c == '-' && sql.startsWith("--", i) -> {
+                    i = sql.indexOf('\n', i).let { if (it < 0) sql.length else it }
+                }
+                c == '\'' -> {
+                    val text = StringBuilder()
+                    i++
+                    while (true) {
+                        if (i >= sql.length) throw GradleException("Unterminated string literal in seed file")
+                        if (sql[i] == '\'') {
+                            if (i + 1 < sql.length && sql[i + 1] == '\'') {
+                                text.append('\'')
+                                i += 2
+                                continue
+                            }
+                            i++
+                            break
+                        }
+                        text.append(sql[i++])
+                    }
+                    tokens += StringBuilder(text) // keeps literals apart from keywords
+                }
+                c.isDigit() || (c == '-' && i + 1 < sql.length && sql[i + 1].isDigit()) -> {
+                    val start = i++
+                    while (i < sql.length && sql[i].isDigit()) i++
+                    tokens += sql.substring(start, i).toLong()
+                }
+                c.isLetter() || c == '_' -> {
+                    val start = i
+                    while (i < sql.length && (sql[i].isLetterOrDigit() || sql[i] == '_')) i++
+                    tokens += sql.substring(start, i).lowercase()
+                }
+                else -> {
+                    tokens += c
+                    i++
+                }
+            }
+        }
+
+        val rows = mutableListOf<InsertRow>()
+        var p = 0
+        fun expect(token: Any) {
+            if (p >= tokens.size || tokens[p] != token) {
+                throw GradleException("Expected '$token' in seed file near token $p")
+            }
+            p++
+        }
+        while (p < tokens.size) {
+            if (tokens[p] == ';') {
+                p++
+                continue
+            }
+            expect("insert")
+            expect("into")
+            val table = tokens[p++] as? String ?: throw GradleException("Expected table name in seed file")
+            expect('(')
+            val columns = mutableListOf<String>()
+            while (tokens[p] != ')') {
+                if (tokens[p] == ',') p++ else columns += tokens[p++] as String
+            }
+            expect(')')
+            expect("values")
+            while (true) {
+                expect('(')
+                val values = mutableListOf<Any?>()
+                while (tokens[p] != ')') {
+                    when (val token = tokens[p++]) {
+                        ',' -> Unit
+                        "null" -> values += null
+                        is StringBuilder -> values += token.toString()
+                        else -> values += token
+                    }
+                }
+                expect(')')
+                if (values.size != columns.size) {
+                    throw GradleException("Column/value count mismatch in INSERT INTO $table")
+                }
+                rows += InsertRow(table, columns.zip(values).toMap())
+                if (p < tokens.size && tokens[p] == ',') p++ else break
+            }
+            expect(';')
+        }
+        return rows
+    }
+}
+
 android {
     namespace = "com.example.finaltermproject"
     compileSdk = 34
@@ -43,6 +237,11 @@ android {
         }
     }
 
+    androidResources {
+        // story.bin is memory-mapped at runtime, which requires it to be stored uncompressed
+        noCompress += "bin"
+    }
+
     lint {
         abortOnError = true
         checkReleaseBuilds = true
@@ -50,6 +249,17 @@ android {
     }
 }
 
+val compileStoryAsset = tasks.register<CompileStoryTask>("compileStoryAsset") {
+    seedFile.set(layout.projectDirectory.file("src/main/assets/seed_story.sql"))
+    outputDir.set(layout.buildDirectory.dir("generated/assets/story"))
+}
+
+androidComponents {
+    onVariants { variant ->
+        variant.sources.assets?.addGeneratedSourceDirectory(compileStoryAsset, CompileStoryTask::outputDir)
+    }
+}
+
 dependencies {
     implementation("androidx.appcompat:appcompat:1.6.1")
     implementation("com.google.android.material:material:1.11.0")
@@ -64,6 +274,7 @@ dependencies {
     // Testing dependencies
     testImplementation("junit:junit:4.13.2")
     testImplementation("org.mockito:mockito-core:5.7.0")
+    testImplementation("org.xerial:sqlite-jdbc:3.45.1.0")
     androidTestImplementation("androidx.test.ext:junit:1.1.5")
     androidTestImplementation("androidx.test.espresso:espresso-core:3.5.1")
     androidTestImplementation("androidx.test:runner:1.5.2")
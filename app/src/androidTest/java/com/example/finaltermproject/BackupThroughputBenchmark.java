@@ -0,0 +1,116 @@
+package com.example.finaltermproject;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Backup and restore throughput with and without encryption, on a device.
+ *
+ * Results are logged under the BackupBenchmark tag; run with
+ * {@code ./gradlew connectedAndroidTest} and read them from logcat.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BackupThroughputBenchmark {
+    private static final String TAG = "BackupBenchmark";
+    private static final int DATABASE_SIZE = 8 * 1024 * 1024;
+    private static final int RUNS = 3;
+
+    @Test
+    public void encryptedBackupThroughput() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File source = new File(context.getCacheDir(), "benchmark.db");
+        byte[] data = sampleDatabase();
+        try (FileOutputStream out = new FileOutputStream(source)) {
+            out.write(data);
+        }
+
+        try {
+            BackupCipher cipher = BackupCipher.getInstance(context);
+            for (ParallelGzip.Level level : ParallelGzip.Level.values()) {
+                double[] plain = measure(context, source, data, level, null);
+                double[] encrypted = measure(context, source, data, level, cipher);
+                Log.i(TAG, String.format(Locale.US,
+                        "%s: backup %.1f -> %.1f MB/s encrypted, restore %.1f -> %.1f MB/s encrypted",
+                        level, plain[0], encrypted[0], plain[1], encrypted[1]));
+            }
+        } finally {
+            source.delete();
+        }
+    }
+
+    // Best backup and restore MB/s over a few runs, each into an empty store
+    private static double[] measure(Context context, File source, byte[] data,
+                                    ParallelGzip.Level level, BackupCipher cipher) throws IOException {
+        double bestBackup = 0;
+        double bestRestore = 0;
+        for (int run = 0; run < RUNS; run++) {
+            File dir = new File(context.getCacheDir(), "benchmark_store");
+            deleteRecursively(dir);
+            ChunkStore store = new ChunkStore(dir, level, cipher);
+            File target = new File(context.getCacheDir(), "benchmark_restored.db");
+            try {
+                long start = System.nanoTime();
+                ChunkStore.Manifest manifest = store.write(source, "bench");
+                bestBackup = Math.max(bestBackup, megabytesPerSecond(data.length, System.nanoTime() - start));
+
+                start = System.nanoTime();
+                store.restore(manifest, target);
+                bestRestore = Math.max(bestRestore, megabytesPerSecond(data.length, System.nanoTime() - start));
+                assertTrue(Arrays.equals(data, readFile(target)));
+            } finally {
+                target.delete();
+                deleteRecursively(dir);
+            }
+        }
+        return new double[]{bestBackup, bestRestore};
+    }
+
+    // Mostly repetitive rows with some noise, so compression does real work
+    private static byte[] sampleDatabase() {
+        Random random = new Random(42);
+        byte[] row = "1|Lord Viren turns to the Judge and waits for an answer.|viren|".getBytes();
+        byte[] data = new byte[DATABASE_SIZE];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextInt(8) == 0 ? (byte) random.nextInt(256) : row[i % row.length];
+        }
+        return data;
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        try (FileInputStream in = new FileInputStream(file)) {
+            assertEquals(bytes.length, ParallelGzip.readFully(in, bytes, 0, bytes.length));
+        }
+        return bytes;
+    }
+
+    private static double megabytesPerSecond(long bytes, long nanos) {
+        return (bytes / (1024.0 * 1024.0)) / (nanos / 1e9);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
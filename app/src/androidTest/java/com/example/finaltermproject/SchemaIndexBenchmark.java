@@ -0,0 +1,219 @@
+package com.example.finaltermproject;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Read latency and write cost of the schema before and after the index cleanup: the old single
+ * column choices indexes against the covering one, and the old progress table with its surrogate
+ * id and three indexes against the one keyed by user_id.
+ *
+ * Results are logged under the SchemaBenchmark tag; run with
+ * {@code ./gradlew connectedAndroidTest} and read them from logcat.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SchemaIndexBenchmark {
+    private static final String TAG = "SchemaBenchmark";
+    private static final int DIALOGS = 2000;
+    private static final int CHOICES_PER_DIALOG = 3;
+    private static final int LOOKUPS = 5000;
+    private static final int USERS = 200;
+    private static final int PROGRESS_WRITES = 2000;
+
+    private static final String[] OLD_STORY_SCHEMA = {
+            "CREATE TABLE dialogs (id INTEGER PRIMARY KEY AUTOINCREMENT, text TEXT NOT NULL, "
+                    + "created_at INTEGER DEFAULT 0, character_key TEXT DEFAULT NULL)",
+            "CREATE TABLE choices (id INTEGER PRIMARY KEY AUTOINCREMENT, dialog_id INTEGER NOT NULL, "
+                    + "choice_text TEXT NOT NULL, next_dialog_id INTEGER NOT NULL, created_at INTEGER DEFAULT 0)",
+            "CREATE INDEX idx_choices_dialog_id ON choices(dialog_id)",
+            "CREATE INDEX idx_choices_next_dialog_id ON choices(next_dialog_id)"
+    };
+    private static final String[] NEW_STORY_SCHEMA = {
+            OLD_STORY_SCHEMA[0],
+            OLD_STORY_SCHEMA[1],
+            "CREATE INDEX idx_choices_covering ON choices(dialog_id, id, next_dialog_id, choice_text)"
+    };
+    private static final String[] OLD_PLAYER_SCHEMA = {
+            "CREATE TABLE users (id INTEGER PRIMARY KEY AUTOINCREMENT, username TEXT NOT NULL UNIQUE)",
+            "CREATE TABLE progress (id INTEGER PRIMARY KEY AUTOINCREMENT, user_id INTEGER NOT NULL, "
+                    + "current_dialog_id INTEGER NOT NULL, last_updated INTEGER DEFAULT 0, UNIQUE(user_id), "
+                    + "FOREIGN KEY(user_id) REFERENCES users(id) ON DELETE CASCADE)",
+            "CREATE INDEX idx_users_username ON users(username)",
+            "CREATE INDEX idx_progress_user_id ON progress(user_id)",
+            "CREATE INDEX idx_progress_dialog_id ON progress(current_dialog_id)",
+            "CREATE INDEX idx_progress_last_updated ON progress(last_updated)"
+    };
+    private static final String[] NEW_PLAYER_SCHEMA = {
+            OLD_PLAYER_SCHEMA[0],
+            "CREATE TABLE progress (user_id INTEGER PRIMARY KEY, current_dialog_id INTEGER NOT NULL, "
+                    + "last_updated INTEGER DEFAULT 0, FOREIGN KEY(user_id) REFERENCES users(id) ON DELETE CASCADE)"
+    };
+
+    private static final String CHOICES_FOR_DIALOG =
+            "SELECT id, dialog_id, choice_text, next_dialog_id FROM choices WHERE dialog_id = ? ORDER BY id";
+    private static final String ALL_CHOICES =
+            "SELECT id, dialog_id, choice_text, next_dialog_id FROM choices ORDER BY dialog_id, id";
+
+    @Test
+    public void choiceReadLatency() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        long[] before = measureReads(context, OLD_STORY_SCHEMA);
+        long[] after = measureReads(context, NEW_STORY_SCHEMA);
+        Log.i(TAG, String.format(Locale.US,
+                "Choices of one dialog p50/p95/p99 (us): %d/%d/%d -> %d/%d/%d; all choices in order: %dus -> %dus",
+                before[0], before[1], before[2], after[0], after[1], after[2], before[3], after[3]));
+    }
+
+    @Test
+    public void progressWriteCost() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        long[] before = measureWrites(context, OLD_PLAYER_SCHEMA);
+        long[] after = measureWrites(context, NEW_PLAYER_SCHEMA);
+        Log.i(TAG, String.format(Locale.US,
+                "Add user + progress: %dus -> %dus each; progress update: %dus -> %dus each; "
+                        + "file size: %d -> %d bytes",
+                before[0], after[0], before[1], after[1], before[2], after[2]));
+    }
+
+    // p50, p95, p99 latency of one dialog's choices and the time to read all of them, in microseconds
+    private static long[] measureReads(Context context, String[] schema) {
+        SQLiteDatabase db = create(context, "schema_story.db", schema);
+        try {
+            db.beginTransaction();
+            try {
+                for (int i = 1; i <= DIALOGS; i++) {
+                    db.execSQL("INSERT INTO dialogs (text, character_key) VALUES (?, ?)",
+                            new Object[]{"Lady Selene waits for the verdict. #" + i, "selene"});
+                }
+                // Interleaved, so one dialog's choices are spread over the table as after repairs
+                for (int c = 0; c < CHOICES_PER_DIALOG; c++) {
+                    for (int i = 1; i <= DIALOGS; i++) {
+                        db.execSQL("INSERT INTO choices (dialog_id, choice_text, next_dialog_id) VALUES (?, ?, ?)",
+                                new Object[]{i, "Answer " + c + " to " + i, 1 + (i + c) % DIALOGS});
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+
+            Random random = new Random(7);
+            long[] latencies = new long[LOOKUPS];
+            for (int i = 0; i < LOOKUPS; i++) {
+                String id = String.valueOf(1 + random.nextInt(DIALOGS));
+                long start = System.nanoTime();
+                try (Cursor cursor = db.rawQuery(CHOICES_FOR_DIALOG, new String[]{id})) {
+                    int rows = 0;
+                    while (cursor.moveToNext()) {
+                        cursor.getString(2);
+                        rows++;
+                    }
+                    assertEquals(CHOICES_PER_DIALOG, rows);
+                }
+                latencies[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(latencies);
+
+            long start = System.nanoTime();
+            try (Cursor cursor = db.rawQuery(ALL_CHOICES, null)) {
+                while (cursor.moveToNext()) {
+                    cursor.getString(2);
+                }
+            }
+            long fullScan = (System.nanoTime() - start) / 1000;
+            return new long[]{percentile(latencies, 50), percentile(latencies, 95), percentile(latencies, 99), fullScan};
+        } finally {
+            close(context, db, "schema_story.db");
+        }
+    }
+
+    // Microseconds per added user, per progress update, and the file size afterwards
+    private static long[] measureWrites(Context context, String[] schema) {
+        SQLiteDatabase db = create(context, "schema_player.db", schema);
+        try {
+            long start = System.nanoTime();
+            for (int u = 1; u <= USERS; u++) {
+                db.beginTransaction();
+                try {
+                    ContentValues user = new ContentValues();
+                    user.put("username", "player" + u);
+                    long userId = db.insertOrThrow("users", null, user);
+                    ContentValues progress = new ContentValues();
+                    progress.put("user_id", userId);
+                    progress.put("current_dialog_id", 1);
+                    progress.put("last_updated", System.currentTimeMillis());
+                    db.insertOrThrow("progress", null, progress);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+            long perUser = (System.nanoTime() - start) / 1000 / USERS;
+
+            Random random = new Random(11);
+            start = System.nanoTime();
+            for (int i = 0; i < PROGRESS_WRITES; i++) {
+                ContentValues values = new ContentValues();
+                values.put("current_dialog_id", 1 + random.nextInt(DIALOGS));
+                values.put("last_updated", System.currentTimeMillis());
+                db.beginTransaction();
+                try {
+                    assertEquals(1, db.update("progress", values, "user_id = ?",
+                            new String[]{String.valueOf(1 + random.nextInt(USERS))}));
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+            long perUpdate = (System.nanoTime() - start) / 1000 / PROGRESS_WRITES;
+
+            try (Cursor cursor = db.rawQuery("PRAGMA wal_checkpoint(TRUNCATE)", null)) {
+                cursor.moveToFirst();
+            }
+            return new long[]{perUser, perUpdate, new File(db.getPath()).length()};
+        } finally {
+            close(context, db, "schema_player.db");
+        }
+    }
+
+    // Opened the way the game opens game.db: WAL with synchronous=NORMAL
+    private static SQLiteDatabase create(Context context, String name, String[] schema) {
+        File file = context.getDatabasePath(name);
+        SQLiteDatabase.deleteDatabase(file);
+        file.getParentFile().mkdirs();
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(file.getPath(), null,
+                SQLiteDatabase.CREATE_IF_NECESSARY | SQLiteDatabase.ENABLE_WRITE_AHEAD_LOGGING);
+        db.execSQL("PRAGMA synchronous = NORMAL");
+        db.setForeignKeyConstraintsEnabled(true);
+        for (String statement : schema) {
+            db.execSQL(statement);
+        }
+        return db;
+    }
+
+    private static void close(Context context, SQLiteDatabase db, String name) {
+        db.close();
+        SQLiteDatabase.deleteDatabase(context.getDatabasePath(name));
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(percent / 100.0 * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1000;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.finaltermproject;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Story read latency while progress is being written, with the old rollback journal and with WAL.
+ *
+ * Readers run the dialog and choice lookups the game makes on every step while one thread keeps
+ * saving progress. Results are logged under the WalBenchmark tag; run with
+ * {@code ./gradlew connectedAndroidTest} and read them from logcat.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WalReadLatencyBenchmark {
+    private static final String TAG = "WalBenchmark";
+    private static final int DIALOGS = 2000;
+    private static final int USERS = 50;
+    private static final int READER_THREADS = 3;
+    private static final int READS_PER_THREAD = 2000;
+
+    @Test
+    public void readLatencyUnderProgressWrites() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        long[] rollback = measure(context, false);
+        long[] wal = measure(context, true);
+        Log.i(TAG, String.format(Locale.US,
+                "Read latency p50/p95/p99 (us): rollback journal %d/%d/%d, WAL %d/%d/%d; "
+                        + "progress writes: %d vs %d",
+                rollback[0], rollback[1], rollback[2], wal[0], wal[1], wal[2], rollback[3], wal[3]));
+    }
+
+    // p50, p95, p99 read latency in microseconds, and the number of writes made meanwhile
+    private static long[] measure(Context context, boolean wal) throws Exception {
+        File file = context.getDatabasePath("wal_benchmark.db");
+        SQLiteDatabase.deleteDatabase(file);
+        file.getParentFile().mkdirs();
+        int flags = SQLiteDatabase.CREATE_IF_NECESSARY
+                | (wal ? SQLiteDatabase.ENABLE_WRITE_AHEAD_LOGGING : 0);
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(file.getPath(), null, flags);
+        try {
+            if (wal) {
+                db.execSQL("PRAGMA synchronous = NORMAL");
+            }
+            populate(db);
+
+            AtomicBoolean reading = new AtomicBoolean(true);
+            AtomicInteger writes = new AtomicInteger();
+            Thread writer = new Thread(() -> {
+                Random random = new Random(1);
+                while (reading.get()) {
+                    ContentValues values = new ContentValues();
+                    values.put("current_dialog_id", 1 + random.nextInt(DIALOGS));
+                    values.put("last_updated", System.currentTimeMillis());
+                    db.beginTransaction();
+                    try {
+                        db.update("progress", values, "user_id = ?",
+                                new String[]{String.valueOf(1 + random.nextInt(USERS))});
+                        db.setTransactionSuccessful();
+                    } finally {
+                        db.endTransaction();
+                    }
+                    writes.incrementAndGet();
+                }
+            }, "progress-writer");
+            writer.start();
+
+            long[][] latencies = new long[READER_THREADS][READS_PER_THREAD];
+            CountDownLatch done = new CountDownLatch(READER_THREADS);
+            List<Throwable> failures = new ArrayList<>();
+            for (int t = 0; t < READER_THREADS; t++) {
+                long[] mine = latencies[t];
+                Random random = new Random(100 + t);
+                new Thread(() -> {
+                    try {
+                        for (int i = 0; i < mine.length; i++) {
+                            String id = String.valueOf(1 + random.nextInt(DIALOGS));
+                            long start = System.nanoTime();
+                            try (Cursor dialog = db.rawQuery(
+                                    "SELECT id, text, character_key FROM dialogs WHERE id = ?",
+                                    new String[]{id});
+                                 Cursor choices = db.rawQuery(
+                                         "SELECT id, choice_text, next_dialog_id FROM choices WHERE dialog_id = ?",
+                                         new String[]{id})) {
+                                assertTrue(dialog.moveToFirst());
+                                while (choices.moveToNext()) {
+                                    choices.getString(1);
+                                }
+                            }
+                            mine[i] = System.nanoTime() - start;
+                        }
+                    } catch (Throwable e) {
+                        synchronized (failures) {
+                            failures.add(e);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }, "story-reader-" + t).start();
+            }
+            done.await();
+            reading.set(false);
+            writer.join();
+            assertTrue(failures.toString(), failures.isEmpty());
+
+            long[] all = new long[READER_THREADS * READS_PER_THREAD];
+            for (int t = 0; t < READER_THREADS; t++) {
+                System.arraycopy(latencies[t], 0, all, t * READS_PER_THREAD, READS_PER_THREAD);
+            }
+            Arrays.sort(all);
+            return new long[]{percentile(all, 50), percentile(all, 95), percentile(all, 99), writes.get()};
+        } finally {
+            db.close();
+            SQLiteDatabase.deleteDatabase(file);
+        }
+    }
+
+    private static void populate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE users (id INTEGER PRIMARY KEY AUTOINCREMENT, username TEXT NOT NULL UNIQUE)");
+        db.execSQL("CREATE TABLE dialogs (id INTEGER PRIMARY KEY AUTOINCREMENT, text TEXT NOT NULL, "
+                + "created_at INTEGER DEFAULT 0, character_key TEXT DEFAULT NULL)");
+        db.execSQL("CREATE TABLE choices (id INTEGER PRIMARY KEY AUTOINCREMENT, dialog_id INTEGER NOT NULL, "
+                + "choice_text TEXT NOT NULL, next_dialog_id INTEGER NOT NULL, created_at INTEGER DEFAULT 0)");
+        db.execSQL("CREATE TABLE progress (id INTEGER PRIMARY KEY AUTOINCREMENT, user_id INTEGER NOT NULL, "
+                + "current_dialog_id INTEGER NOT NULL, last_updated INTEGER DEFAULT 0, UNIQUE(user_id))");
+        db.execSQL("CREATE INDEX idx_choices_dialog_id ON choices(dialog_id)");
+
+        db.beginTransaction();
+        try {
+            for (int i = 1; i <= DIALOGS; i++) {
+                db.execSQL("INSERT INTO dialogs (text, character_key) VALUES (?, ?)",
+                        new Object[]{"Lord Viren turns to the Judge and waits for an answer. #" + i, "viren"});
+                for (int c = 0; c < 3; c++) {
+                    db.execSQL("INSERT INTO choices (dialog_id, choice_text, next_dialog_id) VALUES (?, ?, ?)",
+                            new Object[]{i, "Answer " + c, 1 + (i + c) % DIALOGS});
+                }
+            }
+            for (int u = 1; u <= USERS; u++) {
+                db.execSQL("INSERT INTO users (username) VALUES (?)", new Object[]{"player" + u});
+                db.execSQL("INSERT INTO progress (user_id, current_dialog_id) VALUES (?, 1)", new Object[]{u});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(percent / 100.0 * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1000;
+    }
+}
@@ -0,0 +1,326 @@
+package com.example.finaltermproject;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index of all backup generations, kept in an append-only text file.
+ *
+ * Each line records one event: a generation was added ({@code +}), deleted ({@code -}) or found
+ * unusable on restore ({@code !}). The file is replayed once into a map sorted by creation time, so
+ * finding the latest or an older backup is a map lookup instead of a directory scan. The log is
+ * rewritten in compact form once deleted entries outnumber live ones.
+ */
+final class BackupCatalog {
+    private static final String TAG = "BackupCatalog";
+
+    private static final String ADDED = "+";
+    private static final String DELETED = "-";
+    private static final String BAD = "!";
+    private static final int MIN_COMPACT_LINES = 32;
+
+    private final File file;
+    private final TreeMap<Long, Entry> byTime = new TreeMap<>();
+    private final Map<String, Entry> byName = new HashMap<>();
+    private final Map<String, Long> timeKeys = new HashMap<>();
+    private boolean loaded = false;
+    private int lineCount = 0;
+    private boolean damaged = false;   // skipped lines; rewritten before the next append
+
+    BackupCatalog(@NonNull File file) {
+        this.file = file;
+    }
+
+    /**
+     * Whether the catalog file exists; when it does not, the caller should {@link #add} the
+     * backups already on disk.
+     */
+    boolean exists() {
+        return file.exists();
+    }
+
+    synchronized void add(@NonNull Entry entry) throws IOException {
+        load();
+        append(ADDED + "\t" + entry.name + "\t" + entry.createdMillis + "\t" + entry.size + "\t" + entry.sha256);
+        put(entry);
+    }
+
+    synchronized void remove(@NonNull String name) throws IOException {
+        load();
+        if (byName.containsKey(name)) {
+            append(DELETED + "\t" + name);
+            drop(name);
+            compactIfNeeded();
+        }
+    }
+
+    /**
+     * Records that a backup failed to restore, so it is no longer offered.
+     */
+    synchronized void markBad(@NonNull String name) throws IOException {
+        load();
+        Entry entry = byName.get(name);
+        if (entry != null && !entry.bad) {
+            append(BAD + "\t" + name);
+            put(entry.asBad());
+        }
+    }
+
+    @Nullable
+    synchronized Entry get(@NonNull String name) {
+        load();
+        return byName.get(name);
+    }
+
+    /**
+     * Newest backup that has not failed a restore, or null when there is none.
+     */
+    @Nullable
+    synchronized Entry getLatestGood() {
+        return getLatestGoodAtOrBefore(Long.MAX_VALUE);
+    }
+
+    /**
+     * Newest usable backup taken at or before {@code millis}, e.g. to go back to yesterday.
+     */
+    @Nullable
+    synchronized Entry getLatestGoodAtOrBefore(long millis) {
+        load();
+        Map.Entry<Long, Entry> candidate = byTime.floorEntry(millis);
+        while (candidate != null && candidate.getValue().bad) {
+            candidate = byTime.lowerEntry(candidate.getKey());
+        }
+        return candidate != null ? candidate.getValue() : null;
+    }
+
+    /**
+     * All backups, oldest first.
+     */
+    @NonNull
+    synchronized List<Entry> list() {
+        load();
+        return new ArrayList<>(byTime.values());
+    }
+
+    synchronized int size() {
+        load();
+        return byName.size();
+    }
+
+    /**
+     * Backups the policy no longer keeps, oldest first. Bad backups are always expired.
+     */
+    @NonNull
+    synchronized List<Entry> selectExpired(long nowMillis, @NonNull Retention retention) {
+        return retention.selectExpired(list(), nowMillis);
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineCount++;
+                replay(line);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading backup catalog", e);
+        }
+    }
+
+    private void replay(String line) {
+        String[] fields = line.split("\t");
+        try {
+            if (ADDED.equals(fields[0]) && fields.length == 5) {
+                put(new Entry(fields[1], Long.parseLong(fields[2]), Long.parseLong(fields[3]), fields[4], false));
+            } else if (DELETED.equals(fields[0]) && fields.length == 2) {
+                drop(fields[1]);
+            } else if (BAD.equals(fields[0]) && fields.length == 2 && byName.containsKey(fields[1])) {
+                put(byName.get(fields[1]).asBad());
+            } else {
+                damaged = true;
+            }
+        } catch (NumberFormatException e) {
+            // A torn last line from a crash mid-append
+            damaged = true;
+        }
+    }
+
+    private void put(Entry entry) {
+        drop(entry.name);
+        // Two backups in the same millisecond keep distinct keys
+        long key = entry.createdMillis;
+        while (byTime.containsKey(key)) {
+            key++;
+        }
+        byTime.put(key, entry);
+        byName.put(entry.name, entry);
+        timeKeys.put(entry.name, key);
+    }
+
+    private void drop(String name) {
+        Long key = timeKeys.remove(name);
+        if (key != null) {
+            byTime.remove(key);
+            byName.remove(name);
+        }
+    }
+
+    private void append(String line) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create catalog directory: " + parent);
+        }
+        if (damaged) {
+            compact();
+        }
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        lineCount++;
+    }
+
+    private void compactIfNeeded() throws IOException {
+        if (lineCount >= MIN_COMPACT_LINES && lineCount >= 2 * byName.size()) {
+            compact();
+        }
+    }
+
+    private void compact() throws IOException {
+        File partial = new File(file.getPath() + ".tmp");
+        int lines = 0;
+        try (FileOutputStream out = new FileOutputStream(partial);
+             Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            for (Entry entry : byTime.values()) {
+                writer.write(ADDED + "\t" + entry.name + "\t" + entry.createdMillis + "\t" + entry.size
+                        + "\t" + entry.sha256 + "\n");
+                lines++;
+                if (entry.bad) {
+                    writer.write(BAD + "\t" + entry.name + "\n");
+                    lines++;
+                }
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+        if (!partial.renameTo(file)) {
+            partial.delete();
+            throw new IOException("Cannot compact backup catalog");
+        }
+        lineCount = lines;
+        damaged = false;
+    }
+
+    /**
+     * One backup: its name relative to the files directory, as taken by restoreFromBackup.
+     */
+    static final class Entry {
+        final String name;
+        final long createdMillis;
+        final long size;
+        final String sha256;   // "-" when unknown
+        final boolean bad;
+
+        Entry(String name, long createdMillis, long size, String sha256, boolean bad) {
+            this.name = name;
+            this.createdMillis = createdMillis;
+            this.size = size;
+            this.sha256 = sha256;
+            this.bad = bad;
+        }
+
+        Entry asBad() {
+            return new Entry(name, createdMillis, size, sha256, true);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return name + (bad ? " (bad)" : "");
+        }
+    }
+
+    /**
+     * Grandfather-father-son retention: everything from the last hour, then the newest backup of
+     * each hour, day and week within the configured spans. The newest usable backup is always kept.
+     */
+    static final class Retention {
+        static final Retention DEFAULT = new Retention(TimeUnit.HOURS.toMillis(1), 24, 7, 4);
+
+        private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+        private static final long DAY = TimeUnit.DAYS.toMillis(1);
+        private static final long WEEK = 7 * DAY;
+
+        final long keepAllMillis;
+        final int hourly;
+        final int daily;
+        final int weekly;
+
+        Retention(long keepAllMillis, int hourly, int daily, int weekly) {
+            this.keepAllMillis = keepAllMillis;
+            this.hourly = hourly;
+            this.daily = daily;
+            this.weekly = weekly;
+        }
+
+        @NonNull
+        List<Entry> selectExpired(@NonNull List<Entry> oldestFirst, long nowMillis) {
+            Set<Long> hours = new HashSet<>();
+            Set<Long> days = new HashSet<>();
+            Set<Long> weeks = new HashSet<>();
+            boolean keptNewest = false;
+            List<Entry> expired = new ArrayList<>();
+
+            // Newest first, so the first backup seen in a bucket is the one that bucket keeps
+            for (int i = oldestFirst.size() - 1; i >= 0; i--) {
+                Entry entry = oldestFirst.get(i);
+                if (entry.bad) {
+                    expired.add(entry);
+                    continue;
+                }
+                long age = nowMillis - entry.createdMillis;
+                boolean keep = !keptNewest || age < keepAllMillis;
+                keep |= age < hourly * HOUR && hours.add(entry.createdMillis / HOUR);
+                keep |= age < daily * DAY && days.add(entry.createdMillis / DAY);
+                keep |= age < weekly * WEEK && weeks.add(entry.createdMillis / WEEK);
+                keptNewest = true;
+                if (!keep) {
+                    expired.add(entry);
+                }
+            }
+
+            List<Entry> oldestExpiredFirst = new ArrayList<>(expired.size());
+            for (int i = expired.size() - 1; i >= 0; i--) {
+                oldestExpiredFirst.add(expired.get(i));
+            }
+            return oldestExpiredFirst;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.finaltermproject;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import androidx.annotation.NonNull;
+import androidx.security.crypto.EncryptedSharedPreferences;
+import androidx.security.crypto.MasterKey;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * AES-256-GCM for backup files, one sealed segment per chunk or manifest.
+ *
+ * Each segment is {@code magic | nonce | ciphertext | tag} with a fresh random nonce, and is
+ * bound to its name (the chunk hash or generation name) as associated data, so segments cannot
+ * be swapped between files unnoticed. Segments are independent, which lets {@link ChunkStore}
+ * seal and open them on its worker threads in constant memory.
+ *
+ * The data key is a random AES key kept in EncryptedSharedPreferences, which wraps it with an
+ * Android Keystore master key; the bulk encryption itself stays in software and is fast. A second
+ * key derived from it names encrypted chunks (see {@link #newChunkMac}), so chunk file names do
+ * not reveal the hashes of the pages inside.
+ */
+final class BackupCipher {
+    private static final String PREFS_NAME = "backup_keys";
+    private static final String KEY_DATA_KEY = "data_key_v1";
+    private static final byte[] MAGIC = {'S', 'B', 'E', 1};
+    private static final int KEY_SIZE = 32;
+    private static final int NONCE_SIZE = 12;
+    private static final int TAG_BITS = 128;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final byte[] CHUNK_NAME_LABEL = "backup chunk names v1".getBytes(StandardCharsets.UTF_8);
+
+    private static volatile BackupCipher instance;
+
+    private final SecretKeySpec key;
+    private final SecretKeySpec chunkNameKey;
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadLocal<Cipher> ciphers = new ThreadLocal<>();
+
+    BackupCipher(@NonNull byte[] keyBytes) {
+        if (keyBytes.length != KEY_SIZE) {
+            throw new IllegalArgumentException("Backup key must be " + KEY_SIZE + " bytes");
+        }
+        this.key = new SecretKeySpec(keyBytes, "AES");
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(keyBytes, MAC_ALGORITHM));
+            this.chunkNameKey = new SecretKeySpec(mac.doFinal(CHUNK_NAME_LABEL), MAC_ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(MAC_ALGORITHM + " is not available", e);
+        }
+    }
+
+    /**
+     * The app's backup cipher, creating and storing its key on first use.
+     */
+    @NonNull
+    static BackupCipher getInstance(@NonNull Context context) throws GeneralSecurityException, IOException {
+        BackupCipher current = instance;
+        if (current == null) {
+            synchronized (BackupCipher.class) {
+                current = instance;
+                if (current == null) {
+                    current = new BackupCipher(loadOrCreateKey(context.getApplicationContext()));
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static byte[] loadOrCreateKey(Context context) throws GeneralSecurityException, IOException {
+        MasterKey masterKey = new MasterKey.Builder(context)
+                .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
+                .build();
+        SharedPreferences prefs = EncryptedSharedPreferences.create(context, PREFS_NAME, masterKey,
+                EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
+                EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM);
+
+        String stored = prefs.getString(KEY_DATA_KEY, null);
+        if (stored != null) {
+            return Base64.getDecoder().decode(stored);
+        }
+        byte[] keyBytes = new byte[KEY_SIZE];
+        new SecureRandom().nextBytes(keyBytes);
+        if (!prefs.edit().putString(KEY_DATA_KEY, Base64.getEncoder().encodeToString(keyBytes)).commit()) {
+            throw new IOException("Cannot store backup key");
+        }
+        return keyBytes;
+    }
+
+    /**
+     * Encrypts {@code plaintext}, binding it to {@code associatedData}.
+     */
+    @NonNull
+    byte[] seal(@NonNull byte[] plaintext, @NonNull byte[] associatedData) throws IOException {
+        byte[] nonce = new byte[NONCE_SIZE];
+        random.nextBytes(nonce);
+        try {
+            Cipher cipher = getCipher();
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, nonce));
+            cipher.updateAAD(associatedData);
+            byte[] sealed = new byte[MAGIC.length + NONCE_SIZE + cipher.getOutputSize(plaintext.length)];
+            System.arraycopy(MAGIC, 0, sealed, 0, MAGIC.length);
+            System.arraycopy(nonce, 0, sealed, MAGIC.length, NONCE_SIZE);
+            int length = cipher.doFinal(plaintext, 0, plaintext.length, sealed, MAGIC.length + NONCE_SIZE);
+            return length == sealed.length - MAGIC.length - NONCE_SIZE
+                    ? sealed : Arrays.copyOf(sealed, MAGIC.length + NONCE_SIZE + length);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Cannot encrypt backup data", e);
+        }
+    }
+
+    /**
+     * Decrypts a segment made by {@link #seal}; fails if it was altered or belongs to other data.
+     */
+    @NonNull
+    byte[] open(@NonNull byte[] sealed, @NonNull byte[] associatedData) throws IOException {
+        if (!isSealed(sealed) || sealed.length < MAGIC.length + NONCE_SIZE + TAG_BITS / 8) {
+            throw new IOException("Not an encrypted backup segment");
+        }
+        try {
+            Cipher cipher = getCipher();
+            cipher.init(Cipher.DECRYPT_MODE, key,
+                    new GCMParameterSpec(TAG_BITS, sealed, MAGIC.length, NONCE_SIZE));
+            cipher.updateAAD(associatedData);
+            int offset = MAGIC.length + NONCE_SIZE;
+            return cipher.doFinal(sealed, offset, sealed.length - offset);
+        } catch (AEADBadTagException e) {
+            throw new IOException("Backup segment failed authentication", e);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Cannot decrypt backup data", e);
+        }
+    }
+
+    /**
+     * A new HMAC-SHA256 keyed for naming chunks. Not thread-safe; use one per thread.
+     */
+    @NonNull
+    Mac newChunkMac() {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(chunkNameKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(MAC_ALGORITHM + " is not available", e);
+        }
+    }
+
+    static boolean isSealed(@NonNull byte[] bytes) {
+        if (bytes.length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (bytes[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Cipher getCipher() throws GeneralSecurityException {
+        Cipher cipher = ciphers.get();
+        if (cipher == null) {
+            cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            ciphers.set(cipher);
+        }
+        return cipher;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.finaltermproject;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.PowerManager;
+import android.os.Process;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes database backups on a low-priority background thread.
+ *
+ * A backup only runs when player progress changed since the last one, the battery is not low
+ * (or the device is charging), power saving is off, and the player has not made a choice in
+ * the last few seconds. Otherwise it is skipped or retried shortly after. The database
+ * connection stays open throughout.
+ */
+public final class BackupScheduler {
+    private static final String TAG = "BackupScheduler";
+
+    private static final long INTERVAL_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final long RETRY_DELAY_MS = TimeUnit.SECONDS.toMillis(30);
+    private static final long IDLE_MS = TimeUnit.SECONDS.toMillis(10);
+    private static final int MIN_BATTERY_PERCENT = 20;
+
+    private static volatile BackupScheduler instance;
+
+    private final Context appContext;
+    private final DatabaseHelper db;
+    private final ScheduledExecutorService executor;
+
+    private ScheduledFuture<?> periodic;
+    private ScheduledFuture<?> retry;
+    private volatile long lastBackedUpChange = 0;  // nothing to back up until progress changes
+
+    public static BackupScheduler getInstance(@NonNull Context context) {
+        BackupScheduler current = instance;
+        if (current == null) {
+            synchronized (BackupScheduler.class) {
+                current = instance;
+                if (current == null) {
+                    current = new BackupScheduler(context.getApplicationContext());
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private BackupScheduler(Context appContext) {
+        this.appContext = appContext;
+        this.db = DatabaseHelper.getInstance(appContext);
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "story-backup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.setRemoveOnCancelPolicy(true);
+        this.executor = pool;
+    }
+
+    /**
+     * Starts periodic backups, e.g. while the game screen is visible.
+     */
+    public synchronized void start() {
+        if (periodic == null) {
+            periodic = executor.scheduleWithFixedDelay(this::runScheduled,
+                    INTERVAL_MS, INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (periodic != null) {
+            periodic.cancel(false);
+            periodic = null;
+        }
+        cancelRetry();
+    }
+
+    /**
+     * Backs up soon if anything changed, e.g. when the game goes to the background. The idle
+     * condition is skipped since the player just left.
+     */
+    public void requestBackup() {
+        executor.execute(() -> runIfNeeded(false));
+    }
+
+    private void runScheduled() {
+        runIfNeeded(true);
+    }
+
+    private void runIfNeeded(boolean waitForIdle) {
+        try {
+            long changes = db.getProgressChangeCount();
+            if (changes == lastBackedUpChange) {
+                Log.d(TAG, "Skipping backup: no progress change since the last one");
+                return;
+            }
+
+            String reason = getDeferReason(waitForIdle);
+            if (reason != null) {
+                Log.d(TAG, "Deferring backup: " + reason);
+                scheduleRetry();
+                return;
+            }
+
+            // Spend the extra CPU on smaller chunks only when it costs no battery
+            ParallelGzip.Level level = isCharging() ? ParallelGzip.Level.SMALLEST : ParallelGzip.Level.FAST;
+            BackupStats stats = db.backupDatabase(appContext, level);
+            lastBackedUpChange = changes;
+            Log.d(TAG, "Backup completed: " + stats);
+        } catch (Exception e) {
+            // e.g. the backup key is unavailable; lastBackedUpChange is unchanged, so try again
+            Log.e(TAG, "Backup failed, retrying later: " + e.getMessage());
+            scheduleRetry();
+        }
+    }
+
+    @Nullable
+    private String getDeferReason(boolean waitForIdle) {
+        Intent battery = getBatteryStatus();
+        boolean charging = false;
+        if (battery != null) {
+            charging = battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+            int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+            if (!charging && level >= 0 && scale > 0 && level * 100 / scale < MIN_BATTERY_PERCENT) {
+                return "battery low";
+            }
+        }
+
+        PowerManager power = (PowerManager) appContext.getSystemService(Context.POWER_SERVICE);
+        if (!charging && power != null && power.isPowerSaveMode()) {
+            return "power save mode";
+        }
+
+        if (waitForIdle) {
+            if (System.currentTimeMillis() - db.getLastProgressChangeMillis() < IDLE_MS) {
+                return "player is active";
+            }
+            if (DatabaseExecutor.getInstance().getQueueDepth() > 0) {
+                return "database busy";
+            }
+        }
+        return null;
+    }
+
+    private boolean isCharging() {
+        Intent battery = getBatteryStatus();
+        return battery != null && battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+    }
+
+    @Nullable
+    private Intent getBatteryStatus() {
+        return appContext.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+    }
+
+    private synchronized void scheduleRetry() {
+        if (periodic == null || (retry != null && !retry.isDone())) {
+            return;
+        }
+        retry = executor.schedule(this::runScheduled, RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void cancelRetry() {
+        if (retry != null) {
+            retry.cancel(false);
+            retry = null;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.finaltermproject;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Outcome of one backup: how the snapshot was taken, how long database writes were held up,
+ * how many chunks were new, and how fast the snapshot was hashed and stored.
+ */
+public final class BackupStats {
+    private final String path;
+    private final String method;
+    private final long snapshotBytes;
+    private final long compressedBytes;
+    private final long pauseNanos;
+    private final long compressNanos;
+    private final int chunkCount;
+    private final int newChunkCount;
+
+    BackupStats(String path, String method, long snapshotBytes, long compressedBytes,
+                long pauseNanos, long compressNanos, int chunkCount, int newChunkCount) {
+        this.path = path;
+        this.method = method;
+        this.snapshotBytes = snapshotBytes;
+        this.compressedBytes = compressedBytes;
+        this.pauseNanos = pauseNanos;
+        this.compressNanos = compressNanos;
+        this.chunkCount = chunkCount;
+        this.newChunkCount = newChunkCount;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public long getSnapshotBytes() {
+        return snapshotBytes;
+    }
+
+    /**
+     * Compressed bytes this backup added to storage, i.e. its new chunks only.
+     */
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * How long writes through the app's connection had to wait for the snapshot.
+     */
+    public long getPauseNanos() {
+        return pauseNanos;
+    }
+
+    public long getCompressNanos() {
+        return compressNanos;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public int getNewChunkCount() {
+        return newChunkCount;
+    }
+
+    /**
+     * Storage throughput in MB of snapshot per second, hashing included.
+     */
+    public double getThroughputMbPerSecond() {
+        if (compressNanos <= 0) {
+            return 0;
+        }
+        return (snapshotBytes / (1024.0 * 1024.0)) / (compressNanos / 1e9);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s, %d -> %d bytes in %d/%d new chunks, paused %.1fms, stored at %.1f MB/s",
+                method, snapshotBytes, compressedBytes, newChunkCount, chunkCount,
+                pauseNanos / 1e6, getThroughputMbPerSecond());
+    }
+}
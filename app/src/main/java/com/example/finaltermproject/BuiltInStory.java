@@ -0,0 +1,262 @@
+package com.example.finaltermproject;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A short starter story, installed by {@link StoryDatabase} only when the compiled story asset
+ * (story.bin) is missing or unreadable.
+ * Choice ids are 0 so the database assigns them when the story is imported.
+ */
+final class BuiltInStory {
+
+    private BuiltInStory() {
+    }
+
+    @NonNull
+    static StoryGraph build() {
+        return new StoryGraph.Builder()
+                // Dialogs
+                .addDialog(1, "Welcome to Path of Choices! Your journey begins here.")
+                .addDialog(11, "You decide to help Viren. His eyes gleam with approval as you step forward.")
+                .addDialog(12, "The coastal winds beckon you. You feel the pull of the mysterious waters.")
+                .addDialog(13, "The courthouse is packed as Lady Selene's trial begins.")
+                .addDialog(14, "You speak up in Lady Selene's defense, citing her years of service to the realm.")
+                .addDialog(15, "You remain silent, observing the proceedings carefully.")
+                .addDialog(16, "You present evidence against Lady Selene, supporting the prosecution.")
+                .addDialog(17, "You dive into the depths, following the strange underwater lights.")
+                .addDialog(18, "You search the beach for clues about the water's strange behavior.")
+                .addDialog(19, "You seek out the local fishermen to gather information about recent events.")
+                .addDialog(20, "You examine the ancient scrolls in Viren's study, searching for clues about the prophecy.")
+                .addDialog(21, "You visit the temple ruins where the prophecy was first discovered.")
+                .addDialog(22, "You question the temple priests about their interpretation of the prophecy.")
+                .addDialog(23, "The ancient scrolls reveal a hidden pattern. Symbols of water, fire, and earth intertwine with mentions of a great upheaval.")
+                .addDialog(24, "Among the temple ruins, you discover an untouched chamber. Ancient murals depict a ritual involving three sacred artifacts.")
+                .addDialog(25, "The priests speak of a guardian chosen by the elements themselves. They believe the time of choosing is near.")
+                .addDialog(26, "Beneath the waves, you find an ancient underwater temple. Strange glyphs pulse with an ethereal blue light.")
+                .addDialog(27, "Your beach investigation reveals peculiar crystals that seem to resonate with the tides. They form a pattern pointing to a hidden cave.")
+                .addDialog(28, "The fishermen tell tales of ancient sea people and a pact broken long ago. They speak of a way to restore balance.")
+                .addDialog(29, "Your defense of Lady Selene reveals new evidence. She appears to be protecting an ancient secret rather than committing treason.")
+                .addDialog(30, "Your careful observation uncovers a conspiracy. Someone is manipulating evidence to frame Lady Selene.")
+                .addDialog(31, "The evidence against Lady Selene leads to a shocking discovery about her true identity and her connection to the realm's ancient magic.")
+                .addDialog(32, "The prophecy, the sea's unrest, and Lady Selene's secret are all connected. You stand at the threshold of a momentous decision.")
+                .addDialog(33, "You choose to embrace the ancient power, becoming the prophesied guardian. The realm enters a new age of harmony.")
+                .addDialog(34, "You reject the ancient power, choosing to forge a new path. The old ways fade, but the realm finds strength in change.")
+
+                // Choices for dialog 1
+                .addChoice(0, 1, "Swear your aid to Viren and help investigate the prophecy", 11)
+                .addChoice(0, 1, "Slip away to the coast and seek the source of the water's unrest", 12)
+                .addChoice(0, 1, "Attend Lady Selene's public trial, hoping to read her intentions", 13)
+
+                // Choices for dialog 11
+                .addChoice(0, 11, "Study the ancient scrolls in Viren's library", 20)
+                .addChoice(0, 11, "Investigate the temple ruins", 21)
+                .addChoice(0, 11, "Consult the temple priests", 22)
+
+                // Choices for dialog 12
+                .addChoice(0, 12, "Dive into the mysterious waters", 17)
+                .addChoice(0, 12, "Search the beach for clues", 18)
+                .addChoice(0, 12, "Talk to the local fishermen", 19)
+
+                // Choices for dialog 13
+                .addChoice(0, 13, "Speak in Lady Selene's defense", 14)
+                .addChoice(0, 13, "Observe silently and gather information", 15)
+                .addChoice(0, 13, "Present evidence against Lady Selene", 16)
+
+                // Choices for dialog 20
+                .addChoice(0, 20, "Study the elemental symbols more closely", 23)
+
+                // Choices for dialog 21
+                .addChoice(0, 21, "Explore the hidden chamber", 24)
+
+                // Choices for dialog 22
+                .addChoice(0, 22, "Learn more about the prophecied guardian", 25)
+
+                // Choices for dialog 17
+                .addChoice(0, 17, "Investigate the underwater temple", 26)
+
+                // Choices for dialog 18
+                .addChoice(0, 18, "Follow the crystal pattern", 27)
+
+                // Choices for dialog 19
+                .addChoice(0, 19, "Learn about the ancient pact", 28)
+
+                // Choices for dialog 14
+                .addChoice(0, 14, "Investigate the ancient secret", 29)
+
+                // Choices for dialog 15
+                .addChoice(0, 15, "Uncover the conspiracy", 30)
+
+                // Choices for dialog 16
+                .addChoice(0, 16, "Reveal Lady Selene's true identity", 31)
+
+                // Choices for dialog 23
+                .addChoice(0, 23, "Connect the prophecy to recent events", 32)
+
+                // Choices for dialog 24
+                .addChoice(0, 24, "Understand the ritual's significance", 32)
+
+                // Choices for dialog 25
+                .addChoice(0, 25, "Consider your role in the prophecy", 32)
+
+                // Choices for dialog 26
+                .addChoice(0, 26, "Decipher the ancient glyphs", 32)
+
+                // Choices for dialog 27
+                .addChoice(0, 27, "Connect the crystal's power to the prophecy", 32)
+
+                // Choices for dialog 28
+                .addChoice(0, 28, "Consider restoring the ancient pact", 32)
+
+                // Choices for dialog 29
+                .addChoice(0, 29, "Connect Lady Selene to the prophecy", 32)
+
+                // Choices for dialog 30
+                .addChoice(0, 30, "Reveal the truth about the conspiracy", 32)
+
+                // Choices for dialog 31
+                .addChoice(0, 31, "Understand Lady Selene's role in the prophecy", 32)
+
+                // Choices for dialog 32
+                .addChoice(0, 32, "Embrace the ancient power and become the guardian", 33)
+                .addChoice(0, 32, "Reject the ancient power and forge a new path", 34)
+
+                // Choices for dialog 33
+                .addChoice(0, 33, "Begin your journey as the realm's guardian", 1)
+                .addChoice(0, 33, "Start a new story", 1)
+
+                // Choices for dialog 34
+                .addChoice(0, 34, "Reject the ancient power and forge a new path", 1)
+
+                // Dialogs
+                .addDialog(301, "The city is in chaos. Your actions have led to this moment of crisis.")
+                .addDialog(302, "Time itself bends around you. Multiple realities converge at this point.")
+                .addDialog(401, "With newfound power, you must decide how to shape justice in this world.")
+                .addDialog(402, "The boundaries between worlds grow thin. Your choice will determine their fate.")
+                .addDialog(403, "Reality itself awaits your decision. The power to reshape existence lies in your hands.")
+                .addDialog(404, "Time fragments spread before you like a shattered mirror. Each shard shows a different path.")
+                .addDialog(501, "**Ending 1: The Sovereign of Rain**\n\nYou have become the Sovereign of Rain, a being of immense power and responsibility. The world bows to your justice, and the waters of change flow according to your will.")
+                .addDialog(502, "**Ending 2: The Hidden Verse**\n\nYou have discovered the Hidden Verse, a secret truth that changes everything. Your knowledge reshapes the world in subtle but profound ways.")
+                .addDialog(503, "**Ending 3: Judgment Broken**\n\nThe old order has crumbled. In breaking the chains of judgment, you have set both justice and chaos free. The world must now find its own balance.")
+                .addDialog(504, "**Ending 4: Floodlight Reborn**\n\nThrough the waters of change, you emerge transformed. The light of truth shines anew, and with it, hope for a different future.")
+
+                // Choices for dialog 301
+                .addChoice(0, 301, "Take control and calm the people", 401)
+                .addChoice(0, 301, "Let the chaos run its course", 402)
+
+                // Choices for dialog 302
+                .addChoice(0, 302, "Rewrite the current cycle", 403)
+                .addChoice(0, 302, "Anchor yourself in one of the past realities", 404)
+
+                // Choices for dialog 401
+                .addChoice(0, 401, "Spread this new justice across the world", 501)
+                .addChoice(0, 401, "Keep it local, protecting Caelondria", 502)
+
+                // Choices for dialog 402
+                .addChoice(0, 402, "Let the worlds merge into one", 503)
+                .addChoice(0, 402, "Sever the link and accept your rewritten truth", 504)
+
+                // Choices for dialog 403
+                .addChoice(0, 403, "Create a perfect world", 501)
+                .addChoice(0, 403, "Preserve the imperfect truth", 502)
+
+                // Choices for dialog 404
+                .addChoice(0, 404, "Return to your original time", 503)
+                .addChoice(0, 404, "Stay in the chosen past", 504)
+
+                // Choices for dialog 501
+                .addChoice(0, 501, "Begin a new journey", 1)
+                .addChoice(0, 501, "Reflect on your choices", 1)
+
+                // Choices for dialog 502
+                .addChoice(0, 502, "Start another story", 1)
+                .addChoice(0, 502, "Contemplate the hidden verse", 1)
+
+                // Choices for dialog 503
+                .addChoice(0, 503, "Begin anew", 1)
+                .addChoice(0, 503, "Ponder the broken judgment", 1)
+
+                // Choices for dialog 504
+                .addChoice(0, 504, "Start a new chapter", 1)
+                .addChoice(0, 504, "Meditate on rebirth", 1)
+
+                // Choices for dialog 501
+                .addChoice(0, 501, "Back to Menu", 1)
+
+                // Choices for dialog 502
+                .addChoice(0, 502, "Back to Menu", 1)
+
+                // Choices for dialog 503
+                .addChoice(0, 503, "Back to Menu", 1)
+
+                // Choices for dialog 504
+                .addChoice(0, 504, "Back to Menu", 1)
+
+                // Choices for dialog 23
+                .addChoice(0, 23, "Investigate the elemental convergence", 32)
+
+                // Choices for dialog 28
+                .addChoice(0, 28, "Study the ancient maritime legends", 32)
+
+                // Choices for dialog 26
+                .addChoice(0, 26, "Explore the deeper mysteries of the temple", 32)
+
+                // Choices for dialog 27
+                .addChoice(0, 27, "Examine the crystal resonance patterns", 32)
+
+                // Choices for dialog 29
+                .addChoice(0, 29, "Delve into Lady Selene's past", 32)
+
+                // Choices for dialog 30
+                .addChoice(0, 30, "Follow the threads of deception", 32)
+
+                // Choices for dialog 31
+                .addChoice(0, 31, "Uncover the truth about Lady Selene's powers", 32)
+
+                // Choices for dialog 14
+                .addChoice(0, 14, "Research Lady Selene's family history", 29)
+
+                // Choices for dialog 15
+                .addChoice(0, 15, "Follow the evidence trail", 30)
+
+                // Choices for dialog 1
+                .addChoice(0, 1, "Visit the ancient library to research the realm's history", 11)
+                .addChoice(0, 1, "Seek out the mysterious Oracle of the Tides", 12)
+
+                // Choices for dialog 11
+                .addChoice(0, 11, "Confront the Scale itself by requesting an Audience of Judgment", 111)
+                .addChoice(0, 11, "Seek the Lustrines for their memory of Caelondria before the courts", 112)
+                .addChoice(0, 11, "Attempt to modify the prophecy secretly", 113)
+
+                // Choices for dialog 12
+                .addChoice(0, 12, "Dive deeper, risking your breath, to find the source", 121)
+                .addChoice(0, 12, "Capture and analyze the harmonic energy in the water", 122)
+
+                // Dialogs
+                .addDialog(111, "You stand before the Scale of Justice, its ancient presence weighing heavily upon you.")
+                .addDialog(112, "The Lustrines welcome you to their hidden archives, where memories of old Caelondria still live.")
+                .addDialog(113, "In the shadows of the prophecy chamber, you begin your dangerous work of alteration.")
+                .addDialog(121, "The depths reveal an ancient underwater temple, its walls inscribed with glowing symbols.")
+                .addDialog(122, "The water's energy pulses with a strange rhythm, each wave carrying fragments of an ancient song.")
+
+                // Choices for dialog 111
+                .addChoice(0, 111, "Demand the Scale justify its prophecy", 301)
+                .addChoice(0, 111, "Ask the Scale to show you the truth", 302)
+
+                // Choices for dialog 112
+                .addChoice(0, 112, "Learn the original laws of the land", 301)
+                .addChoice(0, 112, "Witness the Scale's first judgment", 302)
+
+                // Choices for dialog 113
+                .addChoice(0, 113, "Force the change despite the pain", 301)
+                .addChoice(0, 113, "Retreat and seek another way", 302)
+
+                // Choices for dialog 121
+                .addChoice(0, 121, "Enter the temple", 301)
+                .addChoice(0, 121, "Surface and bring others", 302)
+
+                // Choices for dialog 122
+                .addChoice(0, 122, "Disrupt the rhythm", 301)
+                .addChoice(0, 122, "Follow the pattern to its source", 302)
+                .build();
+    }
+}
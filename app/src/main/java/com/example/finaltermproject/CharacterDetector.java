@@ -0,0 +1,267 @@
+package com.example.finaltermproject;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds the characters named in a dialog with one pass over its text.
+ *
+ * Every alias in the registry is compiled into a single Aho-Corasick automaton, stored as a
+ * dense transition table over the characters that occur in the aliases. Matches must sit on
+ * word boundaries. A match wrapped in ** (e.g. **Lord Viren**) counts as the character
+ * speaking, which ranks above being mentioned.
+ */
+public final class CharacterDetector {
+
+    /**
+     * A character found in a dialog, with how often and where it appeared.
+     */
+    public static final class Match {
+        public final String key;
+        public final int speakingCount;
+        public final int mentionCount;   // includes the speaking matches
+        public final int firstPosition;
+
+        Match(String key, int speakingCount, int mentionCount, int firstPosition) {
+            this.key = key;
+            this.speakingCount = speakingCount;
+            this.mentionCount = mentionCount;
+            this.firstPosition = firstPosition;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return key + " (speaking " + speakingCount + ", mentioned " + mentionCount + ")";
+        }
+    }
+
+    private static final CharacterDetector DEFAULT = new Builder()
+            .add("viren", "Lord Viren", "Viren")
+            .add("selene", "Lady Selene", "Selene")
+            .add("elira", "Judge Elira", "Elira")
+            .add("maskbearer", "The Maskbearer", "Maskbearer")
+            .add("lustrines", "The Lustrines", "Lustrines")
+            .build();
+
+    private final String[] keys;
+    private final int[] alphabet;        // char -> symbol, 0 for characters outside every alias
+    private final int symbolCount;
+    private final int[] transitions;     // state * symbolCount + symbol -> next state
+    private final int[][] outputs;       // per state: {character, length} pairs, longest first
+
+    private CharacterDetector(String[] keys, int[] alphabet, int symbolCount, int[] transitions, int[][] outputs) {
+        this.keys = keys;
+        this.alphabet = alphabet;
+        this.symbolCount = symbolCount;
+        this.transitions = transitions;
+        this.outputs = outputs;
+    }
+
+    /**
+     * Detector for the characters of the built-in story.
+     */
+    @NonNull
+    public static CharacterDetector getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * The most prominent character in the text, or null when none is named.
+     */
+    @Nullable
+    public String detectPrimary(@Nullable String text) {
+        List<Match> matches = detect(text);
+        return matches.isEmpty() ? null : matches.get(0).key;
+    }
+
+    /**
+     * Every character named in the text, ranked by times speaking, then times mentioned, then
+     * first appearance.
+     */
+    @NonNull
+    public List<Match> detect(@Nullable String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        int[] speaking = new int[keys.length];
+        int[] mentions = new int[keys.length];
+        int[] first = new int[keys.length];
+        int[] lastEnd = new int[keys.length];
+        Arrays.fill(first, -1);
+
+        int state = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            state = transitions[state * symbolCount + symbol(text.charAt(i))];
+            int[] found = outputs[state];
+            if (found == null) continue;
+
+            int end = i + 1;
+            for (int k = 0; k < found.length; k += 2) {
+                int character = found[k];
+                int start = end - found[k + 1];
+                // Skip "Viren" inside an already counted "Lord Viren", and partial words
+                if (start < lastEnd[character] || !isWordBoundary(text, start - 1) || !isWordBoundary(text, end)) {
+                    continue;
+                }
+                lastEnd[character] = end;
+                mentions[character]++;
+                if (first[character] < 0) {
+                    first[character] = start;
+                }
+                if (text.startsWith("**", end) && start >= 2 && text.startsWith("**", start - 2)) {
+                    speaking[character]++;
+                }
+            }
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (int c = 0; c < keys.length; c++) {
+            if (mentions[c] > 0) {
+                matches.add(new Match(keys[c], speaking[c], mentions[c], first[c]));
+            }
+        }
+        Collections.sort(matches, (a, b) -> {
+            if (a.speakingCount != b.speakingCount) return Integer.compare(b.speakingCount, a.speakingCount);
+            if (a.mentionCount != b.mentionCount) return Integer.compare(b.mentionCount, a.mentionCount);
+            return Integer.compare(a.firstPosition, b.firstPosition);
+        });
+        return matches;
+    }
+
+    public int getCharacterCount() {
+        return keys.length;
+    }
+
+    private int symbol(char c) {
+        return c < alphabet.length ? alphabet[c] : 0;
+    }
+
+    private static boolean isWordBoundary(String text, int index) {
+        return index < 0 || index >= text.length() || !Character.isLetterOrDigit(text.charAt(index));
+    }
+
+    /**
+     * Registry of characters and the names they go by.
+     */
+    public static final class Builder {
+        private final List<String> keys = new ArrayList<>();
+        private final List<String[]> aliases = new ArrayList<>();
+
+        public Builder add(@NonNull String key, @NonNull String... names) {
+            if (names.length == 0) {
+                throw new IllegalArgumentException("Character " + key + " has no names");
+            }
+            keys.add(key);
+            aliases.add(names.clone());
+            return this;
+        }
+
+        @NonNull
+        public CharacterDetector build() {
+            // Alphabet of the characters used by the aliases; symbol 0 stands for everything else
+            char maxChar = 0;
+            for (String[] names : aliases) {
+                for (String name : names) {
+                    for (int i = 0; i < name.length(); i++) {
+                        maxChar = (char) Math.max(maxChar, name.charAt(i));
+                    }
+                }
+            }
+            int[] alphabet = new int[maxChar + 1];
+            int symbolCount = 1;
+            for (String[] names : aliases) {
+                for (String name : names) {
+                    for (int i = 0; i < name.length(); i++) {
+                        if (alphabet[name.charAt(i)] == 0) {
+                            alphabet[name.charAt(i)] = symbolCount++;
+                        }
+                    }
+                }
+            }
+
+            // Trie, with -1 for missing edges
+            List<int[]> trie = new ArrayList<>();
+            List<List<int[]>> found = new ArrayList<>();
+            trie.add(newState(symbolCount));
+            found.add(new ArrayList<>());
+            for (int c = 0; c < keys.size(); c++) {
+                for (String name : aliases.get(c)) {
+                    if (name.isEmpty()) continue;
+                    int state = 0;
+                    for (int i = 0; i < name.length(); i++) {
+                        int symbol = alphabet[name.charAt(i)];
+                        if (trie.get(state)[symbol] < 0) {
+                            trie.get(state)[symbol] = trie.size();
+                            trie.add(newState(symbolCount));
+                            found.add(new ArrayList<>());
+                        }
+                        state = trie.get(state)[symbol];
+                    }
+                    found.get(state).add(new int[]{c, name.length()});
+                }
+            }
+
+            // Breadth-first over the trie: fill missing edges from the failure state and
+            // inherit its outputs, turning the trie into a DFA
+            int stateCount = trie.size();
+            int[] transitions = new int[stateCount * symbolCount];
+            int[] failure = new int[stateCount];
+            int[] queue = new int[stateCount];
+            int head = 0;
+            int tail = 0;
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int next = trie.get(0)[symbol];
+                if (next < 0) {
+                    transitions[symbol] = 0;
+                } else {
+                    transitions[symbol] = next;
+                    failure[next] = 0;
+                    queue[tail++] = next;
+                }
+            }
+            while (head < tail) {
+                int state = queue[head++];
+                found.get(state).addAll(found.get(failure[state]));
+                for (int symbol = 0; symbol < symbolCount; symbol++) {
+                    int next = trie.get(state)[symbol];
+                    int fallback = transitions[failure[state] * symbolCount + symbol];
+                    if (next < 0) {
+                        transitions[state * symbolCount + symbol] = fallback;
+                    } else {
+                        transitions[state * symbolCount + symbol] = next;
+                        failure[next] = fallback;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+
+            int[][] outputs = new int[stateCount][];
+            for (int state = 0; state < stateCount; state++) {
+                List<int[]> list = found.get(state);
+                if (list.isEmpty()) continue;
+                Collections.sort(list, (a, b) -> Integer.compare(b[1], a[1]));
+                outputs[state] = new int[list.size() * 2];
+                for (int k = 0; k < list.size(); k++) {
+                    outputs[state][k * 2] = list.get(k)[0];
+                    outputs[state][k * 2 + 1] = list.get(k)[1];
+                }
+            }
+
+            return new CharacterDetector(keys.toArray(new String[0]), alphabet, symbolCount, transitions, outputs);
+        }
+
+        private static int[] newState(int symbolCount) {
+            int[] edges = new int[symbolCount];
+            Arrays.fill(edges, -1);
+            return edges;
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package com.example.finaltermproject;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import javax.crypto.Mac;
+
+/**
+ * Incremental backups made of content-addressed chunks.
+ *
+ * A database snapshot is cut into fixed {@link #CHUNK_SIZE} pieces, one per SQLite page. Each
+ * piece is stored once, gzipped, under its SHA-256, and every backup generation is a manifest
+ * listing the chunk hashes in file order. The story tables never change between backups, so a
+ * new generation usually adds only the few pages that hold the progress rows.
+ *
+ * Chunks are compressed and inflated on the fork-join pool with {@link ParallelGzip}, a few
+ * dozen at a time, while hashing and file order stay on the calling thread. With a
+ * {@link BackupCipher}, every chunk and manifest written is also encrypted on the pool, and chunks
+ * are named by a keyed hash instead of their SHA-256 (manifest format "chunks 2"). Encrypted
+ * generations therefore never share a chunk with plaintext ones, and the names do not let anyone
+ * confirm a guessed page. Generations written before encryption was enabled stay readable until
+ * they are pruned.
+ */
+final class ChunkStore {
+    static final int CHUNK_SIZE = 4096;
+    static final String MANIFEST_SUFFIX = ".manifest";
+
+    private static final String CHUNK_SUFFIX = ".gz";
+    private static final String FORMAT = "chunks 1";        // chunks named by SHA-256
+    private static final String KEYED_FORMAT = "chunks 2";  // chunks named by the cipher's keyed hash
+    private static final int PARALLEL_WINDOW = 32;
+
+    private final File root;
+    private final File chunkDir;
+    private final ParallelGzip.Level level;
+    @Nullable
+    private final BackupCipher cipher;
+
+    ChunkStore(@NonNull File root) {
+        this(root, ParallelGzip.Level.BALANCED, null);
+    }
+
+    ChunkStore(@NonNull File root, @NonNull ParallelGzip.Level level, @Nullable BackupCipher cipher) {
+        this.root = root;
+        this.chunkDir = new File(root, "chunks");
+        this.level = level;
+        this.cipher = cipher;
+    }
+
+    @NonNull
+    File getRoot() {
+        return root;
+    }
+
+    @NonNull
+    File getManifestFile(@NonNull String name) {
+        return new File(root, name + MANIFEST_SUFFIX);
+    }
+
+    /**
+     * Stores the chunks of {@code source} that are not in the store yet and writes the manifest
+     * of a new generation called {@code name}. The manifest is written last, so a generation only
+     * exists once all its chunks do.
+     */
+    @NonNull
+    Manifest write(@NonNull File source, @NonNull String name) throws IOException {
+        if (!chunkDir.isDirectory() && !chunkDir.mkdirs()) {
+            throw new IOException("Cannot create chunk directory: " + chunkDir);
+        }
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int window = Math.max(PARALLEL_WINDOW, pool.getParallelism() * 4);
+        MessageDigest fileDigest = newDigest();
+        MessageDigest chunkDigest = newDigest();
+        Mac chunkMac = cipher != null ? cipher.newChunkMac() : null;
+        List<String> hashes = new ArrayList<>();
+        Set<String> queued = new HashSet<>();
+        Deque<File> pendingFiles = new ArrayDeque<>();
+        Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        long size = 0;
+        int newChunks = 0;
+        long newBytes = 0;
+
+        try (InputStream in = new FileInputStream(source)) {
+            while (true) {
+                byte[] chunk = new byte[CHUNK_SIZE];
+                int length = ParallelGzip.readFully(in, chunk, 0, CHUNK_SIZE);
+                if (length == 0) {
+                    break;
+                }
+                fileDigest.update(chunk, 0, length);
+                String hash;
+                if (chunkMac != null) {
+                    chunkMac.update(chunk, 0, length);
+                    hash = toHex(chunkMac.doFinal());
+                } else {
+                    chunkDigest.update(chunk, 0, length);
+                    hash = toHex(chunkDigest.digest());
+                }
+                hashes.add(hash);
+                size += length;
+
+                File file = getChunkFile(hash);
+                if (!file.exists() && queued.add(hash)) {
+                    pendingFiles.add(file);
+                    pending.add(pool.submit(() -> encode(hash, chunk, length)));
+                    newChunks++;
+                    if (pending.size() >= window) {
+                        newBytes += storeChunk(pendingFiles.poll(), ParallelGzip.await(pending.poll()));
+                    }
+                }
+            }
+            while (!pending.isEmpty()) {
+                newBytes += storeChunk(pendingFiles.poll(), ParallelGzip.await(pending.poll()));
+            }
+        } finally {
+            for (Future<byte[]> task : pending) {
+                task.cancel(false);
+            }
+        }
+
+        Manifest manifest = new Manifest(name, System.currentTimeMillis(), size, CHUNK_SIZE,
+                toHex(fileDigest.digest()), hashes.toArray(new String[0]), chunkMac != null);
+        manifest.newChunkCount = newChunks;
+        manifest.newChunkBytes = newBytes;
+        writeManifest(manifest, getManifestFile(name));
+        return manifest;
+    }
+
+    /**
+     * Reassembles a generation into {@code target}, checking every chunk and the whole file
+     * against the hashes in the manifest.
+     */
+    void restore(@NonNull Manifest manifest, @NonNull File target) throws IOException {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int window = Math.max(PARALLEL_WINDOW, pool.getParallelism() * 4);
+        MessageDigest fileDigest = newDigest();
+        Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        long size = 0;
+
+        try (FileOutputStream out = new FileOutputStream(target)) {
+            int next = 0;
+            while (next < manifest.chunks.length || !pending.isEmpty()) {
+                while (next < manifest.chunks.length && pending.size() < window) {
+                    String hash = manifest.chunks[next++];
+                    pending.add(pool.submit(() -> readChunk(hash, manifest.keyed)));
+                }
+                byte[] chunk = ParallelGzip.await(pending.poll());
+                fileDigest.update(chunk);
+                out.write(chunk);
+                size += chunk.length;
+            }
+            out.getFD().sync();
+        } finally {
+            for (Future<byte[]> task : pending) {
+                task.cancel(false);
+            }
+        }
+
+        if (size != manifest.size || !manifest.sha256.equals(toHex(fileDigest.digest()))) {
+            throw new IOException("Generation " + manifest.name + " does not match its manifest");
+        }
+    }
+
+    /**
+     * All generations, oldest first. Unreadable manifests are left out.
+     */
+    @NonNull
+    List<Manifest> listManifests() {
+        List<Manifest> manifests = new ArrayList<>();
+        File[] files = root.listFiles((dir, name) -> name.endsWith(MANIFEST_SUFFIX));
+        if (files == null) {
+            return manifests;
+        }
+        for (File file : files) {
+            try {
+                manifests.add(readManifest(file));
+            } catch (IOException e) {
+                // A manifest that cannot be read is no generation
+            }
+        }
+        manifests.sort((a, b) -> a.createdMillis != b.createdMillis
+                ? Long.compare(a.createdMillis, b.createdMillis) : a.name.compareTo(b.name));
+        return manifests;
+    }
+
+    /**
+     * Deletes the chunks that none of the given manifests use, along with leftovers of interrupted
+     * writes, and returns how many files were deleted. Fails without deleting anything when a
+     * manifest cannot be read.
+     */
+    int collectGarbage(@NonNull Collection<File> liveManifests) throws IOException {
+        Set<String> referenced = new HashSet<>();
+        for (File manifest : liveManifests) {
+            referenced.addAll(Arrays.asList(readManifest(manifest).chunks));
+        }
+
+        int deleted = 0;
+        File[] chunks = chunkDir.listFiles();
+        if (chunks != null) {
+            for (File chunk : chunks) {
+                String name = chunk.getName();
+                String hash = name.endsWith(CHUNK_SUFFIX)
+                        ? name.substring(0, name.length() - CHUNK_SUFFIX.length()) : name;
+                if (!referenced.contains(hash) && chunk.delete()) {
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    @NonNull
+    Manifest readManifest(@NonNull File file) throws IOException {
+        String name = file.getName();
+        if (name.endsWith(MANIFEST_SUFFIX)) {
+            name = name.substring(0, name.length() - MANIFEST_SUFFIX.length());
+        }
+
+        byte[] bytes = readFile(file);
+        if (BackupCipher.isSealed(bytes)) {
+            bytes = requireCipher().open(bytes, manifestAssociatedData(name));
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(bytes), StandardCharsets.UTF_8))) {
+            String format = reader.readLine();
+            boolean keyed = KEYED_FORMAT.equals(format);
+            if (!keyed && !FORMAT.equals(format)) {
+                throw new IOException("Not a chunk manifest: " + file);
+            }
+            long created = Long.parseLong(readField(reader, "created"));
+            long size = Long.parseLong(readField(reader, "size"));
+            int chunkSize = Integer.parseInt(readField(reader, "chunk_size"));
+            String sha256 = readField(reader, "sha256");
+
+            List<String> chunks = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    chunks.add(line);
+                }
+            }
+            return new Manifest(name, created, size, chunkSize, sha256, chunks.toArray(new String[0]), keyed);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed manifest: " + file, e);
+        }
+    }
+
+    private File getChunkFile(String hash) {
+        return new File(chunkDir, hash + CHUNK_SUFFIX);
+    }
+
+    // Compresses and, with a cipher, encrypts one chunk; runs on the pool
+    private byte[] encode(String hash, byte[] chunk, int length) throws IOException {
+        byte[] compressed = ParallelGzip.gzip(chunk, 0, length, level);
+        return cipher != null ? cipher.seal(compressed, chunkAssociatedData(hash)) : compressed;
+    }
+
+    // Decrypts if needed, inflates and verifies one chunk; runs on the pool
+    private byte[] readChunk(String hash, boolean keyed) throws IOException {
+        byte[] stored = readFile(getChunkFile(hash));
+        if (BackupCipher.isSealed(stored)) {
+            stored = requireCipher().open(stored, chunkAssociatedData(hash));
+        } else if (keyed) {
+            throw new IOException("Chunk " + hash + " is not encrypted");
+        }
+        byte[] chunk = ParallelGzip.gunzipAny(stored);
+        byte[] digest = keyed ? requireCipher().newChunkMac().doFinal(chunk) : newDigest().digest(chunk);
+        if (!hash.equals(toHex(digest))) {
+            throw new IOException("Chunk " + hash + " is corrupt");
+        }
+        return chunk;
+    }
+
+    private static long storeChunk(File file, byte[] compressed) throws IOException {
+        File partial = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(partial)) {
+            out.write(compressed);
+        }
+        if (!partial.renameTo(file)) {
+            partial.delete();
+            throw new IOException("Cannot store chunk " + file.getName());
+        }
+        return file.length();
+    }
+
+    private void writeManifest(Manifest manifest, File file) throws IOException {
+        StringBuilder text = new StringBuilder(128 + manifest.chunks.length * 65);
+        text.append(manifest.keyed ? KEYED_FORMAT : FORMAT).append('\n');
+        text.append("created ").append(manifest.createdMillis).append('\n');
+        text.append("size ").append(manifest.size).append('\n');
+        text.append("chunk_size ").append(manifest.chunkSize).append('\n');
+        text.append("sha256 ").append(manifest.sha256).append('\n');
+        for (String hash : manifest.chunks) {
+            text.append(hash).append('\n');
+        }
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        if (cipher != null) {
+            bytes = cipher.seal(bytes, manifestAssociatedData(manifest.name));
+        }
+
+        File partial = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(partial)) {
+            out.write(bytes);
+        }
+        if (!partial.renameTo(file)) {
+            partial.delete();
+            throw new IOException("Cannot write manifest " + file);
+        }
+    }
+
+    private BackupCipher requireCipher() throws IOException {
+        if (cipher == null) {
+            throw new IOException("Backup is encrypted but no key is available");
+        }
+        return cipher;
+    }
+
+    private static byte[] chunkAssociatedData(String hash) {
+        return ("chunk:" + hash).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] manifestAssociatedData(String name) {
+        return ("manifest:" + name).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        try (InputStream in = new FileInputStream(file)) {
+            if (ParallelGzip.readFully(in, bytes, 0, bytes.length) != bytes.length) {
+                throw new IOException(file.getName() + " is truncated");
+            }
+        }
+        return bytes;
+    }
+
+    private static String readField(BufferedReader reader, String key) throws IOException {
+        String line = reader.readLine();
+        if (line == null || !line.startsWith(key + " ")) {
+            throw new IOException("Manifest is missing " + key);
+        }
+        return line.substring(key.length() + 1);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] digits = "0123456789abcdef".toCharArray();
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = digits[(bytes[i] >> 4) & 0xf];
+            hex[2 * i + 1] = digits[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * One backup generation: the chunk names of a database file, in order.
+     */
+    static final class Manifest {
+        final String name;
+        final long createdMillis;
+        final long size;
+        final int chunkSize;
+        final String sha256;
+        final String[] chunks;
+        final boolean keyed;    // chunks named by the cipher's keyed hash rather than SHA-256
+
+        // Set only on a manifest returned by write()
+        int newChunkCount;
+        long newChunkBytes;
+
+        Manifest(String name, long createdMillis, long size, int chunkSize, String sha256, String[] chunks,
+                 boolean keyed) {
+            this.name = name;
+            this.createdMillis = createdMillis;
+            this.size = size;
+            this.chunkSize = chunkSize;
+            this.sha256 = sha256;
+            this.chunks = chunks;
+            this.keyed = keyed;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.finaltermproject;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared background executor for all {@link DatabaseHelper} work.
+ *
+ * Writes go through a single thread so they are applied in submission order. Reads run on a
+ * small bounded pool sized to the reader connections SQLite keeps in WAL mode, so each reader
+ * thread can hold its own connection instead of waiting on the writer. {@link Sequence} adds "latest wins" semantics on top: starting a new
+ * task cancels the previous one and lets callers drop results that are no longer current.
+ */
+public final class DatabaseExecutor {
+    private static final String TAG = "DatabaseExecutor";
+
+    // Android's WAL connection pool is usually 4 connections, one of them the primary (writer)
+    private static final int MAX_READER_THREADS = 3;
+    private static final int DEFAULT_READER_THREADS =
+            Math.max(2, Math.min(MAX_READER_THREADS, Runtime.getRuntime().availableProcessors() - 1));
+    private static final int READER_QUEUE_CAPACITY = 64;
+    private static final long SLOW_TASK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int METRICS_LOG_INTERVAL = 100;
+
+    private static volatile DatabaseExecutor instance;
+
+    private final ThreadPoolExecutor writer;
+    private final ThreadPoolExecutor readers;
+
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    public static DatabaseExecutor getInstance() {
+        DatabaseExecutor current = instance;
+        if (current == null) {
+            synchronized (DatabaseExecutor.class) {
+                current = instance;
+                if (current == null) {
+                    current = new DatabaseExecutor();
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private DatabaseExecutor() {
+        writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), threadFactory("story-db-writer"));
+        readers = new ThreadPoolExecutor(DEFAULT_READER_THREADS, DEFAULT_READER_THREADS, 30L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(READER_QUEUE_CAPACITY), threadFactory("story-db-reader"));
+        readers.allowCoreThreadTimeOut(true);
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Runs a read-only task on the reader pool.
+     *
+     * @throws RejectedExecutionException when the reader queue is full
+     */
+    @NonNull
+    public Future<?> executeRead(@NonNull Runnable task) {
+        return submit(readers, task, "read");
+    }
+
+    /**
+     * Runs a task that modifies the database on the single writer thread.
+     */
+    @NonNull
+    public Future<?> executeWrite(@NonNull Runnable task) {
+        return submit(writer, task, "write");
+    }
+
+    /**
+     * Creates a channel where only the most recently started task is current.
+     */
+    @NonNull
+    public Sequence newSequence(@NonNull String name) {
+        return new Sequence(name);
+    }
+
+    /**
+     * Changes how many reads may run at once, between 1 and {@value #MAX_READER_THREADS}.
+     */
+    public synchronized void setReaderThreadCount(int count) {
+        int threads = Math.max(1, Math.min(MAX_READER_THREADS, count));
+        if (threads > readers.getMaximumPoolSize()) {
+            readers.setMaximumPoolSize(threads);
+            readers.setCorePoolSize(threads);
+        } else {
+            readers.setCorePoolSize(threads);
+            readers.setMaximumPoolSize(threads);
+        }
+    }
+
+    public int getReaderThreadCount() {
+        return readers.getMaximumPoolSize();
+    }
+
+    public int getQueueDepth() {
+        return writer.getQueue().size() + readers.getQueue().size();
+    }
+
+    public long getCompletedTaskCount() {
+        return completedTasks.get();
+    }
+
+    public long getAverageLatencyMs() {
+        long completed = completedTasks.get();
+        return completed > 0 ? TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.get() / completed) : 0;
+    }
+
+    public long getMaxLatencyMs() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    private Future<?> submit(ThreadPoolExecutor pool, Runnable task, String kind) {
+        long queuedAt = System.nanoTime();
+        FutureTask<Void> future = new FutureTask<>(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Uncaught error in database " + kind + " task", e);
+                throw e;
+            } finally {
+                recordLatency(kind, System.nanoTime() - queuedAt);
+            }
+        }, null);
+        pool.execute(future);
+        updateMax(maxQueueDepth, getQueueDepth());
+        return future;
+    }
+
+    private void recordLatency(String kind, long latencyNanos) {
+        long completed = completedTasks.incrementAndGet();
+        totalLatencyNanos.addAndGet(latencyNanos);
+        long max;
+        do {
+            max = maxLatencyNanos.get();
+        } while (latencyNanos > max && !maxLatencyNanos.compareAndSet(max, latencyNanos));
+
+        if (latencyNanos > SLOW_TASK_NANOS) {
+            Log.w(TAG, "Slow database " + kind + " task: " + TimeUnit.NANOSECONDS.toMillis(latencyNanos)
+                    + "ms (queue depth " + getQueueDepth() + ")");
+        }
+        if (completed % METRICS_LOG_INTERVAL == 0) {
+            Log.d(TAG, "Metrics: " + completed + " tasks, avg " + getAverageLatencyMs() + "ms, max "
+                    + getMaxLatencyMs() + "ms, queue depth " + getQueueDepth() + " (max " + maxQueueDepth.get() + ")");
+        }
+    }
+
+    private static void updateMax(AtomicInteger target, int value) {
+        int max;
+        do {
+            max = target.get();
+        } while (value > max && !target.compareAndSet(max, value));
+    }
+
+    /**
+     * A task that learns the sequence number it was started with, so it can check
+     * {@link Sequence#isCurrent(long)} before publishing its result.
+     */
+    public interface SequencedTask {
+        void run(long sequence);
+    }
+
+    /**
+     * Latest-wins channel for tasks such as dialog loads: each new task cancels the pending one
+     * and gets a higher sequence number.
+     */
+    public final class Sequence {
+        private final String name;
+        private final AtomicLong current = new AtomicLong();
+        private Future<?> pending;
+        private ThreadPoolExecutor pendingPool;
+
+        private Sequence(String name) {
+            this.name = name;
+        }
+
+        public long submitRead(@NonNull SequencedTask task) {
+            return submit(task, false);
+        }
+
+        public long submitWrite(@NonNull SequencedTask task) {
+            return submit(task, true);
+        }
+
+        /**
+         * @throws RejectedExecutionException when the queue is full; the previous task is still cancelled
+         */
+        private synchronized long submit(SequencedTask task, boolean write) {
+            long sequence = current.incrementAndGet();
+            cancelPending();
+            Runnable runnable = () -> {
+                if (isCurrent(sequence)) {
+                    task.run(sequence);
+                } else {
+                    Log.d(TAG, "Skipping stale " + name + " task #" + sequence);
+                }
+            };
+            ThreadPoolExecutor pool = write ? writer : readers;
+            try {
+                pending = DatabaseExecutor.this.submit(pool, runnable, write ? "write" : "read");
+            } catch (RejectedExecutionException e) {
+                Log.w(TAG, "Cannot start " + name + " task #" + sequence + ", queue depth " + getQueueDepth());
+                throw e;
+            }
+            pendingPool = pool;
+            return sequence;
+        }
+
+        public boolean isCurrent(long sequence) {
+            return current.get() == sequence;
+        }
+
+        /**
+         * Invalidates and cancels whatever task is pending on this channel.
+         */
+        public synchronized void cancel() {
+            current.incrementAndGet();
+            cancelPending();
+        }
+
+        private void cancelPending() {
+            if (pending != null && !pending.isDone()) {
+                // Not interrupting: SQLite calls do not react well to thread interrupts
+                pending.cancel(false);
+                // A cancelled task keeps its queue slot until a thread takes it; free it now
+                if (pending instanceof Runnable) {
+                    pendingPool.remove((Runnable) pending);
+                }
+            }
+            pending = null;
+            pendingPool = null;
+        }
+    }
+}
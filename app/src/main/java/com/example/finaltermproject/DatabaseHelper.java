@@ -2,66 +2,48 @@ package com.example.finaltermproject;
 
 import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.content.ContentValues;
 import android.database.Cursor;
-import android.database.SQLException;
+import android.os.Build;
 import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.nio.channels.FileChannel;
 import java.io.IOException;
 import java.io.FileNotFoundException;
+import java.security.GeneralSecurityException;
 import java.util.Arrays;
-import java.util.zip.GZIPOutputStream;
-import java.util.zip.GZIPInputStream;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String TAG = "DatabaseHelper";
     private static final String DB_NAME = "game.db";
-    private static final int DB_VERSION = 6;  // Updated to match existing database version
-
-    // Database creation SQL statements
-    private static final String CREATE_USERS_TABLE =
+    private static final int DB_VERSION = 10;  // Version 10: progress on dialogs the shipped story lacks is reset
+    private static final int START_DIALOG_ID = 1;
+    private static final String BACKUP_DIR = "backups";
+    private static final String BACKUP_CATALOG = "catalog";
+    private static final String RESTORE_SUFFIX = "-restore";
+    private static final long IDLE_CONNECTION_TIMEOUT_MS = 30_000;
+    private static final long WAL_SIZE_LIMIT_BYTES = 1024 * 1024;
+
+    // Database creation SQL statements. No secondary indexes: username lookups use the index
+    // behind its UNIQUE constraint, and progress rows are stored by user_id, its rowid.
+    static final String CREATE_USERS_TABLE =
             "CREATE TABLE users (id INTEGER PRIMARY KEY AUTOINCREMENT, username TEXT NOT NULL UNIQUE);";
-    private static final String CREATE_PROGRESS_TABLE =
-            "CREATE TABLE progress (id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                    "user_id INTEGER NOT NULL, current_dialog_id INTEGER NOT NULL, " +
+    static final String CREATE_PROGRESS_TABLE =
+            "CREATE TABLE progress (user_id INTEGER PRIMARY KEY, " +
+                    "current_dialog_id INTEGER NOT NULL, " +
                     "last_updated INTEGER DEFAULT 0, " +
-                    "UNIQUE(user_id), " +
-                    "FOREIGN KEY(user_id) REFERENCES users(id) ON DELETE CASCADE, " +
-                    "FOREIGN KEY(current_dialog_id) REFERENCES dialogs(id) ON DELETE RESTRICT);";
-    private static final String CREATE_DIALOGS_TABLE =
-            "CREATE TABLE dialogs (id INTEGER PRIMARY KEY AUTOINCREMENT, text TEXT NOT NULL, " +
-                    "created_at INTEGER DEFAULT 0);";
-    private static final String CREATE_CHOICES_TABLE =
-            "CREATE TABLE choices (id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                    "dialog_id INTEGER NOT NULL, " +
-                    "choice_text TEXT NOT NULL, " +
-                    "next_dialog_id INTEGER NOT NULL, " +
-                    "created_at INTEGER DEFAULT 0, " +
-                    "FOREIGN KEY(dialog_id) REFERENCES dialogs(id) ON DELETE CASCADE, " +
-                    "FOREIGN KEY(next_dialog_id) REFERENCES dialogs(id) ON DELETE RESTRICT);";
-
-    // Add indexes for better performance
-    private static final String[] CREATE_INDEXES = {
-            "CREATE INDEX IF NOT EXISTS idx_users_username ON users(username);",
-            "CREATE INDEX IF NOT EXISTS idx_progress_user_id ON progress(user_id);",
-            "CREATE INDEX IF NOT EXISTS idx_progress_dialog_id ON progress(current_dialog_id);",
-            "CREATE INDEX IF NOT EXISTS idx_choices_dialog_id ON choices(dialog_id);",
-            "CREATE INDEX IF NOT EXISTS idx_choices_next_dialog_id ON choices(next_dialog_id);"
-    };
+                    "FOREIGN KEY(user_id) REFERENCES users(id) ON DELETE CASCADE);";
 
     // Version 2 upgrade statements
     private static final String[] VERSION_2_UPGRADES = {
@@ -77,10 +59,66 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         "CREATE INDEX IF NOT EXISTS idx_choices_created_at ON choices(created_at);"
     };
 
+    // Version 7 upgrade statements
+    private static final String[] VERSION_7_UPGRADES = {
+            "ALTER TABLE dialogs ADD COLUMN character_key TEXT DEFAULT NULL;"
+    };
+
+    // Version 8 upgrade statements: progress loses its foreign key to dialogs, which move to story.db
+    private static final String[] VERSION_8_UPGRADES = {
+            "CREATE TABLE progress_v8 (id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "user_id INTEGER NOT NULL, current_dialog_id INTEGER NOT NULL, " +
+                    "last_updated INTEGER DEFAULT 0, " +
+                    "UNIQUE(user_id), " +
+                    "FOREIGN KEY(user_id) REFERENCES users(id) ON DELETE CASCADE);",
+            "INSERT INTO progress_v8 (id, user_id, current_dialog_id, last_updated) " +
+                    "SELECT id, user_id, current_dialog_id, last_updated FROM progress;",
+            "DROP TABLE progress;",
+            "ALTER TABLE progress_v8 RENAME TO progress;",
+            "DROP TABLE choices;",
+            "DROP TABLE dialogs;"
+    };
+
+    // Version 9 upgrade statements: progress is rebuilt keyed by user_id, which drops its surrogate
+    // id, the AUTOINCREMENT bookkeeping and the indexes on user_id, current_dialog_id and
+    // last_updated; idx_users_username duplicated the UNIQUE index on username
+    private static final String[] VERSION_9_UPGRADES = {
+            "DROP INDEX IF EXISTS idx_users_username;",
+            CREATE_PROGRESS_TABLE.replace("CREATE TABLE progress", "CREATE TABLE progress_v9"),
+            "INSERT INTO progress_v9 (user_id, current_dialog_id, last_updated) " +
+                    "SELECT user_id, current_dialog_id, last_updated FROM progress;",
+            "DROP TABLE progress;",
+            "ALTER TABLE progress_v9 RENAME TO progress;"
+    };
+
     // Singleton implementation using atomic reference
     private static final AtomicReference<DatabaseHelper> instance = new AtomicReference<>();
     private final Context applicationContext;  // Store application context instead of WeakReference
 
+    // Read-only dialogs and choices, kept apart from the player data in game.db
+    private final StoryDatabase storyDatabase;
+
+    // Compiled copy of the dialogs/choices tables, loaded on first use
+    private volatile StoryGraph storyGraph;
+    private volatile StoryReachability storyReachability;
+
+    // Progress is recorded here first and written to the progress table in batches
+    private final ProgressJournal progressJournal;
+
+    // Last integrity verdict and the tables written since
+    private final IntegrityCache integrityCache = new IntegrityCache();
+    private final StatementCache statements = new StatementCache();
+
+    // Index of the backup generations, loaded on first use
+    private BackupCatalog backupCatalog;
+
+    // Player-visible changes to users and progress, so backups can be skipped when nothing changed
+    private final AtomicLong progressChanges = new AtomicLong();
+    private volatile long lastProgressChangeMillis = 0;
+
+    // Set when an upgrade dropped tables, so the freed pages are reclaimed once it commits
+    private boolean vacuumAfterUpgrade = false;
+
     public static synchronized DatabaseHelper getInstance(@NonNull Context context) {
         DatabaseHelper current = instance.get();
         if (current == null) {
@@ -94,7 +132,15 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
     private DatabaseHelper(Context context) {
         super(context, DB_NAME, null, DB_VERSION);
+        // Readers get their own connections and no longer wait for progress writes
+        setWriteAheadLoggingEnabled(true);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+            setIdleConnectionTimeout(IDLE_CONNECTION_TIMEOUT_MS);
+        }
         this.applicationContext = context.getApplicationContext();
+        this.storyDatabase = new StoryDatabase(applicationContext, statements);
+        this.progressJournal = new ProgressJournal(applicationContext.getFilesDir(),
+                this::writeUserProgress, DatabaseExecutor.getInstance());
     }
 
     @Override
@@ -107,956 +153,12 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             db.execSQL("PRAGMA foreign_keys = ON;");
             Log.d(TAG, "Foreign key support enabled");
 
-            // Create tables in correct order
+            // Create tables in correct order; the story itself is installed in story.db on first use
             db.execSQL(CREATE_USERS_TABLE);
             Log.d(TAG, "Users table created");
-            
-            db.execSQL(CREATE_DIALOGS_TABLE);
-            Log.d(TAG, "Dialogs table created");
-            
+
             db.execSQL(CREATE_PROGRESS_TABLE);
             Log.d(TAG, "Progress table created");
-            
-            db.execSQL(CREATE_CHOICES_TABLE);
-            Log.d(TAG, "Choices table created");
-
-            // Create indexes
-            for (String index : CREATE_INDEXES) {
-                db.execSQL(index);
-            }
-            Log.d(TAG, "All indexes created");
-
-            // Create initial dialog and choices
-            long currentTime = System.currentTimeMillis();
-            
-            try {
-                // Create initial dialog
-                Log.d(TAG, "Creating initial dialog...");
-                ContentValues dialogValues = new ContentValues();
-                dialogValues.put("id", 1);
-                dialogValues.put("text", "Welcome to Path of Choices! Your journey begins here.");
-                dialogValues.put("created_at", currentTime);
-                long dialogId = db.insert("dialogs", null, dialogValues);
-                Log.d(TAG, "Initial dialog created with ID: " + dialogId);
-
-                // Create subsequent dialogs
-                Log.d(TAG, "Creating subsequent dialogs...");
-                ContentValues dialog11 = new ContentValues();
-                dialog11.put("id", 11);
-                dialog11.put("text", "You decide to help Viren. His eyes gleam with approval as you step forward.");
-                dialog11.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog11);
-
-                ContentValues dialog12 = new ContentValues();
-                dialog12.put("id", 12);
-                dialog12.put("text", "The coastal winds beckon you. You feel the pull of the mysterious waters.");
-                dialog12.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog12);
-
-                ContentValues dialog13 = new ContentValues();
-                dialog13.put("id", 13);
-                dialog13.put("text", "The courthouse is packed as Lady Selene's trial begins.");
-                dialog13.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog13);
-
-                // Create dialog 14, 15, and 16 for the choices from dialog 13
-                ContentValues dialog14 = new ContentValues();
-                dialog14.put("id", 14);
-                dialog14.put("text", "You speak up in Lady Selene's defense, citing her years of service to the realm.");
-                dialog14.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog14);
-
-                ContentValues dialog15 = new ContentValues();
-                dialog15.put("id", 15);
-                dialog15.put("text", "You remain silent, observing the proceedings carefully.");
-                dialog15.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog15);
-
-                ContentValues dialog16 = new ContentValues();
-                dialog16.put("id", 16);
-                dialog16.put("text", "You present evidence against Lady Selene, supporting the prosecution.");
-                dialog16.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog16);
-
-                // Create dialog 17, 18, and 19 for the choices from dialog 12
-                ContentValues dialog17 = new ContentValues();
-                dialog17.put("id", 17);
-                dialog17.put("text", "You dive into the depths, following the strange underwater lights.");
-                dialog17.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog17);
-
-                ContentValues dialog18 = new ContentValues();
-                dialog18.put("id", 18);
-                dialog18.put("text", "You search the beach for clues about the water's strange behavior.");
-                dialog18.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog18);
-
-                ContentValues dialog19 = new ContentValues();
-                dialog19.put("id", 19);
-                dialog19.put("text", "You seek out the local fishermen to gather information about recent events.");
-                dialog19.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog19);
-
-                // Create dialog 20, 21, and 22 for the choices from dialog 11
-                ContentValues dialog20 = new ContentValues();
-                dialog20.put("id", 20);
-                dialog20.put("text", "You examine the ancient scrolls in Viren's study, searching for clues about the prophecy.");
-                dialog20.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog20);
-
-                ContentValues dialog21 = new ContentValues();
-                dialog21.put("id", 21);
-                dialog21.put("text", "You visit the temple ruins where the prophecy was first discovered.");
-                dialog21.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog21);
-
-                ContentValues dialog22 = new ContentValues();
-                dialog22.put("id", 22);
-                dialog22.put("text", "You question the temple priests about their interpretation of the prophecy.");
-                dialog22.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog22);
-
-                // Add new dialogs for Viren's prophecy branch (20, 21, 22)
-                ContentValues dialog23 = new ContentValues();
-                dialog23.put("id", 23);
-                dialog23.put("text", "The ancient scrolls reveal a hidden pattern. Symbols of water, fire, and earth intertwine with mentions of a great upheaval.");
-                dialog23.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog23);
-
-                ContentValues dialog24 = new ContentValues();
-                dialog24.put("id", 24);
-                dialog24.put("text", "Among the temple ruins, you discover an untouched chamber. Ancient murals depict a ritual involving three sacred artifacts.");
-                dialog24.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog24);
-
-                ContentValues dialog25 = new ContentValues();
-                dialog25.put("id", 25);
-                dialog25.put("text", "The priests speak of a guardian chosen by the elements themselves. They believe the time of choosing is near.");
-                dialog25.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog25);
-
-                // Add new dialogs for coastal mystery branch (17, 18, 19)
-                ContentValues dialog26 = new ContentValues();
-                dialog26.put("id", 26);
-                dialog26.put("text", "Beneath the waves, you find an ancient underwater temple. Strange glyphs pulse with an ethereal blue light.");
-                dialog26.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog26);
-
-                ContentValues dialog27 = new ContentValues();
-                dialog27.put("id", 27);
-                dialog27.put("text", "Your beach investigation reveals peculiar crystals that seem to resonate with the tides. They form a pattern pointing to a hidden cave.");
-                dialog27.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog27);
-
-                ContentValues dialog28 = new ContentValues();
-                dialog28.put("id", 28);
-                dialog28.put("text", "The fishermen tell tales of ancient sea people and a pact broken long ago. They speak of a way to restore balance.");
-                dialog28.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog28);
-
-                // Add new dialogs for Lady Selene's trial branch (14, 15, 16)
-                ContentValues dialog29 = new ContentValues();
-                dialog29.put("id", 29);
-                dialog29.put("text", "Your defense of Lady Selene reveals new evidence. She appears to be protecting an ancient secret rather than committing treason.");
-                dialog29.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog29);
-
-                ContentValues dialog30 = new ContentValues();
-                dialog30.put("id", 30);
-                dialog30.put("text", "Your careful observation uncovers a conspiracy. Someone is manipulating evidence to frame Lady Selene.");
-                dialog30.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog30);
-
-                ContentValues dialog31 = new ContentValues();
-                dialog31.put("id", 31);
-                dialog31.put("text", "The evidence against Lady Selene leads to a shocking discovery about her true identity and her connection to the realm's ancient magic.");
-                dialog31.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog31);
-
-                // Final convergence dialogs
-                ContentValues dialog32 = new ContentValues();
-                dialog32.put("id", 32);
-                dialog32.put("text", "The prophecy, the sea's unrest, and Lady Selene's secret are all connected. You stand at the threshold of a momentous decision.");
-                dialog32.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog32);
-
-                ContentValues dialog33 = new ContentValues();
-                dialog33.put("id", 33);
-                dialog33.put("text", "You choose to embrace the ancient power, becoming the prophesied guardian. The realm enters a new age of harmony.");
-                dialog33.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog33);
-
-                ContentValues dialog34 = new ContentValues();
-                dialog34.put("id", 34);
-                dialog34.put("text", "You reject the ancient power, choosing to forge a new path. The old ways fade, but the realm finds strength in change.");
-                dialog34.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog34);
-
-                // Create initial choices
-                Log.d(TAG, "Creating choices...");
-                ContentValues choice1 = new ContentValues();
-                choice1.put("dialog_id", 1);
-                choice1.put("choice_text", "Swear your aid to Viren and help investigate the prophecy");
-                choice1.put("next_dialog_id", 11);
-                choice1.put("created_at", currentTime);
-                long choiceId1 = db.insert("choices", null, choice1);
-                Log.d(TAG, "First choice created with ID: " + choiceId1);
-
-                ContentValues choice2 = new ContentValues();
-                choice2.put("dialog_id", 1);
-                choice2.put("choice_text", "Slip away to the coast and seek the source of the water's unrest");
-                choice2.put("next_dialog_id", 12);
-                choice2.put("created_at", currentTime);
-                long choiceId2 = db.insert("choices", null, choice2);
-                Log.d(TAG, "Second choice created with ID: " + choiceId2);
-
-                ContentValues choice3 = new ContentValues();
-                choice3.put("dialog_id", 1);
-                choice3.put("choice_text", "Attend Lady Selene's public trial, hoping to read her intentions");
-                choice3.put("next_dialog_id", 13);
-                choice3.put("created_at", currentTime);
-                long choiceId3 = db.insert("choices", null, choice3);
-                Log.d(TAG, "Third choice created with ID: " + choiceId3);
-
-                // Create choices for dialog 11
-                ContentValues choice11_1 = new ContentValues();
-                choice11_1.put("dialog_id", 11);
-                choice11_1.put("choice_text", "Study the ancient scrolls in Viren's library");
-                choice11_1.put("next_dialog_id", 20);
-                choice11_1.put("created_at", currentTime);
-                long choiceId11_1 = db.insert("choices", null, choice11_1);
-                Log.d(TAG, "Dialog 11 first choice created with ID: " + choiceId11_1);
-
-                ContentValues choice11_2 = new ContentValues();
-                choice11_2.put("dialog_id", 11);
-                choice11_2.put("choice_text", "Investigate the temple ruins");
-                choice11_2.put("next_dialog_id", 21);
-                choice11_2.put("created_at", currentTime);
-                long choiceId11_2 = db.insert("choices", null, choice11_2);
-                Log.d(TAG, "Dialog 11 second choice created with ID: " + choiceId11_2);
-
-                ContentValues choice11_3 = new ContentValues();
-                choice11_3.put("dialog_id", 11);
-                choice11_3.put("choice_text", "Consult the temple priests");
-                choice11_3.put("next_dialog_id", 22);
-                choice11_3.put("created_at", currentTime);
-                long choiceId11_3 = db.insert("choices", null, choice11_3);
-                Log.d(TAG, "Dialog 11 third choice created with ID: " + choiceId11_3);
-
-                // Create choices for dialog 12
-                ContentValues choice12_1 = new ContentValues();
-                choice12_1.put("dialog_id", 12);
-                choice12_1.put("choice_text", "Dive into the mysterious waters");
-                choice12_1.put("next_dialog_id", 17);
-                choice12_1.put("created_at", currentTime);
-                long choiceId12_1 = db.insert("choices", null, choice12_1);
-                Log.d(TAG, "Dialog 12 first choice created with ID: " + choiceId12_1);
-
-                ContentValues choice12_2 = new ContentValues();
-                choice12_2.put("dialog_id", 12);
-                choice12_2.put("choice_text", "Search the beach for clues");
-                choice12_2.put("next_dialog_id", 18);
-                choice12_2.put("created_at", currentTime);
-                long choiceId12_2 = db.insert("choices", null, choice12_2);
-                Log.d(TAG, "Dialog 12 second choice created with ID: " + choiceId12_2);
-
-                ContentValues choice12_3 = new ContentValues();
-                choice12_3.put("dialog_id", 12);
-                choice12_3.put("choice_text", "Talk to the local fishermen");
-                choice12_3.put("next_dialog_id", 19);
-                choice12_3.put("created_at", currentTime);
-                long choiceId12_3 = db.insert("choices", null, choice12_3);
-                Log.d(TAG, "Dialog 12 third choice created with ID: " + choiceId12_3);
-
-                // Create choices for dialog 13
-                ContentValues choice13_1 = new ContentValues();
-                choice13_1.put("dialog_id", 13);
-                choice13_1.put("choice_text", "Speak in Lady Selene's defense");
-                choice13_1.put("next_dialog_id", 14);
-                choice13_1.put("created_at", currentTime);
-                long choiceId13_1 = db.insert("choices", null, choice13_1);
-                Log.d(TAG, "Dialog 13 first choice created with ID: " + choiceId13_1);
-
-                ContentValues choice13_2 = new ContentValues();
-                choice13_2.put("dialog_id", 13);
-                choice13_2.put("choice_text", "Observe silently and gather information");
-                choice13_2.put("next_dialog_id", 15);
-                choice13_2.put("created_at", currentTime);
-                long choiceId13_2 = db.insert("choices", null, choice13_2);
-                Log.d(TAG, "Dialog 13 second choice created with ID: " + choiceId13_2);
-
-                ContentValues choice13_3 = new ContentValues();
-                choice13_3.put("dialog_id", 13);
-                choice13_3.put("choice_text", "Present evidence against Lady Selene");
-                choice13_3.put("next_dialog_id", 16);
-                choice13_3.put("created_at", currentTime);
-                long choiceId13_3 = db.insert("choices", null, choice13_3);
-                Log.d(TAG, "Dialog 13 third choice created with ID: " + choiceId13_3);
-
-                // Add choices for dialog 20 (Viren's scrolls)
-                ContentValues choice20_1 = new ContentValues();
-                choice20_1.put("dialog_id", 20);
-                choice20_1.put("choice_text", "Study the elemental symbols more closely");
-                choice20_1.put("next_dialog_id", 23);
-                choice20_1.put("created_at", currentTime);
-                db.insert("choices", null, choice20_1);
-
-                // Add choices for dialog 21 (Temple ruins)
-                ContentValues choice21_1 = new ContentValues();
-                choice21_1.put("dialog_id", 21);
-                choice21_1.put("choice_text", "Explore the hidden chamber");
-                choice21_1.put("next_dialog_id", 24);
-                choice21_1.put("created_at", currentTime);
-                db.insert("choices", null, choice21_1);
-
-                // Add choices for dialog 22 (Temple priests)
-                ContentValues choice22_1 = new ContentValues();
-                choice22_1.put("dialog_id", 22);
-                choice22_1.put("choice_text", "Learn more about the prophecied guardian");
-                choice22_1.put("next_dialog_id", 25);
-                choice22_1.put("created_at", currentTime);
-                db.insert("choices", null, choice22_1);
-
-                // Add choices for dialog 17 (Underwater)
-                ContentValues choice17_1 = new ContentValues();
-                choice17_1.put("dialog_id", 17);
-                choice17_1.put("choice_text", "Investigate the underwater temple");
-                choice17_1.put("next_dialog_id", 26);
-                choice17_1.put("created_at", currentTime);
-                db.insert("choices", null, choice17_1);
-
-                // Add choices for dialog 18 (Beach search)
-                ContentValues choice18_1 = new ContentValues();
-                choice18_1.put("dialog_id", 18);
-                choice18_1.put("choice_text", "Follow the crystal pattern");
-                choice18_1.put("next_dialog_id", 27);
-                choice18_1.put("created_at", currentTime);
-                db.insert("choices", null, choice18_1);
-
-                // Add choices for dialog 19 (Fishermen)
-                ContentValues choice19_1 = new ContentValues();
-                choice19_1.put("dialog_id", 19);
-                choice19_1.put("choice_text", "Learn about the ancient pact");
-                choice19_1.put("next_dialog_id", 28);
-                choice19_1.put("created_at", currentTime);
-                db.insert("choices", null, choice19_1);
-
-                // Add choices for dialog 14 (Defend Selene)
-                ContentValues choice14_1 = new ContentValues();
-                choice14_1.put("dialog_id", 14);
-                choice14_1.put("choice_text", "Investigate the ancient secret");
-                choice14_1.put("next_dialog_id", 29);
-                choice14_1.put("created_at", currentTime);
-                db.insert("choices", null, choice14_1);
-
-                // Add choices for dialog 15 (Silent observation)
-                ContentValues choice15_1 = new ContentValues();
-                choice15_1.put("dialog_id", 15);
-                choice15_1.put("choice_text", "Uncover the conspiracy");
-                choice15_1.put("next_dialog_id", 30);
-                choice15_1.put("created_at", currentTime);
-                db.insert("choices", null, choice15_1);
-
-                // Add choices for dialog 16 (Present evidence)
-                ContentValues choice16_1 = new ContentValues();
-                choice16_1.put("dialog_id", 16);
-                choice16_1.put("choice_text", "Reveal Lady Selene's true identity");
-                choice16_1.put("next_dialog_id", 31);
-                choice16_1.put("created_at", currentTime);
-                db.insert("choices", null, choice16_1);
-
-                // Add convergence choices from each branch to the final choice
-                ContentValues choice23_1 = new ContentValues();
-                choice23_1.put("dialog_id", 23);
-                choice23_1.put("choice_text", "Connect the prophecy to recent events");
-                choice23_1.put("next_dialog_id", 32);
-                choice23_1.put("created_at", currentTime);
-                db.insert("choices", null, choice23_1);
-
-                ContentValues choice24_1 = new ContentValues();
-                choice24_1.put("dialog_id", 24);
-                choice24_1.put("choice_text", "Understand the ritual's significance");
-                choice24_1.put("next_dialog_id", 32);
-                choice24_1.put("created_at", currentTime);
-                db.insert("choices", null, choice24_1);
-
-                ContentValues choice25_1 = new ContentValues();
-                choice25_1.put("dialog_id", 25);
-                choice25_1.put("choice_text", "Consider your role in the prophecy");
-                choice25_1.put("next_dialog_id", 32);
-                choice25_1.put("created_at", currentTime);
-                db.insert("choices", null, choice25_1);
-
-                ContentValues choice26_1 = new ContentValues();
-                choice26_1.put("dialog_id", 26);
-                choice26_1.put("choice_text", "Decipher the ancient glyphs");
-                choice26_1.put("next_dialog_id", 32);
-                choice26_1.put("created_at", currentTime);
-                db.insert("choices", null, choice26_1);
-
-                ContentValues choice27_1 = new ContentValues();
-                choice27_1.put("dialog_id", 27);
-                choice27_1.put("choice_text", "Connect the crystal's power to the prophecy");
-                choice27_1.put("next_dialog_id", 32);
-                choice27_1.put("created_at", currentTime);
-                db.insert("choices", null, choice27_1);
-
-                ContentValues choice28_1 = new ContentValues();
-                choice28_1.put("dialog_id", 28);
-                choice28_1.put("choice_text", "Consider restoring the ancient pact");
-                choice28_1.put("next_dialog_id", 32);
-                choice28_1.put("created_at", currentTime);
-                db.insert("choices", null, choice28_1);
-
-                ContentValues choice29_1 = new ContentValues();
-                choice29_1.put("dialog_id", 29);
-                choice29_1.put("choice_text", "Connect Lady Selene to the prophecy");
-                choice29_1.put("next_dialog_id", 32);
-                choice29_1.put("created_at", currentTime);
-                db.insert("choices", null, choice29_1);
-
-                ContentValues choice30_1 = new ContentValues();
-                choice30_1.put("dialog_id", 30);
-                choice30_1.put("choice_text", "Reveal the truth about the conspiracy");
-                choice30_1.put("next_dialog_id", 32);
-                choice30_1.put("created_at", currentTime);
-                db.insert("choices", null, choice30_1);
-
-                ContentValues choice31_1 = new ContentValues();
-                choice31_1.put("dialog_id", 31);
-                choice31_1.put("choice_text", "Understand Lady Selene's role in the prophecy");
-                choice31_1.put("next_dialog_id", 32);
-                choice31_1.put("created_at", currentTime);
-                db.insert("choices", null, choice31_1);
-
-                // Final choices
-                ContentValues choice32_1 = new ContentValues();
-                choice32_1.put("dialog_id", 32);
-                choice32_1.put("choice_text", "Embrace the ancient power and become the guardian");
-                choice32_1.put("next_dialog_id", 33);
-                choice32_1.put("created_at", currentTime);
-                db.insert("choices", null, choice32_1);
-
-                ContentValues choice32_2 = new ContentValues();
-                choice32_2.put("dialog_id", 32);
-                choice32_2.put("choice_text", "Reject the ancient power and forge a new path");
-                choice32_2.put("next_dialog_id", 34);
-                choice32_2.put("created_at", currentTime);
-                db.insert("choices", null, choice32_2);
-
-                // Add choices for dialog 33 (Embracing the power ending)
-                ContentValues choice33_1 = new ContentValues();
-                choice33_1.put("dialog_id", 33);
-                choice33_1.put("choice_text", "Begin your journey as the realm's guardian");
-                choice33_1.put("next_dialog_id", 1);
-                choice33_1.put("created_at", currentTime);
-                db.insert("choices", null, choice33_1);
-
-                ContentValues choice33_2 = new ContentValues();
-                choice33_2.put("dialog_id", 33);
-                choice33_2.put("choice_text", "Start a new story");
-                choice33_2.put("next_dialog_id", 1);
-                choice33_2.put("created_at", currentTime);
-                db.insert("choices", null, choice33_2);
-
-                // Add choices for dialog 34 (Rejecting the power ending)
-                ContentValues choice34_1 = new ContentValues();
-                choice34_1.put("dialog_id", 34);
-                choice34_1.put("choice_text", "Reject the ancient power and forge a new path");
-                choice34_1.put("next_dialog_id", 1);
-                choice34_1.put("created_at", currentTime);
-                db.insert("choices", null, choice34_1);
-
-                // Add pre-ending dialogs
-                ContentValues dialog301 = new ContentValues();
-                dialog301.put("id", 301);
-                dialog301.put("text", "The city is in chaos. Your actions have led to this moment of crisis.");
-                dialog301.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog301);
-
-                ContentValues dialog302 = new ContentValues();
-                dialog302.put("id", 302);
-                dialog302.put("text", "Time itself bends around you. Multiple realities converge at this point.");
-                dialog302.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog302);
-
-                ContentValues dialog401 = new ContentValues();
-                dialog401.put("id", 401);
-                dialog401.put("text", "With newfound power, you must decide how to shape justice in this world.");
-                dialog401.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog401);
-
-                ContentValues dialog402 = new ContentValues();
-                dialog402.put("id", 402);
-                dialog402.put("text", "The boundaries between worlds grow thin. Your choice will determine their fate.");
-                dialog402.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog402);
-
-                ContentValues dialog403 = new ContentValues();
-                dialog403.put("id", 403);
-                dialog403.put("text", "Reality itself awaits your decision. The power to reshape existence lies in your hands.");
-                dialog403.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog403);
-
-                ContentValues dialog404 = new ContentValues();
-                dialog404.put("id", 404);
-                dialog404.put("text", "Time fragments spread before you like a shattered mirror. Each shard shows a different path.");
-                dialog404.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog404);
-
-                // Add ending dialogs
-                ContentValues dialog501 = new ContentValues();
-                dialog501.put("id", 501);
-                dialog501.put("text", "**Ending 1: The Sovereign of Rain**\n\nYou have become the Sovereign of Rain, a being of immense power and responsibility. The world bows to your justice, and the waters of change flow according to your will.");
-                dialog501.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog501);
-
-                ContentValues dialog502 = new ContentValues();
-                dialog502.put("id", 502);
-                dialog502.put("text", "**Ending 2: The Hidden Verse**\n\nYou have discovered the Hidden Verse, a secret truth that changes everything. Your knowledge reshapes the world in subtle but profound ways.");
-                dialog502.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog502);
-
-                ContentValues dialog503 = new ContentValues();
-                dialog503.put("id", 503);
-                dialog503.put("text", "**Ending 3: Judgment Broken**\n\nThe old order has crumbled. In breaking the chains of judgment, you have set both justice and chaos free. The world must now find its own balance.");
-                dialog503.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog503);
-
-                ContentValues dialog504 = new ContentValues();
-                dialog504.put("id", 504);
-                dialog504.put("text", "**Ending 4: Floodlight Reborn**\n\nThrough the waters of change, you emerge transformed. The light of truth shines anew, and with it, hope for a different future.");
-                dialog504.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog504);
-
-                // Add choices for pre-ending dialogs
-                ContentValues choice301_1 = new ContentValues();
-                choice301_1.put("dialog_id", 301);
-                choice301_1.put("choice_text", "Take control and calm the people");
-                choice301_1.put("next_dialog_id", 401);
-                choice301_1.put("created_at", currentTime);
-                db.insert("choices", null, choice301_1);
-
-                ContentValues choice301_2 = new ContentValues();
-                choice301_2.put("dialog_id", 301);
-                choice301_2.put("choice_text", "Let the chaos run its course");
-                choice301_2.put("next_dialog_id", 402);
-                choice301_2.put("created_at", currentTime);
-                db.insert("choices", null, choice301_2);
-
-                ContentValues choice302_1 = new ContentValues();
-                choice302_1.put("dialog_id", 302);
-                choice302_1.put("choice_text", "Rewrite the current cycle");
-                choice302_1.put("next_dialog_id", 403);
-                choice302_1.put("created_at", currentTime);
-                db.insert("choices", null, choice302_1);
-
-                ContentValues choice302_2 = new ContentValues();
-                choice302_2.put("dialog_id", 302);
-                choice302_2.put("choice_text", "Anchor yourself in one of the past realities");
-                choice302_2.put("next_dialog_id", 404);
-                choice302_2.put("created_at", currentTime);
-                db.insert("choices", null, choice302_2);
-
-                // Add choices for final decision dialogs
-                ContentValues choice401_1 = new ContentValues();
-                choice401_1.put("dialog_id", 401);
-                choice401_1.put("choice_text", "Spread this new justice across the world");
-                choice401_1.put("next_dialog_id", 501);
-                choice401_1.put("created_at", currentTime);
-                db.insert("choices", null, choice401_1);
-
-                ContentValues choice401_2 = new ContentValues();
-                choice401_2.put("dialog_id", 401);
-                choice401_2.put("choice_text", "Keep it local, protecting Caelondria");
-                choice401_2.put("next_dialog_id", 502);
-                choice401_2.put("created_at", currentTime);
-                db.insert("choices", null, choice401_2);
-
-                ContentValues choice402_1 = new ContentValues();
-                choice402_1.put("dialog_id", 402);
-                choice402_1.put("choice_text", "Let the worlds merge into one");
-                choice402_1.put("next_dialog_id", 503);
-                choice402_1.put("created_at", currentTime);
-                db.insert("choices", null, choice402_1);
-
-                ContentValues choice402_2 = new ContentValues();
-                choice402_2.put("dialog_id", 402);
-                choice402_2.put("choice_text", "Sever the link and accept your rewritten truth");
-                choice402_2.put("next_dialog_id", 504);
-                choice402_2.put("created_at", currentTime);
-                db.insert("choices", null, choice402_2);
-
-                ContentValues choice403_1 = new ContentValues();
-                choice403_1.put("dialog_id", 403);
-                choice403_1.put("choice_text", "Create a perfect world");
-                choice403_1.put("next_dialog_id", 501);
-                choice403_1.put("created_at", currentTime);
-                db.insert("choices", null, choice403_1);
-
-                ContentValues choice403_2 = new ContentValues();
-                choice403_2.put("dialog_id", 403);
-                choice403_2.put("choice_text", "Preserve the imperfect truth");
-                choice403_2.put("next_dialog_id", 502);
-                choice403_2.put("created_at", currentTime);
-                db.insert("choices", null, choice403_2);
-
-                ContentValues choice404_1 = new ContentValues();
-                choice404_1.put("dialog_id", 404);
-                choice404_1.put("choice_text", "Return to your original time");
-                choice404_1.put("next_dialog_id", 503);
-                choice404_1.put("created_at", currentTime);
-                db.insert("choices", null, choice404_1);
-
-                ContentValues choice404_2 = new ContentValues();
-                choice404_2.put("dialog_id", 404);
-                choice404_2.put("choice_text", "Stay in the chosen past");
-                choice404_2.put("next_dialog_id", 504);
-                choice404_2.put("created_at", currentTime);
-                db.insert("choices", null, choice404_2);
-
-                // Add choices for ending 501 (Sovereign of Rain)
-                ContentValues choice501_1 = new ContentValues();
-                choice501_1.put("dialog_id", 501);
-                choice501_1.put("choice_text", "Begin a new journey");
-                choice501_1.put("next_dialog_id", 1);
-                choice501_1.put("created_at", currentTime);
-                db.insert("choices", null, choice501_1);
-
-                ContentValues choice501_2 = new ContentValues();
-                choice501_2.put("dialog_id", 501);
-                choice501_2.put("choice_text", "Reflect on your choices");
-                choice501_2.put("next_dialog_id", 1);
-                choice501_2.put("created_at", currentTime);
-                db.insert("choices", null, choice501_2);
-
-                // Add choices for ending 502 (Hidden Verse)
-                ContentValues choice502_1 = new ContentValues();
-                choice502_1.put("dialog_id", 502);
-                choice502_1.put("choice_text", "Start another story");
-                choice502_1.put("next_dialog_id", 1);
-                choice502_1.put("created_at", currentTime);
-                db.insert("choices", null, choice502_1);
-
-                ContentValues choice502_2 = new ContentValues();
-                choice502_2.put("dialog_id", 502);
-                choice502_2.put("choice_text", "Contemplate the hidden verse");
-                choice502_2.put("next_dialog_id", 1);
-                choice502_2.put("created_at", currentTime);
-                db.insert("choices", null, choice502_2);
-
-                // Add choices for ending 503 (Judgment Broken)
-                ContentValues choice503_1 = new ContentValues();
-                choice503_1.put("dialog_id", 503);
-                choice503_1.put("choice_text", "Begin anew");
-                choice503_1.put("next_dialog_id", 1);
-                choice503_1.put("created_at", currentTime);
-                db.insert("choices", null, choice503_1);
-
-                ContentValues choice503_2 = new ContentValues();
-                choice503_2.put("dialog_id", 503);
-                choice503_2.put("choice_text", "Ponder the broken judgment");
-                choice503_2.put("next_dialog_id", 1);
-                choice503_2.put("created_at", currentTime);
-                db.insert("choices", null, choice503_2);
-
-                // Add choices for ending 504 (Floodlight Reborn)
-                ContentValues choice504_1 = new ContentValues();
-                choice504_1.put("dialog_id", 504);
-                choice504_1.put("choice_text", "Start a new chapter");
-                choice504_1.put("next_dialog_id", 1);
-                choice504_1.put("created_at", currentTime);
-                db.insert("choices", null, choice504_1);
-
-                ContentValues choice504_2 = new ContentValues();
-                choice504_2.put("dialog_id", 504);
-                choice504_2.put("choice_text", "Meditate on rebirth");
-                choice504_2.put("next_dialog_id", 1);
-                choice504_2.put("created_at", currentTime);
-                db.insert("choices", null, choice504_2);
-
-                // Add "Back to Menu" choices for each ending
-                ContentValues choice501_3 = new ContentValues();
-                choice501_3.put("dialog_id", 501);
-                choice501_3.put("choice_text", "Back to Menu");
-                choice501_3.put("next_dialog_id", 1);
-                choice501_3.put("created_at", currentTime);
-                db.insert("choices", null, choice501_3);
-
-                ContentValues choice502_3 = new ContentValues();
-                choice502_3.put("dialog_id", 502);
-                choice502_3.put("choice_text", "Back to Menu");
-                choice502_3.put("next_dialog_id", 1);
-                choice502_3.put("created_at", currentTime);
-                db.insert("choices", null, choice502_3);
-
-                ContentValues choice503_3 = new ContentValues();
-                choice503_3.put("dialog_id", 503);
-                choice503_3.put("choice_text", "Back to Menu");
-                choice503_3.put("next_dialog_id", 1);
-                choice503_3.put("created_at", currentTime);
-                db.insert("choices", null, choice503_3);
-
-                ContentValues choice504_3 = new ContentValues();
-                choice504_3.put("dialog_id", 504);
-                choice504_3.put("choice_text", "Back to Menu");
-                choice504_3.put("next_dialog_id", 1);
-                choice504_3.put("created_at", currentTime);
-                db.insert("choices", null, choice504_3);
-
-                // Add missing choices
-                ContentValues choice123 = new ContentValues();
-                choice123.put("dialog_id", 23);
-                choice123.put("choice_text", "Investigate the elemental convergence");
-                choice123.put("next_dialog_id", 32);
-                choice123.put("created_at", currentTime);
-                db.insert("choices", null, choice123);
-
-                ContentValues choice143 = new ContentValues();
-                choice143.put("dialog_id", 28);
-                choice143.put("choice_text", "Study the ancient maritime legends");
-                choice143.put("next_dialog_id", 32);
-                choice143.put("created_at", currentTime);
-                db.insert("choices", null, choice143);
-
-                ContentValues choice141 = new ContentValues();
-                choice141.put("dialog_id", 26);
-                choice141.put("choice_text", "Explore the deeper mysteries of the temple");
-                choice141.put("next_dialog_id", 32);
-                choice141.put("created_at", currentTime);
-                db.insert("choices", null, choice141);
-
-                ContentValues choice142 = new ContentValues();
-                choice142.put("dialog_id", 27);
-                choice142.put("choice_text", "Examine the crystal resonance patterns");
-                choice142.put("next_dialog_id", 32);
-                choice142.put("created_at", currentTime);
-                db.insert("choices", null, choice142);
-
-                ContentValues choice151 = new ContentValues();
-                choice151.put("dialog_id", 29);
-                choice151.put("choice_text", "Delve into Lady Selene's past");
-                choice151.put("next_dialog_id", 32);
-                choice151.put("created_at", currentTime);
-                db.insert("choices", null, choice151);
-
-                ContentValues choice152 = new ContentValues();
-                choice152.put("dialog_id", 30);
-                choice152.put("choice_text", "Follow the threads of deception");
-                choice152.put("next_dialog_id", 32);
-                choice152.put("created_at", currentTime);
-                db.insert("choices", null, choice152);
-
-                ContentValues choice153 = new ContentValues();
-                choice153.put("dialog_id", 31);
-                choice153.put("choice_text", "Uncover the truth about Lady Selene's powers");
-                choice153.put("next_dialog_id", 32);
-                choice153.put("created_at", currentTime);
-                db.insert("choices", null, choice153);
-
-                // Add choices 14 and 15
-                ContentValues choice14 = new ContentValues();
-                choice14.put("dialog_id", 14);
-                choice14.put("choice_text", "Research Lady Selene's family history");
-                choice14.put("next_dialog_id", 29);
-                choice14.put("created_at", currentTime);
-                db.insert("choices", null, choice14);
-
-                ContentValues choice15 = new ContentValues();
-                choice15.put("dialog_id", 15);
-                choice15.put("choice_text", "Follow the evidence trail");
-                choice15.put("next_dialog_id", 30);
-                choice15.put("created_at", currentTime);
-                db.insert("choices", null, choice15);
-
-                // Add two additional choices for dialog_id 1
-                ContentValues choice1_4 = new ContentValues();
-                choice1_4.put("dialog_id", 1);
-                choice1_4.put("choice_text", "Visit the ancient library to research the realm's history");
-                choice1_4.put("next_dialog_id", 11);
-                choice1_4.put("created_at", currentTime);
-                db.insert("choices", null, choice1_4);
-
-                ContentValues choice1_5 = new ContentValues();
-                choice1_5.put("dialog_id", 1);
-                choice1_5.put("choice_text", "Seek out the mysterious Oracle of the Tides");
-                choice1_5.put("next_dialog_id", 12);
-                choice1_5.put("created_at", currentTime);
-                db.insert("choices", null, choice1_5);
-
-                // Verify data insertion
-                Cursor dialogCursor = db.rawQuery("SELECT COUNT(*) FROM dialogs", null);
-                dialogCursor.moveToFirst();
-                int dialogCount = dialogCursor.getInt(0);
-                dialogCursor.close();
-                Log.d(TAG, "Total dialogs in database: " + dialogCount);
-
-                Cursor choiceCursor = db.rawQuery("SELECT COUNT(*) FROM choices", null);
-                choiceCursor.moveToFirst();
-                int choiceCount = choiceCursor.getInt(0);
-                choiceCursor.close();
-                Log.d(TAG, "Total choices in database: " + choiceCount);
-
-                // Verify specific choices for dialog 1
-                Cursor dialog1Choices = db.rawQuery("SELECT COUNT(*) FROM choices WHERE dialog_id = 1", null);
-                dialog1Choices.moveToFirst();
-                int dialog1ChoiceCount = dialog1Choices.getInt(0);
-                dialog1Choices.close();
-                Log.d(TAG, "Choices for dialog 1: " + dialog1ChoiceCount);
-
-                // Verify specific choices for dialog 13
-                Cursor dialog13Choices = db.rawQuery("SELECT COUNT(*) FROM choices WHERE dialog_id = 13", null);
-                dialog13Choices.moveToFirst();
-                int dialog13ChoiceCount = dialog13Choices.getInt(0);
-                dialog13Choices.close();
-                Log.d(TAG, "Choices for dialog 13: " + dialog13ChoiceCount);
-
-                // Add new choices for dialog 11
-                ContentValues dialog11_1 = new ContentValues();
-                dialog11_1.put("dialog_id", 11);
-                dialog11_1.put("choice_text", "Confront the Scale itself by requesting an Audience of Judgment");
-                dialog11_1.put("next_dialog_id", 111);
-                dialog11_1.put("created_at", currentTime);
-                db.insert("choices", null, dialog11_1);
-
-                ContentValues dialog11_2 = new ContentValues();
-                dialog11_2.put("dialog_id", 11);
-                dialog11_2.put("choice_text", "Seek the Lustrines for their memory of Caelondria before the courts");
-                dialog11_2.put("next_dialog_id", 112);
-                dialog11_2.put("created_at", currentTime);
-                db.insert("choices", null, dialog11_2);
-
-                ContentValues dialog11_3 = new ContentValues();
-                dialog11_3.put("dialog_id", 11);
-                dialog11_3.put("choice_text", "Attempt to modify the prophecy secretly");
-                dialog11_3.put("next_dialog_id", 113);
-                dialog11_3.put("created_at", currentTime);
-                db.insert("choices", null, dialog11_3);
-
-                ContentValues dialog12_1 = new ContentValues();
-                dialog12_1.put("dialog_id", 12);
-                dialog12_1.put("choice_text", "Dive deeper, risking your breath, to find the source");
-                dialog12_1.put("next_dialog_id", 121);
-                dialog12_1.put("created_at", currentTime);
-                db.insert("choices", null, dialog12_1);
-
-                ContentValues dialog12_2 = new ContentValues();
-                dialog12_2.put("dialog_id", 12);
-                dialog12_2.put("choice_text", "Capture and analyze the harmonic energy in the water");
-                dialog12_2.put("next_dialog_id", 122);
-                dialog12_2.put("created_at", currentTime);
-                db.insert("choices", null, dialog12_2);
-
-                // Add the corresponding dialog entries
-                ContentValues dialog111 = new ContentValues();
-                dialog111.put("id", 111);
-                dialog111.put("text", "You stand before the Scale of Justice, its ancient presence weighing heavily upon you.");
-                dialog111.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog111);
-
-                ContentValues dialog112 = new ContentValues();
-                dialog112.put("id", 112);
-                dialog112.put("text", "The Lustrines welcome you to their hidden archives, where memories of old Caelondria still live.");
-                dialog112.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog112);
-
-                ContentValues dialog113 = new ContentValues();
-                dialog113.put("id", 113);
-                dialog113.put("text", "In the shadows of the prophecy chamber, you begin your dangerous work of alteration.");
-                dialog113.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog113);
-
-                ContentValues dialog121 = new ContentValues();
-                dialog121.put("id", 121);
-                dialog121.put("text", "The depths reveal an ancient underwater temple, its walls inscribed with glowing symbols.");
-                dialog121.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog121);
-
-                ContentValues dialog122 = new ContentValues();
-                dialog122.put("id", 122);
-                dialog122.put("text", "The water's energy pulses with a strange rhythm, each wave carrying fragments of an ancient song.");
-                dialog122.put("created_at", currentTime);
-                db.insert("dialogs", null, dialog122);
-
-                // Add choices for dialog 111
-                ContentValues choice111_1 = new ContentValues();
-                choice111_1.put("dialog_id", 111);
-                choice111_1.put("choice_text", "Demand the Scale justify its prophecy");
-                choice111_1.put("next_dialog_id", 301);
-                choice111_1.put("created_at", currentTime);
-                db.insert("choices", null, choice111_1);
-
-                ContentValues choice111_2 = new ContentValues();
-                choice111_2.put("dialog_id", 111);
-                choice111_2.put("choice_text", "Ask the Scale to show you the truth");
-                choice111_2.put("next_dialog_id", 302);
-                choice111_2.put("created_at", currentTime);
-                db.insert("choices", null, choice111_2);
-
-                // Add choices for dialog 112
-                ContentValues choice112_1 = new ContentValues();
-                choice112_1.put("dialog_id", 112);
-                choice112_1.put("choice_text", "Learn the original laws of the land");
-                choice112_1.put("next_dialog_id", 301);
-                choice112_1.put("created_at", currentTime);
-                db.insert("choices", null, choice112_1);
-
-                ContentValues choice112_2 = new ContentValues();
-                choice112_2.put("dialog_id", 112);
-                choice112_2.put("choice_text", "Witness the Scale's first judgment");
-                choice112_2.put("next_dialog_id", 302);
-                choice112_2.put("created_at", currentTime);
-                db.insert("choices", null, choice112_2);
-
-                // Add choices for dialog 113
-                ContentValues choice113_1 = new ContentValues();
-                choice113_1.put("dialog_id", 113);
-                choice113_1.put("choice_text", "Force the change despite the pain");
-                choice113_1.put("next_dialog_id", 301);
-                choice113_1.put("created_at", currentTime);
-                db.insert("choices", null, choice113_1);
-
-                ContentValues choice113_2 = new ContentValues();
-                choice113_2.put("dialog_id", 113);
-                choice113_2.put("choice_text", "Retreat and seek another way");
-                choice113_2.put("next_dialog_id", 302);
-                choice113_2.put("created_at", currentTime);
-                db.insert("choices", null, choice113_2);
-
-                // Add choices for dialog 121
-                ContentValues choice121_1 = new ContentValues();
-                choice121_1.put("dialog_id", 121);
-                choice121_1.put("choice_text", "Enter the temple");
-                choice121_1.put("next_dialog_id", 301);
-                choice121_1.put("created_at", currentTime);
-                db.insert("choices", null, choice121_1);
-
-                ContentValues choice121_2 = new ContentValues();
-                choice121_2.put("dialog_id", 121);
-                choice121_2.put("choice_text", "Surface and bring others");
-                choice121_2.put("next_dialog_id", 302);
-                choice121_2.put("created_at", currentTime);
-                db.insert("choices", null, choice121_2);
-
-                // Add choices for dialog 122
-                ContentValues choice122_1 = new ContentValues();
-                choice122_1.put("dialog_id", 122);
-                choice122_1.put("choice_text", "Disrupt the rhythm");
-                choice122_1.put("next_dialog_id", 301);
-                choice122_1.put("created_at", currentTime);
-                db.insert("choices", null, choice122_1);
-
-                ContentValues choice122_2 = new ContentValues();
-                choice122_2.put("dialog_id", 122);
-                choice122_2.put("choice_text", "Follow the pattern to its source");
-                choice122_2.put("next_dialog_id", 302);
-                choice122_2.put("created_at", currentTime);
-                db.insert("choices", null, choice122_2);
-
-            } catch (Exception e) {
-                Log.e(TAG, "Error creating initial data: " + e.getMessage(), e);
-                throw e;
-            }
 
                 db.setTransactionSuccessful();
             Log.d(TAG, "Database creation completed successfully");
@@ -1068,34 +170,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             }
         }
 
-    private void validateAndRepairAfterLoad(SQLiteDatabase db) {
-        try {
-            // Check dialog count
-            Cursor dialogCursor = db.rawQuery("SELECT COUNT(*) FROM dialogs", null);
-            dialogCursor.moveToFirst();
-            int dialogCount = dialogCursor.getInt(0);
-            dialogCursor.close();
-
-            // Check choice count
-            Cursor choiceCursor = db.rawQuery("SELECT COUNT(*) FROM choices", null);
-            choiceCursor.moveToFirst();
-            int choiceCount = choiceCursor.getInt(0);
-            choiceCursor.close();
-
-            Log.d(TAG, "Loaded " + dialogCount + " dialogs and " + choiceCount + " choices");
-
-            if (dialogCount == 0) {
-                Log.e(TAG, "No dialogs loaded, creating emergency story");
-                FallbackStoryCreator.createEmergencyStory(db);
-            } else if (!FallbackStoryCreator.validateStoryStructure(db)) {
-                Log.w(TAG, "Story structure invalid, attempting repair");
-                verifyAndRepairStoryData();
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error in post-load validation", e);
-        }
-    }
-
         @Override
         public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
         Log.d(TAG, "Upgrading database from version " + oldVersion + " to " + newVersion);
@@ -1121,10 +195,17 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 // Add version 6 upgrades if any
                 Log.d(TAG, "Upgrading to version 6 - no schema changes required");
             }
-
-            // Always recreate indexes after upgrade
-            for (String index : CREATE_INDEXES) {
-                db.execSQL(index);
+            if (oldVersion < 7) {
+                upgradeToVersion7(db);
+            }
+            if (oldVersion < 8) {
+                upgradeToVersion8(db);
+            }
+            if (oldVersion < 9) {
+                upgradeToVersion9(db);
+            }
+            if (oldVersion < 10) {
+                upgradeToVersion10(db);
             }
 
             db.setTransactionSuccessful();
@@ -1158,6 +239,87 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }
     }
 
+    private void upgradeToVersion7(SQLiteDatabase db) {
+        Log.d(TAG, "Upgrading to database version 7");
+        try {
+            for (String upgrade : VERSION_7_UPGRADES) {
+                db.execSQL(upgrade);
+            }
+
+            // Fill the new column for the story that is already installed
+            StoryImporter.updateCharacters(db);
+
+            Log.d(TAG, "Version 7 upgrade completed successfully");
+        } catch (Exception e) {
+            Log.e(TAG, "Error during version 7 upgrade", e);
+            throw e;
+        }
+    }
+
+    private void upgradeToVersion8(SQLiteDatabase db) {
+        Log.d(TAG, "Upgrading to database version 8");
+        try {
+            // The story tables are dropped; story.db is installed from the APK on first use
+            for (String upgrade : VERSION_8_UPGRADES) {
+                db.execSQL(upgrade);
+            }
+            vacuumAfterUpgrade = true;
+
+            Log.d(TAG, "Version 8 upgrade completed successfully");
+        } catch (Exception e) {
+            Log.e(TAG, "Error during version 8 upgrade", e);
+            throw e;
+        }
+    }
+
+    private void upgradeToVersion9(SQLiteDatabase db) {
+        Log.d(TAG, "Upgrading to database version 9");
+        try {
+            for (String upgrade : VERSION_9_UPGRADES) {
+                db.execSQL(upgrade);
+            }
+            vacuumAfterUpgrade = true;
+
+            Log.d(TAG, "Version 9 upgrade completed successfully");
+        } catch (Exception e) {
+            Log.e(TAG, "Error during version 9 upgrade", e);
+            throw e;
+        }
+    }
+
+    private void upgradeToVersion10(SQLiteDatabase db) {
+        Log.d(TAG, "Upgrading to database version 10");
+        try {
+            // Progress saved against the old built-in story (dialogs 1 and 11-34) can point at a
+            // dialog story.bin does not have; those players start the shipped story over
+            StringBuilder storyIds = new StringBuilder();
+            SQLiteDatabase story = storyDatabase.acquire();
+            try (Cursor cursor = story.rawQuery(Queries.ALL_DIALOG_IDS, null)) {
+                while (cursor.moveToNext()) {
+                    if (storyIds.length() > 0) {
+                        storyIds.append(',');
+                    }
+                    storyIds.append(cursor.getInt(0));
+                }
+            } finally {
+                storyDatabase.release(story);
+            }
+            if (storyIds.length() == 0) {
+                throw new IllegalStateException("The shipped story has no dialogs");
+            }
+
+            ContentValues values = new ContentValues();
+            values.put("current_dialog_id", START_DIALOG_ID);
+            values.put("last_updated", System.currentTimeMillis());
+            int reset = db.update("progress", values, "current_dialog_id NOT IN (" + storyIds + ")", null);
+
+            Log.d(TAG, "Version 10 upgrade completed successfully, reset " + reset + " player(s) to the start");
+        } catch (Exception e) {
+            Log.e(TAG, "Error during version 10 upgrade", e);
+            throw e;
+        }
+    }
+
     private void upgradeToVersion3(SQLiteDatabase db) {
         Log.d(TAG, "Upgrading to database version 3");
         try {
@@ -1177,29 +339,61 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public void onConfigure(SQLiteDatabase db) {
         super.onConfigure(db);
         db.setForeignKeyConstraintsEnabled(true);
+        // In WAL mode NORMAL is still crash-safe; only the last commits can be lost on power failure,
+        // and progress is journaled separately anyway
+        runPragma(db, "PRAGMA synchronous = NORMAL");
+        runPragma(db, "PRAGMA journal_size_limit = " + WAL_SIZE_LIMIT_BYTES);
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        if (vacuumAfterUpgrade) {
+            vacuumAfterUpgrade = false;
+            try {
+                db.execSQL("VACUUM");
+            } catch (Exception e) {
+                Log.w(TAG, "Cannot vacuum after upgrade: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Moves committed WAL pages into the database file. A passive checkpoint copies what it can
+     * without waiting for readers; a truncating one also waits for them and resets the WAL file to
+     * zero bytes, e.g. when the app goes to the background. Call from the writer thread.
+     */
+    public void checkpoint(boolean truncate) {
+        String mode = truncate ? "TRUNCATE" : "PASSIVE";
+        long start = System.nanoTime();
+        try (Cursor cursor = getWritableDatabase().rawQuery("PRAGMA wal_checkpoint(" + mode + ")", null)) {
+            if (cursor.moveToFirst()) {
+                // busy, WAL frames, frames checkpointed
+                Log.d(TAG, "Checkpoint " + mode + ": busy=" + cursor.getInt(0) + ", " + cursor.getInt(2)
+                        + "/" + cursor.getInt(1) + " frames in " + (System.nanoTime() - start) / 1000 + "us");
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Checkpoint " + mode + " failed: " + e.getMessage());
+        }
+    }
+
+    private static void runPragma(SQLiteDatabase db, String pragma) {
+        try (Cursor cursor = db.rawQuery(pragma, null)) {
+            cursor.moveToFirst();
+        } catch (Exception e) {
+            Log.w(TAG, "Cannot apply " + pragma + ": " + e.getMessage());
+        }
     }
 
     // Database operations with transaction support
     public boolean hasUsers() {
-        SQLiteDatabase db = null;
-        Cursor cursor = null;
         try {
-            db = this.getReadableDatabase();
-            cursor = db.rawQuery("SELECT 1 FROM users LIMIT 1", null);
-            boolean hasUsers = cursor != null && cursor.moveToFirst();
+            boolean hasUsers = statements.queryForLong(getReadableDatabase(), Queries.ANY_USER) != 0;
             Log.d(TAG, "hasUsers: " + hasUsers);
             return hasUsers;
         } catch (Exception e) {
             Log.e(TAG, "Error checking if users exist", e);
             return false;
-        } finally {
-            if (cursor != null) {
-                try {
-                    cursor.close();
-                } catch (Exception e) {
-                    Log.e(TAG, "Error closing cursor", e);
-                }
-            }
         }
     }
 
@@ -1210,7 +404,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
         try {
             db = this.getReadableDatabase();
-            cursor = db.rawQuery("SELECT id, username FROM users ORDER BY id", null);
+            cursor = db.rawQuery(Queries.ALL_USERS, null);
 
             if (cursor != null && cursor.moveToFirst()) {
                 do {
@@ -1252,8 +446,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.beginTransaction();
         try {
             // Check if the new name already exists for a different user
-            Cursor cursor = db.rawQuery(
-                    "SELECT 1 FROM users WHERE username = ? AND id != ?",
+            Cursor cursor = db.rawQuery(Queries.OTHER_USER_WITH_NAME,
                     new String[]{newName, String.valueOf(id)}
             );
 
@@ -1284,8 +477,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.beginTransaction();
         try {
             // First check if user exists
-            Cursor cursor = db.rawQuery("SELECT 1 FROM users WHERE id = ?",
-                    new String[]{String.valueOf(id)});
+            Cursor cursor = db.rawQuery(Queries.USER_EXISTS, new String[]{String.valueOf(id)});
             boolean exists = cursor.moveToFirst();
             cursor.close();
 
@@ -1298,7 +490,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
+            markWritten(IntegrityCache.USERS | IntegrityCache.PROGRESS);
         }
+        progressJournal.discard(id);
     }
 
     public synchronized long addUser(String username) {
@@ -1320,8 +514,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.beginTransaction();
         try {
             // Check if username already exists
-            Cursor cursor = db.query("users", new String[]{"id"}, "username = ?",
-                    new String[]{trimmedUsername}, null, null, null);
+            Cursor cursor = db.rawQuery(Queries.USER_ID_BY_NAME, new String[]{trimmedUsername});
 
             if (cursor != null && cursor.moveToFirst()) {
                 cursor.close();
@@ -1339,12 +532,10 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             // Initialize progress for new user with first dialog
             if (userId != -1) {
                 // Find the first available dialog
-                Cursor dialogCursor = db.rawQuery("SELECT MIN(id) FROM dialogs", null);
-                int firstDialogId = 1; // Default
-                if (dialogCursor.moveToFirst() && !dialogCursor.isNull(0)) {
-                    firstDialogId = dialogCursor.getInt(0);
+                int firstDialogId = (int) queryStoryForLong(Queries.FIRST_DIALOG_ID);
+                if (firstDialogId == 0) {
+                    firstDialogId = START_DIALOG_ID;
                 }
-                dialogCursor.close();
 
                 values = new ContentValues();
                 values.put("user_id", userId);
@@ -1362,6 +553,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             throw e; // Re-throw to maintain existing error handling
         } finally {
             db.endTransaction();
+            markWritten(IntegrityCache.USERS | IntegrityCache.PROGRESS);
         }
     }
 
@@ -1377,15 +569,59 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         Log.d(TAG, String.format("Database operation - %s: %s", operation, details));
     }
 
+    /**
+     * Records the user's position without waiting for the database; the progress table is
+     * updated shortly after by {@link ProgressJournal}.
+     */
     public void updateUserProgress(int userId, int newDialogId) {
         logDatabaseOperation("updateUserProgress", "userId=" + userId + ", newDialogId=" + newDialogId);
+        progressJournal.record(userId, newDialogId);
+        markProgressChanged();
+    }
+
+    /**
+     * Number of changes to users or progress since the app started; equal counts mean nothing
+     * changed in between.
+     */
+    public long getProgressChangeCount() {
+        return progressChanges.get();
+    }
+
+    /**
+     * When users or progress last changed, or 0 if they have not changed since the app started.
+     */
+    public long getLastProgressChangeMillis() {
+        return lastProgressChangeMillis;
+    }
+
+    private void markWritten(int tables) {
+        integrityCache.markWritten(tables);
+        if ((tables & (IntegrityCache.USERS | IntegrityCache.PROGRESS)) != 0) {
+            markProgressChanged();
+        }
+    }
+
+    // Journal flushes are not counted: the change was counted when it was recorded
+    private void markProgressChanged() {
+        progressChanges.incrementAndGet();
+        lastProgressChangeMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Writes any recorded progress to the database now instead of after the coalescing delay.
+     */
+    public void flushUserProgress() {
+        progressJournal.flushAsync();
+    }
+
+    private void writeUserProgress(int userId, int newDialogId) {
+        logDatabaseOperation("writeUserProgress", "userId=" + userId + ", newDialogId=" + newDialogId);
 
         SQLiteDatabase db = this.getWritableDatabase();
         db.beginTransaction();
         try {
             // Verify user exists first
-            Cursor userCheck = db.rawQuery("SELECT 1 FROM users WHERE id = ?",
-                    new String[]{String.valueOf(userId)});
+            Cursor userCheck = db.rawQuery(Queries.USER_EXISTS, new String[]{String.valueOf(userId)});
             boolean userExists = userCheck.moveToFirst();
             userCheck.close();
 
@@ -1394,35 +630,22 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             }
 
             // Verify dialog exists, with fallback handling
-            Cursor dialogCheck = db.rawQuery("SELECT 1 FROM dialogs WHERE id = ?",
-                    new String[]{String.valueOf(newDialogId)});
-            boolean dialogExists = dialogCheck.moveToFirst();
-            dialogCheck.close();
-
-            if (!dialogExists) {
+            if (!isValidDialog(newDialogId)) {
                 Log.w(TAG, "Dialog " + newDialogId + " does not exist, finding fallback");
 
                 // Try to find the closest valid dialog
-                Cursor nextValidDialog = db.rawQuery(
-                        "SELECT id FROM dialogs WHERE id >= ? ORDER BY id ASC LIMIT 1",
-                        new String[]{String.valueOf(newDialogId)}
-                );
-
-                if (nextValidDialog.moveToFirst()) {
-                    newDialogId = nextValidDialog.getInt(0);
+                try {
+                    newDialogId = (int) queryStoryForLong(Queries.DIALOG_AT_OR_AFTER, newDialogId);
                     Log.w(TAG, "Using fallback dialog: " + newDialogId);
-                } else {
+                } catch (SQLiteDoneException e) {
                     // If no dialog found at or after the requested ID, try from the beginning
-                    Cursor firstDialog = db.rawQuery("SELECT MIN(id) FROM dialogs", null);
-                    if (firstDialog.moveToFirst() && !firstDialog.isNull(0)) {
-                        newDialogId = firstDialog.getInt(0);
-                        Log.w(TAG, "Using first available dialog: " + newDialogId);
-                    } else {
+                    int firstDialogId = (int) queryStoryForLong(Queries.FIRST_DIALOG_ID);
+                    if (firstDialogId == 0) {
                         throw new RuntimeException("No dialogs available in database");
                     }
-                    firstDialog.close();
+                    newDialogId = firstDialogId;
+                    Log.w(TAG, "Using first available dialog: " + newDialogId);
                 }
-                nextValidDialog.close();
             }
 
             ContentValues values = new ContentValues();
@@ -1436,17 +659,18 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 // If no progress record exists, create one
                 values.put("user_id", userId);
                 db.insertOrThrow("progress", null, values);
-                logDatabaseOperation("updateUserProgress", "Created new progress record");
+                logDatabaseOperation("writeUserProgress", "Created new progress record");
                 } else {
-                logDatabaseOperation("updateUserProgress", "Updated existing progress record");
+                logDatabaseOperation("writeUserProgress", "Updated existing progress record");
             }
 
             db.setTransactionSuccessful();
         } catch (Exception e) {
-            logDatabaseError("updateUserProgress", e);
+            logDatabaseError("writeUserProgress", e);
             throw new RuntimeException("Failed to update user progress", e);
         } finally {
             db.endTransaction();
+            integrityCache.markWritten(IntegrityCache.PROGRESS);
         }
     }
 
@@ -1454,455 +678,218 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public DialogEntry getDialogById(int dialogId) {
         logDatabaseOperation("getDialogById", "dialogId=" + dialogId);
 
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = null;
-        try {
-            cursor = db.rawQuery(
-                    "SELECT id, text, created_at FROM dialogs WHERE id = ?",
-                    new String[]{String.valueOf(dialogId)}
-            );
-
-            if (cursor.moveToFirst()) {
-                DialogEntry dialog = new DialogEntry(
-                        cursor.getInt(cursor.getColumnIndexOrThrow("id")),
-                        cursor.getString(cursor.getColumnIndexOrThrow("text"))
-                );
-                logDatabaseOperation("getDialogById", "Found dialog: " + dialog.getId());
-                return dialog;
-            }
+        StoryGraph graph = getStoryGraph();
+        if (graph != null) {
+            return graph.getDialog(dialogId);
+        }
 
+        // Two scalar lookups are still cheaper than filling a CursorWindow for one row
+        SQLiteDatabase db = storyDatabase.acquire();
+        try {
+            String text = statements.queryForString(db, Queries.DIALOG_TEXT, dialogId);
+            String characterKey = statements.queryForString(db, Queries.DIALOG_CHARACTER, dialogId);
+            DialogEntry dialog = new DialogEntry(dialogId, text, characterKey);
+            logDatabaseOperation("getDialogById", "Found dialog: " + dialog.getId());
+            return dialog;
+        } catch (SQLiteDoneException e) {
             Log.w(TAG, "Dialog not found: " + dialogId);
             return null;
         } catch (Exception e) {
             logDatabaseError("getDialogById", e);
             return null; // Return null instead of throwing exception
         } finally {
-            if (cursor != null && !cursor.isClosed()) {
-                cursor.close();
-            }
-        }
-    }
-
-    private void createFallbackStoryData(SQLiteDatabase db) {
-        Log.w(TAG, "Creating fallback story data");
-        try {
-            // Create minimal story structure
-            db.execSQL("INSERT INTO dialogs (id, text, created_at) VALUES (1, 'Welcome to the story. This is a fallback dialog created when the main story file could not be loaded.', ?)",
-                    new String[]{String.valueOf(System.currentTimeMillis())});
-
-            db.execSQL("INSERT INTO choices (dialog_id, choice_text, next_dialog_id, created_at) VALUES (1, 'Start the adventure', 2, ?)",
-                    new String[]{String.valueOf(System.currentTimeMillis())});
-
-            db.execSQL("INSERT INTO dialogs (id, text, created_at) VALUES (2, 'Thank you for playing. The full story will be available once the story file is properly loaded.', ?)",
-                    new String[]{String.valueOf(System.currentTimeMillis())});
-
-            Log.d(TAG, "Fallback story data created successfully");
-        } catch (Exception e) {
-            Log.e(TAG, "Error creating fallback story data", e);
-            throw new RuntimeException("Failed to create fallback story data", e);
-        }
-    }
-
-    private boolean isAssetAvailable(Context context, String filename) {
-        if (context == null || filename == null) return false;
-
-        try {
-            String[] assets = context.getAssets().list("");
-            if (assets != null) {
-                for (String asset : assets) {
-                    if (asset.equals(filename)) {
-                        return true;
-                    }
-                }
-            }
-            return false;
-        } catch (Exception e) {
-            Log.e(TAG, "Error checking asset availability: " + filename, e);
-            return false;
+            storyDatabase.release(db);
         }
     }
 
-    private void executeSqlScript(SQLiteDatabase db, Context context, String filename) {
-        if (context == null || filename == null) {
-            throw new IllegalArgumentException("Context and filename cannot be null");
-        }
-
-        if (!isAssetAvailable(context, filename)) {
-            Log.e(TAG, "Asset not found: " + filename + ". Creating fallback data.");
-            createFallbackStoryData(db);
-            return;
-        }
-
-        BufferedReader reader = null;
-        InputStream inputStream = null;
-        int statementCount = 0;
-
-        try {
-            Log.d(TAG, "Executing SQL script: " + filename);
-            inputStream = context.getAssets().open(filename);
-            reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
-
-            StringBuilder currentStatement = new StringBuilder();
-                    String line;
-            boolean inStatement = false;
-            int parenthesesCount = 0;
-
-            while ((line = reader.readLine()) != null) {
-                String trimmedLine = line.trim();
-
-                // Skip empty lines and comments
-                if (trimmedLine.isEmpty() || trimmedLine.startsWith("--")) {
-                    continue;
-                }
-
-                // Count parentheses for multi-line statements
-                parenthesesCount += countOccurrences(trimmedLine, '(') - countOccurrences(trimmedLine, ')');
-
-                // Check if starting a new INSERT statement
-                if (trimmedLine.toUpperCase().startsWith("INSERT INTO")) {
-                    // Execute previous statement if exists
-                    if (currentStatement.length() > 0) {
-                        executeStatementSafely(db, currentStatement.toString(), statementCount);
-                        statementCount++;
-                    }
-                    currentStatement.setLength(0);
-                    inStatement = true;
-                }
-
-                if (inStatement) {
-                    currentStatement.append(line).append("\n");
-
-                    // Check if statement is complete (ends with semicolon and balanced parentheses)
-                    if (trimmedLine.endsWith(";") && parenthesesCount <= 0) {
-                        executeStatementSafely(db, currentStatement.toString(), statementCount);
-                        statementCount++;
-                        currentStatement.setLength(0);
-                        inStatement = false;
-                        parenthesesCount = 0;
+    /**
+     * Returns the in-memory story graph, loading it from the database on first use.
+     * Returns null if the story tables cannot be read.
+     */
+    @Nullable
+    public StoryGraph getStoryGraph() {
+        StoryGraph graph = storyGraph;
+        if (graph == null) {
+            synchronized (this) {
+                graph = storyGraph;
+                if (graph == null) {
+                    SQLiteDatabase db = null;
+                    try {
+                        db = storyDatabase.acquire();
+                        graph = StoryGraph.load(db);
+                        storyGraph = graph;
+                    } catch (Exception e) {
+                        logDatabaseError("getStoryGraph", e);
+                        return null;
+                    } finally {
+                        if (db != null) {
+                            storyDatabase.release(db);
+                        }
                     }
                 }
             }
-
-            // Execute any remaining statement
-            if (currentStatement.length() > 0) {
-                executeStatementSafely(db, currentStatement.toString(), statementCount);
-                statementCount++;
-            }
-
-            // Verify that we have story data
-            if (!hasMinimumStoryData(db)) {
-                Log.w(TAG, "Minimum story data not found after script execution, creating fallback");
-                createFallbackStoryData(db);
-                } else {
-                Log.d(TAG, "SQL script execution completed successfully. Executed " + statementCount + " statements.");
-                }
-
-            } catch (IOException e) {
-            Log.e(TAG, "Error reading SQL script: " + filename, e);
-            createFallbackStoryData(db);
-        } catch (Exception e) {
-            Log.e(TAG, "Error executing SQL script: " + filename, e);
-            createFallbackStoryData(db);
-        } finally {
-            closeResourcesSafely(reader, inputStream);
-        }
-    }
-
-    private void executeStatementSafely(SQLiteDatabase db, String sql, int statementNumber) {
-        try {
-            String cleanSql = sql.trim();
-            if (!cleanSql.isEmpty()) {
-                // Enhanced logging for debugging
-                boolean isChoiceInsert = cleanSql.toLowerCase().contains("insert into choices");
-                boolean isDialogInsert = cleanSql.toLowerCase().contains("insert into dialogs");
-
-                if (isChoiceInsert || isDialogInsert) {
-                    Log.d(TAG, "Executing " + (isChoiceInsert ? "CHOICE" : "DIALOG") +
-                            " statement " + statementNumber + ": " +
-                            cleanSql.substring(0, Math.min(100, cleanSql.length())) + "...");
-                }
-
-                db.execSQL(cleanSql);
-
-                if (isChoiceInsert || isDialogInsert) {
-                    Log.d(TAG, "Successfully executed " + (isChoiceInsert ? "CHOICE" : "DIALOG") +
-                            " statement " + statementNumber);
-                }
-            }
-        } catch (SQLException e) {
-            Log.e(TAG, "ERROR executing SQL statement " + statementNumber + ": " +
-                    sql.substring(0, Math.min(200, sql.length())), e);
-
-            // Log the full statement for debugging
-            Log.e(TAG, "Full failed statement: " + sql);
         }
+        return graph;
     }
 
-    private int countOccurrences(String str, char ch) {
-        int count = 0;
-        for (int i = 0; i < str.length(); i++) {
-            if (str.charAt(i) == ch) {
-                count++;
+    /**
+     * Reachability and depth of every dialog from the start dialog, computed from the story graph
+     * on first use. Returns null if the story tables cannot be read.
+     */
+    @Nullable
+    public StoryReachability getStoryReachability() {
+        StoryReachability reachability = storyReachability;
+        if (reachability == null) {
+            StoryGraph graph = getStoryGraph();
+            if (graph == null) {
+                return null;
+            }
+            reachability = StoryReachability.compute(StoryEdges.of(graph), START_DIALOG_ID);
+            // Only publish it if the graph was not replaced meanwhile
+            if (graph == storyGraph) {
+                storyReachability = reachability;
             }
         }
-        return count;
+        return reachability;
     }
 
-    private void closeResourcesSafely(BufferedReader reader, InputStream inputStream) {
+    // story.db is held only for the one lookup; see StoryDatabase#acquire
+    private long queryStoryForLong(String sql, long... args) {
+        SQLiteDatabase story = storyDatabase.acquire();
         try {
-            if (reader != null) reader.close();
-        } catch (IOException e) {
-            Log.e(TAG, "Error closing reader", e);
-        }
-
-        try {
-            if (inputStream != null) inputStream.close();
-        } catch (IOException e) {
-            Log.e(TAG, "Error closing input stream", e);
-        }
-    }
-    private void executeStatement(SQLiteDatabase db, String sql) {
-        try {
-            String cleanSql = sql.trim();
-            if (!cleanSql.isEmpty()) {
-                Log.d(TAG, "Executing SQL: " + cleanSql.substring(0, Math.min(100, cleanSql.length())) + "...");
-                db.execSQL(cleanSql);
-            }
-        } catch (SQLException e) {
-            Log.e(TAG, "Error executing SQL statement: " + sql.substring(0, Math.min(200, sql.length())), e);
-            // Don't throw - continue with other statements
-        }
-    }
-
-    private void ensureMinimumChoicesExist(SQLiteDatabase db) {
-        try {
-            // Check if dialog 1 has choices
-            Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM choices WHERE dialog_id = 1", null);
-            cursor.moveToFirst();
-            int choiceCount = cursor.getInt(0);
-            cursor.close();
-
-            Log.d(TAG, "Dialog 1 has " + choiceCount + " choices");
-
-            if (choiceCount == 0) {
-                Log.w(TAG, "No choices found for dialog 1, creating minimal choices");
-
-                // Insert basic choices manually
-                long currentTime = System.currentTimeMillis();
-
-                db.execSQL("INSERT INTO choices (dialog_id, choice_text, next_dialog_id, created_at) VALUES (?, ?, ?, ?)",
-                        new Object[]{1, "Swear your aid to Viren and help investigate the prophecy", 11, currentTime});
-
-                db.execSQL("INSERT INTO choices (dialog_id, choice_text, next_dialog_id, created_at) VALUES (?, ?, ?, ?)",
-                        new Object[]{1, "Slip away to the coast and seek the source of the water's unrest", 12, currentTime});
-
-                db.execSQL("INSERT INTO choices (dialog_id, choice_text, next_dialog_id, created_at) VALUES (?, ?, ?, ?)",
-                        new Object[]{1, "Attend Lady Selene's public trial, hoping to read her intentions", 13, currentTime});
-
-                Log.d(TAG, "Inserted fallback choices for dialog 1");
-            }
-
-        } catch (Exception e) {
-            Log.e(TAG, "Error ensuring minimum choices exist", e);
+            return statements.queryForLong(story, sql, args);
+        } finally {
+            storyDatabase.release(story);
         }
     }
 
-    private boolean hasMinimumStoryData(SQLiteDatabase db) {
-        Cursor cursor = null;
-        try {
-            // Check dialogs
-            cursor = db.rawQuery("SELECT COUNT(*) FROM dialogs", null);
-            if (!cursor.moveToFirst() || cursor.getInt(0) == 0) {
-                Log.e(TAG, "No dialogs found in database");
-                return false;
-            }
-            int dialogCount = cursor.getInt(0);
-            cursor.close();
-
-            // Check choices
-            cursor = db.rawQuery("SELECT COUNT(*) FROM choices", null);
-            if (!cursor.moveToFirst()) {
-                Log.e(TAG, "Cannot count choices");
-                return false;
-            }
-            int choiceCount = cursor.getInt(0);
-            cursor.close();
-
-            // Check for starting dialog
-            cursor = db.rawQuery("SELECT COUNT(*) FROM dialogs WHERE id = 1", null);
-            if (!cursor.moveToFirst() || cursor.getInt(0) == 0) {
-                Log.e(TAG, "Starting dialog (id=1) not found");
-                return false;
-            }
-
-            Log.d(TAG, "Story validation passed: " + dialogCount + " dialogs, " + choiceCount + " choices");
-            return dialogCount > 0;
-
-        } catch (Exception e) {
-            Log.e(TAG, "Error validating story data", e);
-            return false;
-        } finally {
-            if (cursor != null && !cursor.isClosed()) {
-                cursor.close();
-            }
-        }
+    // Must be called after any write to the dialogs or choices tables
+    private void invalidateStoryGraph() {
+        storyGraph = null;
+        storyReachability = null;
+        integrityCache.markWritten(IntegrityCache.DIALOGS | IntegrityCache.CHOICES);
     }
 
     // Helper method to check database integrity
-    public boolean checkDatabaseIntegrity() {
+    /**
+     * Checks progress references with two joins and the story structure with
+     * {@link StoryGraphAnalyzer}, which reads the choices edge list once.
+     *
+     * The verdict is cached. Only the checks reading a table written since the last call are
+     * re-run, and nothing runs when no table changed.
+     */
+    @NonNull
+    public IntegrityReport checkDatabaseIntegrity() {
         SQLiteDatabase db = this.getReadableDatabase();
-        boolean isValid = true;
-        Cursor cursor = null;
-
         try {
-            // Check for orphaned progress records
-            cursor = db.rawQuery(
-                    "SELECT p.user_id FROM progress p LEFT JOIN users u ON p.user_id = u.id WHERE u.id IS NULL",
-                    null
-            );
-            if (cursor.moveToFirst()) {
+            int dirty = integrityCache.beginCheck();
+            IntegrityReport cached = integrityCache.getReport();
+            if (dirty == 0 && cached != null) {
+                Log.d(TAG, "Integrity unchanged since last check (" + integrityCache.getStats() + ")");
+                return cached;
+            }
+
+            int orphanedProgress;
+            int invalidProgressDialogs;
+            if (cached == null || (dirty & IntegrityCache.PROGRESS_CHECK) != 0) {
+                orphanedProgress = queryCount(db, Queries.ORPHANED_PROGRESS_COUNT);
+                invalidProgressDialogs = countInvalidProgressDialogs(db);
+            } else {
+                orphanedProgress = cached.orphanedProgress;
+                invalidProgressDialogs = cached.invalidProgressDialogs;
+            }
+            if (orphanedProgress > 0) {
                 Log.e(TAG, "Found orphaned progress records");
-                isValid = false;
             }
-            cursor.close();
-
-            // Check for invalid dialog references in progress
-            cursor = db.rawQuery(
-                    "SELECT p.current_dialog_id FROM progress p LEFT JOIN dialogs d " +
-                            "ON p.current_dialog_id = d.id WHERE d.id IS NULL",
-                    null
-            );
-            if (cursor.moveToFirst()) {
+            if (invalidProgressDialogs > 0) {
                 Log.e(TAG, "Found invalid dialog references in progress");
-                isValid = false;
-            }
-            cursor.close();
-
-            // Check for invalid dialog references in choices
-            cursor = db.rawQuery(
-                    "SELECT c.dialog_id, c.next_dialog_id FROM choices c " +
-                            "LEFT JOIN dialogs d1 ON c.dialog_id = d1.id " +
-                            "LEFT JOIN dialogs d2 ON c.next_dialog_id = d2.id " +
-                            "WHERE d1.id IS NULL OR d2.id IS NULL",
-                    null
-            );
-            if (cursor.moveToFirst()) {
-                Log.e(TAG, "Found invalid dialog references in choices");
-                isValid = false;
-            }
-            cursor.close();
-
-            // Check for dialogs without choices (dead ends)
-            cursor = db.rawQuery(
-                    "SELECT d.id FROM dialogs d LEFT JOIN choices c ON d.id = c.dialog_id " +
-                            "WHERE c.id IS NULL AND d.id != (SELECT MAX(id) FROM dialogs)",
-                    null
-            );
-            if (cursor.moveToFirst()) {
-                Log.e(TAG, "Found dialog(s) without choices (potential dead ends)");
-                isValid = false;
             }
-            cursor.close();
 
-            // Check for circular references in choices
-            cursor = db.rawQuery(
-                    "WITH RECURSIVE choice_path(start_id, current_id, path) AS (" +
-                            "  SELECT dialog_id, next_dialog_id, dialog_id || ',' || next_dialog_id " +
-                            "  FROM choices " +
-                            "  UNION ALL " +
-                            "  SELECT cp.start_id, c.next_dialog_id, cp.path || ',' || c.next_dialog_id " +
-                            "  FROM choice_path cp " +
-                            "  JOIN choices c ON cp.current_id = c.dialog_id " +
-                            "  WHERE path NOT LIKE '%' || c.next_dialog_id || '%'" +
-                            ") " +
-                            "SELECT DISTINCT start_id " +
-                            "FROM choice_path " +
-                            "WHERE path LIKE '%' || start_id || '%' " +
-                            "  AND length(path) > 1",
-                    null
-            );
-            if (cursor.moveToFirst()) {
-                Log.e(TAG, "Found circular references in choices");
-                isValid = false;
+            StoryGraphAnalyzer.Analysis story;
+            if (cached == null || cached.story == null || (dirty & IntegrityCache.STORY_CHECK) != 0) {
+                SQLiteDatabase storyDb = storyDatabase.acquire();
+                try {
+                    story = StoryGraphAnalyzer.analyze(StoryEdges.load(storyDb));
+                } finally {
+                    storyDatabase.release(storyDb);
+                }
+                if (story.danglingSources.length > 0) {
+                    Log.e(TAG, "Found invalid dialog references in choices: " + Arrays.toString(story.missingDialogIds));
+                }
+                if (story.deadEnds.length > 0) {
+                    Log.w(TAG, "Found dialog(s) without choices (potential dead ends): " + Arrays.toString(story.deadEnds));
+                }
+                for (int[] trap : story.traps) {
+                    Log.e(TAG, "Found circular references with no way out: " + Arrays.toString(trap));
+                }
+            } else {
+                story = cached.story;
             }
 
-            return isValid;
+            IntegrityReport report = new IntegrityReport(story, orphanedProgress, invalidProgressDialogs);
+            integrityCache.store(report);
+            Log.d(TAG, report.toString());
+            return report;
         } catch (Exception e) {
             Log.e(TAG, "Error checking database integrity", e);
-            return false;
-        } finally {
-            if (cursor != null && !cursor.isClosed()) {
-                cursor.close();
+            integrityCache.invalidate();
+            return IntegrityReport.failed(String.valueOf(e.getMessage()));
+        }
+    }
+
+    // Dialogs are in story.db, so progress is checked against them here instead of with a join
+    private int countInvalidProgressDialogs(SQLiteDatabase db) {
+        int invalid = 0;
+        try (Cursor cursor = db.rawQuery(Queries.ALL_PROGRESS_DIALOGS, null)) {
+            while (cursor.moveToNext()) {
+                if (!isValidDialog(cursor.getInt(0))) {
+                    invalid++;
+                }
             }
         }
+        return invalid;
     }
 
-    public boolean validateStoryConsistency() {
-        SQLiteDatabase db = this.getReadableDatabase();
-        boolean isValid = true;
-        Cursor cursor = null;
+    private static int queryCount(SQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.rawQuery(sql, null)) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+    }
 
+    /**
+     * Checks that the story has dialogs and that every dialog can be reached from dialog 1.
+     * Uses the in-memory story graph, so no query runs once it is loaded.
+     */
+    public boolean validateStoryConsistency() {
         try {
-            // Check if we have at least one dialog
-            cursor = db.rawQuery("SELECT COUNT(*) FROM dialogs", null);
-            if (cursor.moveToFirst() && cursor.getInt(0) == 0) {
+            StoryReachability reachability = getStoryReachability();
+            if (reachability == null) {
+                Log.e(TAG, "Story tables could not be read");
+                return false;
+            }
+            if (reachability.getReachableCount() + reachability.getUnreachableCount() == 0) {
                 Log.e(TAG, "No dialogs found in the database");
                 return false;
             }
-            cursor.close();
-
-            // Check if dialog IDs are sequential
-            cursor = db.rawQuery(
-                    "WITH RECURSIVE numbers(num) AS (" +
-                            "  SELECT 1 " +
-                            "  UNION ALL " +
-                            "  SELECT num + 1 FROM numbers " +
-                            "  WHERE num < (SELECT MAX(id) FROM dialogs)" +
-                            ") " +
-                            "SELECT num FROM numbers " +
-                            "WHERE num NOT IN (SELECT id FROM dialogs) " +
-                            "LIMIT 1",
-                    null
-            );
-            if (cursor.moveToFirst()) {
-                Log.e(TAG, "Non-sequential dialog IDs found");
-                isValid = false;
+            if (reachability.getReachableCount() == 0) {
+                Log.e(TAG, "Start dialog " + START_DIALOG_ID + " does not exist");
+                return false;
             }
-            cursor.close();
-
-            // Check for unreachable dialogs
-            cursor = db.rawQuery(
-                    "WITH RECURSIVE reachable_dialogs(id) AS (" +
-                            "  SELECT 1 " + // Start from dialog 1
-                            "  UNION " +
-                            "  SELECT DISTINCT c.next_dialog_id " +
-                            "  FROM reachable_dialogs rd " +
-                            "  JOIN choices c ON rd.id = c.dialog_id" +
-                            ") " +
-                            "SELECT d.id FROM dialogs d " +
-                            "LEFT JOIN reachable_dialogs rd ON d.id = rd.id " +
-                            "WHERE rd.id IS NULL",
-                    null
-            );
-            if (cursor.moveToFirst()) {
-                Log.e(TAG, "Found unreachable dialogs");
-                isValid = false;
+            if (reachability.getUnreachableCount() > 0) {
+                Log.e(TAG, "Found unreachable dialogs: " + Arrays.toString(reachability.getUnreachableIds()));
+                return false;
             }
-
-            return isValid;
+            Log.d(TAG, "Story consistency: " + reachability);
+            return true;
         } catch (Exception e) {
             Log.e(TAG, "Error validating story consistency", e);
             return false;
-        } finally {
-            if (cursor != null && !cursor.isClosed()) {
-                cursor.close();
-            }
         }
     }
 
     // Add this method to validate choice references
     private boolean validateChoiceReference(int dialogId, int nextDialogId) {
-        SQLiteDatabase db = this.getReadableDatabase();
+        SQLiteDatabase db = storyDatabase.acquire();
         Cursor cursor = null;
         try {
             // Check if both the current dialog and next dialog exist
@@ -1931,23 +918,25 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             if (cursor != null) {
                 cursor.close();
             }
+            storyDatabase.release(db);
         }
     }
 
     public List<Choice> getChoicesForDialog(int dialogId) {
         logDatabaseOperation("getChoicesForDialog", "dialogId=" + dialogId);
 
+        StoryGraph graph = getStoryGraph();
+        if (graph != null) {
+            List<Choice> graphChoices = graph.getChoices(dialogId);
+            logDatabaseOperation("getChoicesForDialog", "Found " + graphChoices.size() + " valid choices");
+            return graphChoices;
+        }
+
         List<Choice> choices = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
+        SQLiteDatabase db = storyDatabase.acquire();
         Cursor cursor = null;
         try {
-            cursor = db.rawQuery(
-                    "SELECT c.id, c.dialog_id, c.choice_text, c.next_dialog_id, c.created_at " +
-                            "FROM choices c " +
-                            "WHERE c.dialog_id = ? " +
-                            "ORDER BY c.id",
-                    new String[]{String.valueOf(dialogId)}
-            );
+            cursor = db.rawQuery(Queries.CHOICES_FOR_DIALOG, new String[]{String.valueOf(dialogId)});
 
             if (cursor.moveToFirst()) {
                 do {
@@ -1991,10 +980,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             if (choices.isEmpty()) {
                 Log.w(TAG, "No valid choices found for dialog " + dialogId);
                 // Check if choices exist but are invalid
-                Cursor allChoicesCursor = db.rawQuery(
-                        "SELECT COUNT(*) FROM choices WHERE dialog_id = ?",
-                        new String[]{String.valueOf(dialogId)}
-                );
+                Cursor allChoicesCursor = db.rawQuery(Queries.CHOICE_COUNT_FOR_DIALOG,
+                        new String[]{String.valueOf(dialogId)});
                 if (allChoicesCursor.moveToFirst()) {
                     int totalChoices = allChoicesCursor.getInt(0);
                     Log.w(TAG, "Total choices in DB for dialog " + dialogId + ": " + totalChoices);
@@ -2011,35 +998,29 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             if (cursor != null && !cursor.isClosed()) {
                 cursor.close();
             }
+            storyDatabase.release(db);
         }
     }
 
     private boolean isValidDialog(int dialogId) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = null;
+        StoryGraph graph = storyGraph;
+        if (graph != null) {
+            return graph.hasDialog(dialogId);
+        }
         try {
-            cursor = db.rawQuery("SELECT 1 FROM dialogs WHERE id = ? LIMIT 1",
-                    new String[]{String.valueOf(dialogId)});
-            return cursor.moveToFirst();
+            return queryStoryForLong(Queries.DIALOG_EXISTS, dialogId) != 0;
         } catch (Exception e) {
             Log.e(TAG, "Error validating dialog " + dialogId, e);
             return false;
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
         }
     }
 
     private int findNearestValidDialog(int targetDialogId) {
-        SQLiteDatabase db = this.getReadableDatabase();
+        SQLiteDatabase db = storyDatabase.acquire();
         Cursor cursor = null;
         try {
             // Try to find the next valid dialog after the target
-            cursor = db.rawQuery(
-                    "SELECT id FROM dialogs WHERE id >= ? ORDER BY id ASC LIMIT 1",
-                    new String[]{String.valueOf(targetDialogId)}
-            );
+            cursor = db.rawQuery(Queries.DIALOG_AT_OR_AFTER, new String[]{String.valueOf(targetDialogId)});
 
             if (cursor.moveToFirst()) {
                 return cursor.getInt(0);
@@ -2047,7 +1028,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
             // If no dialog found after target, try the last valid dialog
             cursor.close();
-            cursor = db.rawQuery("SELECT MAX(id) FROM dialogs", null);
+            cursor = db.rawQuery(Queries.LAST_DIALOG_ID, null);
             if (cursor.moveToFirst()) {
                 return cursor.getInt(0);
             }
@@ -2060,26 +1041,27 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             if (cursor != null) {
                 cursor.close();
             }
+            storyDatabase.release(db);
         }
     }
 
     public int getUserDialogId(int userId) {
+        Integer pendingDialogId = progressJournal.getPendingDialogId(userId);
+        if (pendingDialogId != null) {
+            return pendingDialogId;
+        }
+
         SQLiteDatabase db = null;
-        Cursor cursor = null;
         try {
             db = this.getReadableDatabase();
-            cursor = db.rawQuery(
-                    "SELECT current_dialog_id FROM progress WHERE user_id = ?",
-                    new String[]{String.valueOf(userId)}
-            );
-
-            if (cursor != null && cursor.moveToFirst()) {
-                int dialogId = cursor.getInt(0);
+            try {
+                int dialogId = (int) statements.queryForLong(db, Queries.USER_DIALOG, userId);
                 Log.d(TAG, "Found dialog ID " + dialogId + " for user " + userId);
                 return dialogId;
+            } catch (SQLiteDoneException e) {
+                // If no progress found, initialize it below
             }
 
-            // If no progress found, initialize it
             Log.d(TAG, "No progress found for user " + userId + ", initializing");
             try {
                 ContentValues values = new ContentValues();
@@ -2087,6 +1069,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 values.put("current_dialog_id", 1);
                 values.put("last_updated", System.currentTimeMillis());
                 db.insert("progress", null, values);
+                markWritten(IntegrityCache.PROGRESS);
                 return 1;
             } catch (Exception e) {
                 Log.e(TAG, "Error creating progress for user " + userId, e);
@@ -2095,40 +1078,20 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         } catch (Exception e) {
             Log.e(TAG, "Error getting user dialog ID for user " + userId, e);
             return 1; // Default starting point
-        } finally {
-            if (cursor != null) {
-                try {
-                    cursor.close();
-                } catch (Exception e) {
-                    Log.e(TAG, "Error closing cursor", e);
-                }
-            }
         }
     }
 
     public int getDialogCount() {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = null;
-        try {
-            cursor = db.rawQuery("SELECT COUNT(*) FROM dialogs", null);
-            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-        }
+        return (int) queryStoryForLong(Queries.DIALOG_COUNT);
     }
 
     public List<Integer> getDanglingNextDialogIds() {
         List<Integer> missingDialogs = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
+        SQLiteDatabase db = storyDatabase.acquire();
         Cursor cursor = null;
 
         try {
-            cursor = db.rawQuery(
-                    "SELECT DISTINCT next_dialog_id FROM choices WHERE next_dialog_id NOT IN (SELECT id FROM dialogs)",
-                    null
-            );
+            cursor = db.rawQuery(Queries.DANGLING_NEXT_DIALOGS, null);
 
             if (cursor.moveToFirst()) {
                 do {
@@ -2140,85 +1103,207 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             if (cursor != null) {
                 cursor.close();
             }
+            storyDatabase.release(db);
         }
     }
 
-    // Helper method to backup the database
-    public void backupDatabase(Context context) {
+    /**
+     * Adds a backup generation to the chunk store in files/backups while the database stays open.
+     * A consistent snapshot is taken first (see {@link HotBackup}); only that step holds up
+     * writes. Only the pages that changed since earlier generations are stored.
+     */
+    @NonNull
+    public BackupStats backupDatabase(Context context) {
+        return backupDatabase(context, ParallelGzip.Level.BALANCED);
+    }
+
+    @NonNull
+    BackupStats backupDatabase(Context context, @NonNull ParallelGzip.Level level) {
         if (context == null) {
             throw new IllegalArgumentException("Context cannot be null");
         }
 
-        SQLiteDatabase db = this.getReadableDatabase();
-        String timestamp = String.format("%tF_%<tH%<tM%<tS", System.currentTimeMillis());
-        String backupFileName = String.format("backup_%s.db.gz", timestamp);
-        String backupPath = context.getFilesDir() + "/" + backupFileName;
+        // Include progress that is still waiting in the journal
+        progressJournal.flush();
+
+        String timestamp = String.format("%tF_%<tH%<tM%<tS_%<tL", System.currentTimeMillis());
+        String generation = "backup_" + timestamp;
+        ChunkStore store;
+        try {
+            store = openBackupStore(context, level);
+        } catch (IOException e) {
+            // Never fall back to a plaintext backup; the scheduler tries again later
+            Log.e(TAG, "Failed to backup database", e);
+            throw new RuntimeException("Database backup failed", e);
+        }
+        File snapshot = new File(context.getCacheDir(), "backup_snapshot.db");
 
         try {
             // Ensure database integrity before backup
-            if (!checkDatabaseIntegrity()) {
-                throw new IllegalStateException("Database integrity check failed before backup");
+            IntegrityReport integrity = checkDatabaseIntegrity();
+            if (!integrity.isValid()) {
+                throw new IllegalStateException("Database integrity check failed before backup: " + integrity);
             }
 
-            // Close database before copying
-            db.close();
-
-            // Get the current database file
             File currentDB = context.getDatabasePath(DB_NAME);
-            File backupDB = new File(backupPath);
+            if (!currentDB.exists()) {
+                throw new FileNotFoundException("Source database does not exist");
+            }
 
-            if (currentDB.exists()) {
-                // Use try-with-resources for compression
-                try (FileInputStream fis = new FileInputStream(currentDB);
-                     GZIPOutputStream gzos = new GZIPOutputStream(new FileOutputStream(backupDB))) {
+            long pauseStart = System.nanoTime();
+            String method = HotBackup.snapshot(this.getWritableDatabase(), currentDB, snapshot);
+            long pauseNanos = System.nanoTime() - pauseStart;
 
-                byte[] buffer = new byte[1024];
-                int length;
-                while ((length = fis.read(buffer)) > 0) {
-                        gzos.write(buffer, 0, length);
-                    }
-                    gzos.finish();
+            long compressStart = System.nanoTime();
+            ChunkStore.Manifest manifest = store.write(snapshot, generation);
+            long compressNanos = System.nanoTime() - compressStart;
+            String backupPath = store.getManifestFile(generation).getPath();
+            BackupStats stats = new BackupStats(backupPath, method, manifest.size, manifest.newChunkBytes,
+                    pauseNanos, compressNanos, manifest.chunks.length, manifest.newChunkCount);
 
-                    // Verify backup file exists and is readable
-                    if (!backupDB.canRead()) {
-                        throw new IOException("Backup file not readable: " + backupPath);
-                    }
+            BackupCatalog catalog = getBackupCatalog(context);
+            catalog.add(new BackupCatalog.Entry(BACKUP_DIR + "/" + generation + ChunkStore.MANIFEST_SUFFIX,
+                    manifest.createdMillis, manifest.size, manifest.sha256, false));
+            int prunedChunks = pruneBackups(context, catalog, store);
 
-                    // Clean up old backups (keep only last 7 days of backups)
-                    File backupDir = new File(context.getFilesDir().toString());
-                    File[] backups = backupDir.listFiles((dir, name) ->
-                            name.startsWith("backup_") && name.endsWith(".db.gz"));
-                    
-                    if (backups != null) {
-                        long sevenDaysAgo = System.currentTimeMillis() - (7 * 24 * 60 * 60 * 1000L);
-                        for (File backup : backups) {
-                            if (backup.lastModified() < sevenDaysAgo) {
-                                backup.delete();
-                            }
-                        }
-                    }
+            Log.d(TAG, "Database backed up successfully to: " + backupPath + " (" + stats
+                    + ", pruned " + prunedChunks + " chunks)");
+            return stats;
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to backup database", e);
+            // Chunks of a generation without a manifest are removed by the next garbage collection
+            store.getManifestFile(generation).delete();
+            throw new RuntimeException("Database backup failed", e);
+        } finally {
+            HotBackup.deleteSnapshot(snapshot);
+        }
+    }
+
+    /**
+     * Deletes the backups the retention policy no longer keeps, then the chunks only they used.
+     * Returns the number of chunks deleted. Nothing on disk is listed unless a backup expired.
+     */
+    private int pruneBackups(Context context, BackupCatalog catalog, ChunkStore store) throws IOException {
+        List<BackupCatalog.Entry> expired = catalog.selectExpired(System.currentTimeMillis(),
+                BackupCatalog.Retention.DEFAULT);
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        for (BackupCatalog.Entry entry : expired) {
+            new File(context.getFilesDir(), entry.name).delete();
+            catalog.remove(entry.name);
+        }
 
-                    Log.d(TAG, "Database backed up successfully to: " + backupPath);
+        List<File> liveManifests = new ArrayList<>();
+        for (BackupCatalog.Entry entry : catalog.list()) {
+            if (entry.name.endsWith(ChunkStore.MANIFEST_SUFFIX)) {
+                liveManifests.add(new File(context.getFilesDir(), entry.name));
+            }
+        }
+        return store.collectGarbage(liveManifests);
+    }
+
+    @NonNull
+    private synchronized BackupCatalog getBackupCatalog(Context context) throws IOException {
+        if (backupCatalog != null) {
+            return backupCatalog;
+        }
+        File dir = getBackupDir(context);
+        BackupCatalog catalog = new BackupCatalog(new File(dir, BACKUP_CATALOG));
+        if (!catalog.exists()) {
+            // Index the backups made before the catalog existed, once
+            for (ChunkStore.Manifest manifest : openBackupReader(context).listManifests()) {
+                catalog.add(new BackupCatalog.Entry(BACKUP_DIR + "/" + manifest.name + ChunkStore.MANIFEST_SUFFIX,
+                        manifest.createdMillis, manifest.size, manifest.sha256, false));
+            }
+            File[] legacyBackups = context.getFilesDir().listFiles((d, name) ->
+                    name.startsWith("backup_") && name.endsWith(".db.gz"));
+            if (legacyBackups != null) {
+                for (File backup : legacyBackups) {
+                    catalog.add(new BackupCatalog.Entry(backup.getName(), backup.lastModified(),
+                            backup.length(), "-", false));
                 }
-            } else {
-                throw new FileNotFoundException("Source database does not exist");
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to backup database", e);
-            // Try to delete failed backup file
+            Log.d(TAG, "Created backup catalog with " + catalog.size() + " existing backups");
+        }
+        backupCatalog = catalog;
+        return catalog;
+    }
+
+    @NonNull
+    private static File getBackupDir(Context context) {
+        return new File(context.getFilesDir(), BACKUP_DIR);
+    }
+
+    /**
+     * The backup chunk store for writing, encrypting with the app's backup key.
+     *
+     * @throws IOException when the key cannot be loaded; backups are never written unencrypted
+     */
+    @NonNull
+    private static ChunkStore openBackupStore(Context context, ParallelGzip.Level level) throws IOException {
+        try {
+            return new ChunkStore(getBackupDir(context), level, BackupCipher.getInstance(context));
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Backup key unavailable", e);
+        }
+    }
+
+    /**
+     * The backup chunk store for reading. Without the key, only generations written before
+     * encryption was enabled can be read.
+     */
+    @NonNull
+    private static ChunkStore openBackupReader(Context context) {
+        BackupCipher cipher = null;
+        try {
+            cipher = BackupCipher.getInstance(context);
+        } catch (GeneralSecurityException | IOException e) {
+            Log.e(TAG, "Backup key unavailable, encrypted backups cannot be read", e);
+        }
+        return new ChunkStore(getBackupDir(context), ParallelGzip.Level.BALANCED, cipher);
+    }
+
+    /**
+     * Restores the newest backup that restores cleanly. Backups that fail are marked bad in the
+     * catalog and the next older one is tried. Returns the name of the restored backup, or null
+     * when none could be restored.
+     */
+    @Nullable
+    public String restoreLatestBackup(Context context) {
+        BackupCatalog catalog;
+        try {
+            catalog = getBackupCatalog(context);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot read backup catalog", e);
+            return null;
+        }
+
+        for (BackupCatalog.Entry entry = catalog.getLatestGood(); entry != null; entry = catalog.getLatestGood()) {
             try {
-                new File(backupPath).delete();
-            } catch (Exception deleteError) {
-                Log.e(TAG, "Failed to delete failed backup file", deleteError);
+                restoreFromBackup(context, entry.name);
+                return entry.name;
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Backup " + entry.name + " did not restore, trying an older one", e);
+                try {
+                    catalog.markBad(entry.name);
+                } catch (IOException markError) {
+                    Log.e(TAG, "Cannot update backup catalog", markError);
+                    return null;
+                }
             }
-            throw new RuntimeException("Database backup failed", e);
-        } finally {
-            // Reopen the database
-            db = this.getReadableDatabase();
         }
+        return null;
     }
 
-    // Add method to restore from backup
+    /**
+     * Replaces the database with a backup, given its name relative to the files directory.
+     *
+     * The backup is inflated straight into a staging file next to the database, checked against
+     * its manifest checksum (chunked generations) or gzip CRCs (.db.gz files), then opened for
+     * PRAGMA quick_check. Only a staging file that passes replaces the database, by rename, so
+     * the live database is closed just for the swap and is never left half-written.
+     */
     public void restoreFromBackup(Context context, String backupFileName) {
         if (context == null) {
             throw new IllegalArgumentException("Context cannot be null");
@@ -2227,53 +1312,84 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         String backupPath = context.getFilesDir() + "/" + backupFileName;
         File backupFile = new File(backupPath);
         File currentDB = context.getDatabasePath(DB_NAME);
+        File staging = new File(currentDB.getPath() + RESTORE_SUFFIX);
 
         if (!backupFile.exists()) {
             throw new IllegalArgumentException("Backup file does not exist: " + backupPath);
         }
 
-        SQLiteDatabase db = this.getWritableDatabase();
-        db.close();
-
+        long start = System.nanoTime();
         try {
-            // Create temp file for decompression
-            File tempFile = File.createTempFile("temp_db", ".db", context.getCacheDir());
-            
-            // Decompress backup
-            try (GZIPInputStream gzis = new GZIPInputStream(new FileInputStream(backupFile));
-                 FileOutputStream fos = new FileOutputStream(tempFile)) {
-
-                    byte[] buffer = new byte[1024];
-                    int length;
-                while ((length = gzis.read(buffer)) > 0) {
-                        fos.write(buffer, 0, length);
+            HotBackup.deleteSnapshot(staging);
+            if (backupFileName.endsWith(ChunkStore.MANIFEST_SUFFIX)) {
+                // Reassemble a chunked generation, checking every chunk and the whole-file hash
+                ChunkStore store = openBackupReader(context);
+                store.restore(store.readManifest(backupFile), staging);
+            } else {
+                // Inflate a full .db.gz backup; every gzip member carries its own CRC
+                try (FileInputStream fis = new FileInputStream(backupFile);
+                     FileOutputStream fos = new FileOutputStream(staging)) {
+                    ParallelGzip.decompress(fis, fos);
+                    fos.getFD().sync();
                 }
             }
+            long stagedNanos = System.nanoTime() - start;
+            verifyStagedDatabase(staging);
 
-            // Verify temp file integrity
-            SQLiteDatabase verifyDb = SQLiteDatabase.openDatabase(
-                tempFile.getPath(), null, SQLiteDatabase.OPEN_READONLY);
-            verifyDb.close();
+            // Positions recorded before the restore must not overwrite the restored progress
+            progressJournal.clear();
 
-            // Copy temp file to actual database location
-            try (FileChannel src = new FileInputStream(tempFile).getChannel();
-                 FileChannel dst = new FileOutputStream(currentDB).getChannel()) {
-                dst.transferFrom(src, 0, src.size());
+            // Swap: the old WAL must go too, or SQLite would replay it onto the restored file
+            close();
+            new File(currentDB.getPath() + "-wal").delete();
+            new File(currentDB.getPath() + "-shm").delete();
+            new File(currentDB.getPath() + "-journal").delete();
+            if (!staging.renameTo(currentDB)) {
+                throw new IOException("Cannot move restored database into place");
             }
 
-            // Clean up temp file
-            tempFile.delete();
+            invalidateStoryGraph();
+            integrityCache.invalidate();
+            markProgressChanged();
 
-            Log.d(TAG, "Database restored successfully from: " + backupPath);
+            Log.d(TAG, "Database restored successfully from: " + backupPath + " (staged in "
+                    + stagedNanos / 1_000_000 + "ms, total " + (System.nanoTime() - start) / 1_000_000 + "ms)");
         } catch (Exception e) {
             Log.e(TAG, "Failed to restore database", e);
             throw new RuntimeException("Database restore failed", e);
         } finally {
+            HotBackup.deleteSnapshot(staging);
             // Reopen the database
-            db = this.getWritableDatabase();
+            getWritableDatabase();
         }
     }
 
+    /**
+     * Opens a staged restore on its own connection and rejects it unless PRAGMA quick_check
+     * passes and its schema is not newer than this app understands.
+     */
+    private static void verifyStagedDatabase(File staging) throws IOException {
+        SQLiteDatabase staged = SQLiteDatabase.openDatabase(staging.getPath(), null,
+                SQLiteDatabase.OPEN_READWRITE);
+        try {
+            if (staged.getVersion() > DB_VERSION) {
+                throw new IOException("Backup is from a newer version (" + staged.getVersion() + ")");
+            }
+            try (Cursor cursor = staged.rawQuery("PRAGMA quick_check", null)) {
+                String result = cursor.moveToFirst() ? cursor.getString(0) : null;
+                if (!"ok".equalsIgnoreCase(result)) {
+                    throw new IOException("Backup failed quick_check: " + result);
+                }
+            }
+        } finally {
+            staged.close();
+        }
+        // Closing the only connection checkpoints and removes any WAL, leaving one file to move
+        new File(staging.getPath() + "-wal").delete();
+        new File(staging.getPath() + "-shm").delete();
+        new File(staging.getPath() + "-journal").delete();
+    }
+
     // Add a new method for handling database upgrades with backup
     public void upgradeWithBackup(Context context) {
         try {
@@ -2290,213 +1406,64 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }
     }
 
+    /**
+     * Checks that the start dialog exists and every choice links two existing dialogs. story.db is
+     * read-only, so a damaged story is not patched in place but reinstalled as shipped.
+     */
     public void verifyAndRepairStoryData() {
-        SQLiteDatabase db = this.getWritableDatabase();
-        db.beginTransaction();
         try {
-            // Check if we have any dialogs at all
-            Cursor dialogCheck = db.rawQuery("SELECT COUNT(*) FROM dialogs", null);
-            dialogCheck.moveToFirst();
-            int dialogCount = dialogCheck.getInt(0);
-            dialogCheck.close();
-
-            if (dialogCount == 0) {
-                Log.w(TAG, "No dialogs found. Creating emergency story.");
-                FallbackStoryCreator.createEmergencyStory(db);
-                db.setTransactionSuccessful();
-                return;
-            }
-
-            // Check if dialog 1 exists (required starting point)
-            Cursor startCheck = db.rawQuery("SELECT 1 FROM dialogs WHERE id = 1", null);
-            boolean hasStartDialog = startCheck.moveToFirst();
-            startCheck.close();
-
-            if (!hasStartDialog) {
-                Log.w(TAG, "Starting dialog (id=1) missing. Creating fallback start.");
-                try {
-                    db.execSQL("INSERT INTO dialogs (id, text, created_at) VALUES (1, ?, ?)",
-                            new Object[]{
-                                    "Welcome! The story begins here.\n\nThis dialog was created to ensure the game can start properly.",
-                                    System.currentTimeMillis()
-                            });
-                } catch (Exception e) {
-                    Log.e(TAG, "Failed to create starting dialog", e);
-                }
+            boolean hasStartDialog;
+            int invalidChoices;
+            SQLiteDatabase story = storyDatabase.acquire();
+            try {
+                hasStartDialog = statements.queryForLong(story, Queries.DIALOG_EXISTS, START_DIALOG_ID) != 0;
+                invalidChoices = queryCount(story, Queries.INVALID_CHOICE_COUNT);
+            } finally {
+                storyDatabase.release(story);
             }
-
-            // Verify choices point to valid dialogs and clean up invalid ones
-            Cursor choiceCheck = db.rawQuery(
-                    "SELECT c.id, c.dialog_id, c.next_dialog_id " +
-                            "FROM choices c " +
-                            "LEFT JOIN dialogs d1 ON c.dialog_id = d1.id " +
-                            "LEFT JOIN dialogs d2 ON c.next_dialog_id = d2.id " +
-                            "WHERE d1.id IS NULL OR d2.id IS NULL",
-                    null
-            );
-
-            if (choiceCheck.moveToFirst()) {
-                Log.w(TAG, "Invalid choice references detected. Cleaning up...");
-                do {
-                    int choiceId = choiceCheck.getInt(choiceCheck.getColumnIndexOrThrow("id"));
-                    Log.d(TAG, "Removing invalid choice: " + choiceId);
-                    db.execSQL("DELETE FROM choices WHERE id = ?", new String[]{String.valueOf(choiceId)});
-                } while (choiceCheck.moveToNext());
+            if (hasStartDialog && invalidChoices == 0) {
+                Log.d(TAG, "Story data verification passed");
+                return;
             }
-            choiceCheck.close();
 
-            db.setTransactionSuccessful();
+            Log.w(TAG, "Story data damaged (start dialog " + (hasStartDialog ? "present" : "missing")
+                    + ", " + invalidChoices + " invalid choice(s)), reinstalling " + StoryDatabase.NAME);
+            storyDatabase.reinstall();
+            invalidateStoryGraph();
             Log.d(TAG, "Story data verification and repair completed");
         } catch (Exception e) {
             Log.e(TAG, "Error during story data verification", e);
             // Don't throw exception - try to continue with whatever data we have
-        } finally {
-            db.endTransaction();
-        }
-    }
-
-    private void executeSqlStatementsFromFile(SQLiteDatabase db, Context context, String filename, boolean dialogsOnly) throws IOException {
-        InputStream inputStream = null;
-        BufferedReader reader = null;
-        try {
-            inputStream = context.getAssets().open(filename);
-            reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
-            
-            StringBuilder statement = new StringBuilder();
-            String line;
-            int openParens = 0;
-            boolean inStatement = false;
-            
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                
-                // Skip empty lines and comments
-                if (line.isEmpty() || line.startsWith("--")) {
-                    continue;
-                }
-                
-                // Count parentheses to handle multi-line statements
-                openParens += countChar(line, '(') - countChar(line, ')');
-                
-                // Check if we're starting a new statement
-                if (line.toUpperCase().startsWith("INSERT INTO")) {
-                    inStatement = true;
-                }
-                
-                if (inStatement) {
-                    statement.append(line).append(" ");
-                    
-                    // Check if we've reached the end of a complete statement
-                    if (openParens == 0 && line.endsWith(";")) {
-                        String sql = statement.toString().trim();
-                        boolean isDialogInsert = sql.toLowerCase().contains("insert into dialogs");
-                        boolean isChoiceInsert = sql.toLowerCase().contains("insert into choices");
-                        
-                        // Execute statement based on pass
-                        if ((dialogsOnly && isDialogInsert) || (!dialogsOnly && isChoiceInsert)) {
-                            try {
-                                // Handle multiple value sets in a single INSERT
-                                if (sql.contains("VALUES") && sql.contains(",") && sql.contains("(")) {
-                                    // Split into individual INSERT statements
-                                    String baseInsert = sql.split("VALUES")[0].trim() + " VALUES ";
-                                    String values = sql.split("VALUES")[1].trim();
-                                    values = values.substring(0, values.length() - 1); // Remove semicolon
-                                    
-                                    String[] valueSets = values.split("\\),\\s*\\(");
-                                    for (int i = 0; i < valueSets.length; i++) {
-                                        String valueSet = valueSets[i];
-                                        if (!valueSet.startsWith("(")) valueSet = "(" + valueSet;
-                                        if (!valueSet.endsWith(")")) valueSet = valueSet + ")";
-                                        
-                                        String individualSql = baseInsert + valueSet + ";";
-                                        Log.d(TAG, "Executing SQL: " + individualSql);
-                                        db.execSQL(individualSql);
-                                    }
-                } else {
-                                    Log.d(TAG, "Executing SQL: " + sql);
-                                    db.execSQL(sql);
-                                }
-                            } catch (SQLException e) {
-                                Log.e(TAG, "Error executing SQL: " + sql, e);
-                                throw e;
-                            }
-                        }
-                        
-                        // Reset for next statement
-                        statement.setLength(0);
-                        inStatement = false;
-                        openParens = 0;
-                    }
-                }
-            }
-            
-            // Check for unclosed statements
-            if (statement.length() > 0) {
-                Log.w(TAG, "Unclosed SQL statement found: " + statement.toString());
-            }
-            
-        } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-            } catch (IOException e) {
-                    Log.e(TAG, "Error closing reader", e);
-                }
-            }
-            if (inputStream != null) {
-                try {
-                    inputStream.close();
-                } catch (IOException e) {
-                    Log.e(TAG, "Error closing input stream", e);
-                }
-            }
         }
     }
 
-    private int countChar(String str, char c) {
-        int count = 0;
-        for (int i = 0; i < str.length(); i++) {
-            if (str.charAt(i) == c) count++;
-        }
-        return count;
-    }
-
     public int getLastWorkingDialogId(int userId) {
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = null;
         try {
+            // A position that has not been flushed yet is the most recent one
+            Integer pendingDialogId = progressJournal.getPendingDialogId(userId);
+            StoryGraph graph = getStoryGraph();
+            if (pendingDialogId != null && graph != null && graph.hasDialog(pendingDialogId)) {
+                return pendingDialogId;
+            }
+
             // First try to get the user's current dialog
-            cursor = db.rawQuery(
-                "SELECT current_dialog_id FROM progress WHERE user_id = ?",
-                new String[]{String.valueOf(userId)}
-            );
+            cursor = db.rawQuery(Queries.USER_DIALOG, new String[]{String.valueOf(userId)});
 
+            int currentDialogId = 1;
             if (cursor.moveToFirst()) {
-                int currentDialogId = cursor.getInt(0);
-                cursor.close();
+                currentDialogId = cursor.getInt(0);
 
                 // Verify if this dialog exists
-                cursor = db.rawQuery(
-                    "SELECT 1 FROM dialogs WHERE id = ?",
-                    new String[]{String.valueOf(currentDialogId)}
-                );
-
-                if (cursor.moveToFirst()) {
+                if (isValidDialog(currentDialogId)) {
                     return currentDialogId;  // Current dialog exists and is valid
                 }
             }
 
-            // If current dialog is invalid, find the last valid dialog
-            cursor = db.rawQuery(
-                "SELECT MAX(id) FROM dialogs WHERE id <= (SELECT COALESCE(MAX(current_dialog_id), 1) FROM progress WHERE user_id = ?)",
-                new String[]{String.valueOf(userId)}
-            );
-
-            if (cursor.moveToFirst() && !cursor.isNull(0)) {
-                return cursor.getInt(0);
-            }
-
-            return 1;  // Default to first dialog if no valid dialog found
+            // If current dialog is invalid, find the last valid dialog before it
+            long lastValidId = queryStoryForLong(Queries.DIALOG_AT_OR_BEFORE, currentDialogId);
+            return (int) lastValidId;  // Defaults to the first dialog if no valid dialog found
         } catch (Exception e) {
             Log.e(TAG, "Error getting last working dialog ID", e);
             return 1;  // Return to first dialog on error
@@ -3,6 +3,7 @@ package com.example.finaltermproject;
 import android.os.Parcel;
 import android.os.Parcelable;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import java.util.Objects;
 
 public final class DialogEntry implements Parcelable {
@@ -10,8 +11,14 @@ public final class DialogEntry implements Parcelable {
     
     private final int id;
     private final String text;
+    @Nullable
+    private final String character;  // Precomputed at import, null when no character is shown
 
     public DialogEntry(int id, @NonNull String text) {
+        this(id, text, null);
+    }
+
+    public DialogEntry(int id, @NonNull String text, @Nullable String character) {
         if (id < 0) {
             throw new IllegalArgumentException("Dialog ID cannot be negative");
         }
@@ -19,6 +26,7 @@ public final class DialogEntry implements Parcelable {
         
         this.id = id;
         this.text = text;
+        this.character = character;
     }
 
     private static void validateText(@NonNull String text) {
@@ -46,17 +54,25 @@ public final class DialogEntry implements Parcelable {
         return text;
     }
 
+    /**
+     * Key of the character to show with this dialog, or null for none.
+     */
+    @Nullable
+    public String getCharacter() {
+        return character;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         DialogEntry that = (DialogEntry) o;
-        return id == that.id && Objects.equals(text, that.text);
+        return id == that.id && Objects.equals(text, that.text) && Objects.equals(character, that.character);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, text);
+        return Objects.hash(id, text, character);
     }
 
     @NonNull
@@ -65,6 +81,7 @@ public final class DialogEntry implements Parcelable {
         return "DialogEntry{" +
                "id=" + id +
                ", text='" + text + '\'' +
+               ", character=" + character +
                '}';
     }
 
@@ -72,12 +89,14 @@ public final class DialogEntry implements Parcelable {
     protected DialogEntry(Parcel in) {
         id = in.readInt();
         text = in.readString();
+        character = in.readString();
     }
 
     @Override
     public void writeToParcel(Parcel dest, int flags) {
         dest.writeInt(id);
         dest.writeString(text);
+        dest.writeString(character);
     }
 
     @Override
@@ -0,0 +1,183 @@
+package com.example.finaltermproject;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.text.Spannable;
+import android.text.SpannableString;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.RelativeSizeSpan;
+import android.text.style.StyleSpan;
+import android.util.Log;
+import android.util.LruCache;
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Turns dialog text into the styled text shown by {@link GameActivity}.
+ *
+ * Each dialog is laid out once into a {@link DialogLayout}. Layouts are kept in an LRU keyed by
+ * dialog id and content hash, so edited text is never served stale. The cache can be written
+ * to disk and reloaded on the next launch.
+ */
+public class DialogFormatter {
+    private static final String TAG = "DialogFormatter";
+
+    static final String CACHE_FILE = "dialog_layouts.bin";
+    private static final int CACHE_MAGIC = 0x444C4159; // "DLAY"
+    private static final int CACHE_SIZE = 128;
+
+    private final LruCache<Long, DialogLayout> cache = new LruCache<>(CACHE_SIZE);
+    private final File cacheFile;
+    private volatile boolean dirty = false;
+
+    // Resolved once instead of on every span
+    private final Integer nameColor;
+    private final Integer speechColor;
+
+    public DialogFormatter(@NonNull Context context) {
+        this.cacheFile = new File(context.getFilesDir(), CACHE_FILE);
+        this.nameColor = resolveColor(context, R.color.colorBackground);
+        this.speechColor = resolveColor(context, R.color.character_speech);
+    }
+
+    private static Integer resolveColor(Context context, int colorRes) {
+        try {
+            return ContextCompat.getColor(context, colorRes);
+        } catch (Exception e) {
+            // Use default color if custom color not available
+            return null;
+        }
+    }
+
+    @NonNull
+    public SpannableString format(@NonNull DialogEntry dialog) {
+        return format(dialog.getId(), dialog.getText());
+    }
+
+    @NonNull
+    public SpannableString format(int dialogId, String rawText) {
+        return toSpannable(getLayout(dialogId, rawText));
+    }
+
+    @NonNull
+    public DialogLayout getLayout(int dialogId, String rawText) {
+        int hash = DialogLayout.contentHash(rawText);
+        long key = cacheKey(dialogId, hash);
+        DialogLayout layout = cache.get(key);
+        if (layout == null) {
+            layout = DialogLayout.compute(dialogId, rawText);
+            cache.put(key, layout);
+            dirty = true;
+        }
+        return layout;
+    }
+
+    @NonNull
+    public SpannableString toSpannable(@NonNull DialogLayout layout) {
+        SpannableString spannable = new SpannableString(layout.getText());
+        try {
+            for (int run = 0; run < layout.getRunCount(); run++) {
+                int start = layout.getRunStart(run);
+                int end = layout.getRunEnd(run);
+                switch (layout.getRunType(run)) {
+                    case DialogLayout.RUN_NAME:
+                        // Character names: bold, slightly larger
+                        spannable.setSpan(new StyleSpan(Typeface.BOLD), start, end, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+                        spannable.setSpan(new RelativeSizeSpan(1.1f), start, end, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+                        if (nameColor != null) {
+                            spannable.setSpan(new ForegroundColorSpan(nameColor), start, end, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+                        }
+                        break;
+                    case DialogLayout.RUN_SPEECH:
+                        spannable.setSpan(new StyleSpan(Typeface.ITALIC), start, end, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+                        if (speechColor != null) {
+                            spannable.setSpan(new ForegroundColorSpan(speechColor), start, end, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+                        }
+                        break;
+                    case DialogLayout.RUN_EMPHASIS:
+                        spannable.setSpan(new StyleSpan(Typeface.ITALIC), start, end, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error formatting spannable text", e);
+        }
+        return spannable;
+    }
+
+    private static long cacheKey(int dialogId, int contentHash) {
+        return ((long) dialogId << 32) | (contentHash & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Loads layouts written by {@link #persist()}. Should be called off the main thread.
+     */
+    public void loadPersisted() {
+        if (!cacheFile.exists()) {
+            return;
+        }
+        int loaded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if (in.readInt() != CACHE_MAGIC || in.readInt() != DialogLayout.FORMAT_VERSION) {
+                Log.d(TAG, "Ignoring layout cache from another format version");
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                DialogLayout layout = DialogLayout.readFrom(in);
+                long key = cacheKey(layout.getDialogId(), layout.getContentHash());
+                if (cache.get(key) == null) {
+                    cache.put(key, layout);
+                    loaded++;
+                }
+            }
+            Log.d(TAG, "Loaded " + loaded + " cached dialog layouts");
+        } catch (IOException e) {
+            Log.w(TAG, "Error reading layout cache, discarding it: " + e.getMessage());
+            if (!cacheFile.delete()) {
+                Log.w(TAG, "Could not delete " + cacheFile);
+            }
+        }
+    }
+
+    /**
+     * Writes the cached layouts to disk when anything changed since the last write.
+     */
+    public void persist() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+
+        Map<Long, DialogLayout> snapshot = cache.snapshot();
+        File temp = new File(cacheFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(CACHE_MAGIC);
+            out.writeInt(DialogLayout.FORMAT_VERSION);
+            out.writeInt(snapshot.size());
+            for (DialogLayout layout : snapshot.values()) {
+                layout.writeTo(out);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing layout cache", e);
+            dirty = true;
+            return;
+        }
+        if (!temp.renameTo(cacheFile)) {
+            Log.e(TAG, "Could not replace layout cache");
+            dirty = true;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.finaltermproject;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Display text of a dialog after paragraph formatting, plus the style runs to apply to it.
+ *
+ * Runs are stored flat as {type, start, end} triples in the order they are applied. This class
+ * has no Android dependencies so layouts can be computed off the main thread, cached and
+ * written to disk.
+ */
+public final class DialogLayout {
+    // Bumped whenever compute() output or the record format changes, so persisted layouts are recomputed.
+    // Version 2: text is a length-prefixed UTF-8 array instead of writeUTF, which stops at 65535 bytes.
+    static final int FORMAT_VERSION = 2;
+
+    public static final int RUN_NAME = 1;      // **Name**: bold, larger, name color
+    public static final int RUN_SPEECH = 2;    // "quoted speech": italic, speech color
+    public static final int RUN_EMPHASIS = 3;  // *emphasis*: italic
+
+    private final int dialogId;
+    private final int contentHash;
+    private final String text;
+    private final int[] runs;
+
+    DialogLayout(int dialogId, int contentHash, String text, int[] runs) {
+        this.dialogId = dialogId;
+        this.contentHash = contentHash;
+        this.text = text;
+        this.runs = runs;
+    }
+
+    /**
+     * Formats raw dialog text into paragraphs and finds its style runs.
+     */
+    public static DialogLayout compute(int dialogId, String rawText) {
+        return DialogMarkupTokenizer.layout(dialogId, rawText);
+    }
+
+    public static int contentHash(String rawText) {
+        return rawText != null ? rawText.hashCode() : 0;
+    }
+
+    public int getDialogId() {
+        return dialogId;
+    }
+
+    public int getContentHash() {
+        return contentHash;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public int getRunCount() {
+        return runs.length / 3;
+    }
+
+    public int getRunType(int run) {
+        return runs[run * 3];
+    }
+
+    public int getRunStart(int run) {
+        return runs[run * 3 + 1];
+    }
+
+    public int getRunEnd(int run) {
+        return runs[run * 3 + 2];
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(dialogId);
+        out.writeInt(contentHash);
+        byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(encoded.length);
+        out.write(encoded);
+        out.writeInt(runs.length);
+        for (int value : runs) {
+            out.writeInt(value);
+        }
+    }
+
+    static DialogLayout readFrom(DataInput in) throws IOException {
+        int dialogId = in.readInt();
+        int contentHash = in.readInt();
+        int textLength = in.readInt();
+        if (textLength < 0) {
+            throw new IOException("Corrupt dialog layout for dialog " + dialogId);
+        }
+        byte[] encoded = new byte[textLength];
+        in.readFully(encoded);
+        String text = new String(encoded, StandardCharsets.UTF_8);
+        int length = in.readInt();
+        if (length < 0 || length % 3 != 0) {
+            throw new IOException("Corrupt dialog layout for dialog " + dialogId);
+        }
+        int[] runs = new int[length];
+        for (int i = 0; i < length; i++) {
+            runs[i] = in.readInt();
+        }
+        return new DialogLayout(dialogId, contentHash, text, runs);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DialogLayout)) return false;
+        DialogLayout other = (DialogLayout) o;
+        return dialogId == other.dialogId && contentHash == other.contentHash
+                && text.equals(other.text) && Arrays.equals(runs, other.runs);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * text.hashCode() + Arrays.hashCode(runs);
+    }
+}
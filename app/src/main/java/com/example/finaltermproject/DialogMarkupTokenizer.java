@@ -0,0 +1,364 @@
+package com.example.finaltermproject;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Single-pass replacement for the regex-based dialog formatting.
+ *
+ * One linear scan over the raw text normalizes whitespace, finds sentence boundaries with the
+ * flags needed to decide paragraph breaks, and runs the three span matchers (**name**, "speech",
+ * *emphasis*) as small state machines. Paragraph breaks are then applied while copying the
+ * scanned text once more. The output is identical to the previous formatter, which is kept
+ * as a reference in the unit tests.
+ */
+final class DialogMarkupTokenizer {
+    private static final int SHORT_PARAGRAPH = 150;
+    private static final int LONG_RUN = 200;
+
+    private static final String[] DRAMATIC_OPENERS = {"Suddenly", "Then", "But", "However", "Meanwhile"};
+    // Every action word ends in 's', so they are only checked when an 's' is written
+    private static final String[] ACTION_BEATS = {"gasps", "whispers", "shouts", "pauses", "sighs", "turns", "looks", "steps"};
+
+    // Sentence flags
+    private static final int HAS_QUOTE = 1;
+    private static final int HAS_NAME = 1 << 1;
+    private static final int HAS_DOUBLE_STAR = 1 << 2;
+    private static final int HAS_ACTION_BEAT = 1 << 3;
+    private static final int HAS_LINE_TERMINATOR = 1 << 4;
+
+    // Only used for the rare sentence containing a character that '.' does not match
+    private static final Pattern NAME_IN_SENTENCE = Pattern.compile(".*\\*\\*[^*]+\\*\\*.*");
+    private static final Pattern DRAMATIC_OPENER = Pattern.compile("^(Suddenly|Then|But|However|Meanwhile).*");
+    private static final Pattern ACTION_BEAT = Pattern.compile(".*(gasps|whispers|shouts|pauses|sighs|turns|looks|steps).*");
+
+    private final char[] out;
+    private int length;
+
+    // Sentences: separators[i] is the index of the space ending sentence i
+    private int[] separators = new int[16];
+    private int[] sentenceFlags = new int[16];
+    private int sentenceCount;
+    private int sentenceStart;
+    private int flags;
+    private int starRun;
+    private int starRunBeforeSegment;
+    private int segmentLength;
+
+    // Span runs per type, as {start, end} pairs in scanned-text coordinates
+    private final int[][] runs = new int[3][];
+    private final int[] runSizes = new int[3];
+
+    private int nameOpen = -1;
+    private int nameClose = -1;
+    private boolean nameStarPending = false;
+    private int speechOpen = -1;
+    private int emphasisOpen = -1;
+
+    private DialogMarkupTokenizer(int capacity) {
+        out = new char[capacity];
+        for (int i = 0; i < runs.length; i++) {
+            runs[i] = new int[8];
+        }
+    }
+
+    static DialogLayout layout(int dialogId, String rawText) {
+        int hash = DialogLayout.contentHash(rawText);
+        if (rawText == null || rawText.trim().isEmpty()) {
+            return new DialogLayout(dialogId, hash, "", new int[0]);
+        }
+        DialogMarkupTokenizer tokenizer = new DialogMarkupTokenizer(rawText.length());
+        tokenizer.scan(rawText);
+        return tokenizer.build(dialogId, hash);
+    }
+
+    // Scanning
+
+    private void scan(String raw) {
+        int n = raw.length();
+        boolean started = false;
+        boolean pendingSpace = false;
+        for (int i = 0; i < n; i++) {
+            char c = raw.charAt(i);
+            if (c == '\\' && i + 1 < n && raw.charAt(i + 1) == 'n') {
+                // An escaped "\n" is a line break, which collapses like any whitespace
+                c = '\n';
+                i++;
+            }
+            if (isWhitespace(c)) {
+                pendingSpace = started;
+                continue;
+            }
+            if (!started) {
+                if (c <= ' ') continue; // String.trim() also drops leading control characters
+                started = true;
+            }
+            if (pendingSpace) {
+                write(' ');
+                pendingSpace = false;
+            }
+            write(c);
+        }
+
+        // String.trim() also drops trailing control characters; none of them can end a span
+        while (length > 0 && out[length - 1] <= ' ') {
+            length--;
+        }
+        endSentence(length);
+    }
+
+    private void write(char c) {
+        int i = length;
+        if (c >= 'A' && c <= 'Z' && i >= 2 && out[i - 1] == ' ' && out[i - 2] == '.') {
+            endSentence(i - 1);
+            sentenceStart = i;
+        }
+        out[length++] = c;
+        trackSentence(c, i);
+        trackName(c, i);
+        speechOpen = trackDelimited(c, i, '"', speechOpen, DialogLayout.RUN_SPEECH);
+        emphasisOpen = trackDelimited(c, i, '*', emphasisOpen, DialogLayout.RUN_EMPHASIS);
+    }
+
+    private void trackSentence(char c, int i) {
+        if (c == '*') {
+            starRun++;
+            if (i > sentenceStart && out[i - 1] == '*') {
+                flags |= HAS_DOUBLE_STAR;
+            }
+            return;
+        }
+
+        // A segment without stars, with at least two stars on both sides, is a **name**
+        if (starRun > 0) {
+            checkNameSegment();
+            starRunBeforeSegment = starRun;
+            starRun = 0;
+            segmentLength = 0;
+        }
+        segmentLength++;
+
+        if (c == '"') {
+            flags |= HAS_QUOTE;
+        } else if (c == 's') {
+            if ((flags & HAS_ACTION_BEAT) == 0 && endsWithActionBeat(i)) {
+                flags |= HAS_ACTION_BEAT;
+            }
+        } else if (c == '\u0085' || c == '\u2028' || c == '\u2029') {
+            flags |= HAS_LINE_TERMINATOR;
+        }
+    }
+
+    private void checkNameSegment() {
+        if (starRunBeforeSegment >= 2 && segmentLength > 0 && starRun >= 2) {
+            flags |= HAS_NAME;
+        }
+    }
+
+    private boolean endsWithActionBeat(int end) {
+        for (String word : ACTION_BEATS) {
+            int start = end + 1 - word.length();
+            if (start >= sentenceStart && regionMatches(start, word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void endSentence(int end) {
+        checkNameSegment();
+        if (sentenceCount == separators.length) {
+            separators = Arrays.copyOf(separators, sentenceCount * 2);
+            sentenceFlags = Arrays.copyOf(sentenceFlags, sentenceCount * 2);
+        }
+        separators[sentenceCount] = end;
+        sentenceFlags[sentenceCount] = flags;
+        sentenceCount++;
+
+        flags = 0;
+        starRun = 0;
+        starRunBeforeSegment = 0;
+        segmentLength = 0;
+    }
+
+    // Same matches as Matcher.find() with \*\*([^*]+)\*\*
+    private void trackName(char c, int i) {
+        if (nameClose >= 0) {
+            if (c == '*') {
+                addRun(DialogLayout.RUN_NAME, nameOpen, i + 1);
+            }
+            // A single closing star cannot start a new match either way
+            nameOpen = -1;
+            nameClose = -1;
+            nameStarPending = false;
+            return;
+        }
+        if (nameOpen < 0) {
+            if (c == '*' && nameStarPending) {
+                nameOpen = i - 1;
+                nameStarPending = false;
+            } else {
+                nameStarPending = c == '*';
+            }
+            return;
+        }
+        if (c == '*') {
+            if (i == nameOpen + 2) {
+                nameOpen = i - 1; // Empty name: the match can only start one star later
+            } else {
+                nameClose = i;
+            }
+        }
+    }
+
+    // Same matches as Matcher.find() with D([^D]+)D
+    private int trackDelimited(char c, int i, char delimiter, int open, int type) {
+        if (c != delimiter) {
+            return open;
+        }
+        if (open >= 0 && i > open + 1) {
+            addRun(type, open, i + 1);
+            return -1;
+        }
+        return i;
+    }
+
+    private void addRun(int type, int start, int end) {
+        int slot = type - 1;
+        int[] list = runs[slot];
+        if (runSizes[slot] + 2 > list.length) {
+            list = runs[slot] = Arrays.copyOf(list, list.length * 2);
+        }
+        list[runSizes[slot]++] = start;
+        list[runSizes[slot]++] = end;
+    }
+
+    // Paragraph breaks and output
+
+    private DialogLayout build(int dialogId, int hash) {
+        // Sentences whose separator becomes "\n\n " instead of " "
+        boolean[] breakAfter = new boolean[sentenceCount];
+        int breaks = 0;
+        if (length > SHORT_PARAGRAPH) {
+            int currentLength = 0;
+            for (int s = 0; s < sentenceCount; s++) {
+                if (s > 0) {
+                    currentLength++; // The joining space is kept even after a break
+                }
+                currentLength += sentenceEnd(s) - sentenceBegin(s);
+                if (s < sentenceCount - 1 && shouldBreakAfter(s, currentLength)) {
+                    breakAfter[s] = true;
+                    breaks++;
+                    currentLength = 0;
+                }
+            }
+        }
+
+        char[] text = new char[length + breaks * 2];
+        int[] shiftAt = new int[breaks];
+        int written = 0;
+        int from = 0;
+        int b = 0;
+        for (int s = 0; s < sentenceCount - 1; s++) {
+            if (!breakAfter[s]) continue;
+            int separator = separators[s];
+            System.arraycopy(out, from, text, written, separator - from);
+            written += separator - from;
+            text[written++] = '\n';
+            text[written++] = '\n';
+            from = separator;
+            shiftAt[b++] = separator;
+        }
+        System.arraycopy(out, from, text, written, length - from);
+
+        int total = runSizes[0] + runSizes[1] + runSizes[2];
+        int[] flat = new int[total / 2 * 3];
+        int f = 0;
+        for (int slot = 0; slot < runs.length; slot++) {
+            for (int r = 0; r < runSizes[slot]; r += 2) {
+                flat[f++] = slot + 1;
+                flat[f++] = shift(runs[slot][r], shiftAt);
+                flat[f++] = shift(runs[slot][r + 1], shiftAt);
+            }
+        }
+        return new DialogLayout(dialogId, hash, new String(text), flat);
+    }
+
+    private static int shift(int position, int[] breaks) {
+        int shifted = position;
+        for (int separator : breaks) {
+            if (separator >= position) break;
+            shifted += 2;
+        }
+        return shifted;
+    }
+
+    private int sentenceBegin(int s) {
+        return s == 0 ? 0 : separators[s - 1] + 1;
+    }
+
+    private int sentenceEnd(int s) {
+        return separators[s];
+    }
+
+    private boolean shouldBreakAfter(int s, int currentLength) {
+        int begin = sentenceBegin(s);
+        int end = sentenceEnd(s);
+        int sentenceFlags = this.sentenceFlags[s];
+        boolean exotic = (sentenceFlags & HAS_LINE_TERMINATOR) != 0;
+
+        // Break after dialogue
+        if ((sentenceFlags & HAS_QUOTE) != 0 && out[end - 1] == '"') {
+            return true;
+        }
+
+        // Break after character actions or descriptions
+        if (exotic ? NAME_IN_SENTENCE.matcher(sentence(s)).matches() : (sentenceFlags & HAS_NAME) != 0) {
+            return true;
+        }
+
+        // Break if paragraph is getting long
+        if (currentLength > LONG_RUN) {
+            return true;
+        }
+
+        // Break before dramatic moments
+        int next = s + 1;
+        int nextFlags = this.sentenceFlags[next];
+        if (out[sentenceBegin(next)] == '"' || startsWithDramaticOpener(next) || (nextFlags & HAS_DOUBLE_STAR) != 0) {
+            return true;
+        }
+
+        // Break after emotional or action beats
+        return exotic ? ACTION_BEAT.matcher(sentence(s)).matches() : (sentenceFlags & HAS_ACTION_BEAT) != 0;
+    }
+
+    private boolean startsWithDramaticOpener(int s) {
+        if ((sentenceFlags[s] & HAS_LINE_TERMINATOR) != 0) {
+            return DRAMATIC_OPENER.matcher(sentence(s)).matches();
+        }
+        int begin = sentenceBegin(s);
+        for (String word : DRAMATIC_OPENERS) {
+            if (begin + word.length() <= sentenceEnd(s) && regionMatches(begin, word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String sentence(int s) {
+        return new String(out, sentenceBegin(s), sentenceEnd(s) - sentenceBegin(s));
+    }
+
+    private boolean regionMatches(int start, String word) {
+        for (int k = 0; k < word.length(); k++) {
+            if (out[start + k] != word.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    // The characters matched by \s
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
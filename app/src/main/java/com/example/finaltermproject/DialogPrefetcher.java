@@ -0,0 +1,132 @@
+package com.example.finaltermproject;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads and formats the dialogs reachable from the current one in the background, so that a
+ * choice tap can render the next dialog straight from memory.
+ *
+ * Only the current frontier is kept: each call to {@link #prefetch} drops prepared dialogs that
+ * are no longer one step away.
+ */
+public class DialogPrefetcher {
+    private static final String TAG = "DialogPrefetcher";
+
+    /**
+     * Turns a dialog into the text the dialog view displays. Called on a reader thread.
+     */
+    public interface Formatter {
+        @NonNull
+        CharSequence format(@NonNull DialogEntry dialog);
+    }
+
+    /**
+     * A dialog with its choices and display text, ready to be shown without further work.
+     */
+    public static final class PreparedDialog {
+        public final DialogEntry dialog;
+        public final List<Choice> choices;
+        public final CharSequence formattedText;
+
+        PreparedDialog(DialogEntry dialog, List<Choice> choices, CharSequence formattedText) {
+            this.dialog = dialog;
+            this.choices = Collections.unmodifiableList(choices);
+            this.formattedText = formattedText;
+        }
+    }
+
+    private final DatabaseHelper db;
+    private final Formatter formatter;
+    private final DatabaseExecutor executor = DatabaseExecutor.getInstance();
+    private final Map<Integer, PreparedDialog> prepared = new ConcurrentHashMap<>();
+    private final Set<Integer> pending = ConcurrentHashMap.newKeySet();
+    private volatile Set<Integer> frontier = Collections.emptySet();
+    private volatile boolean shutdown = false;
+
+    public DialogPrefetcher(@NonNull DatabaseHelper db, @NonNull Formatter formatter) {
+        this.db = db;
+        this.formatter = formatter;
+    }
+
+    /**
+     * Starts preparing the target of every choice. Targets that are already prepared or in
+     * flight are not loaded again.
+     */
+    public void prefetch(@Nullable List<Choice> choices) {
+        if (shutdown) return;
+
+        Set<Integer> next = new HashSet<>();
+        if (choices != null) {
+            for (Choice choice : choices) {
+                next.add(choice.getNextDialogId());
+            }
+        }
+        frontier = next;
+        prepared.keySet().retainAll(next);
+
+        for (Integer dialogId : next) {
+            if (prepared.containsKey(dialogId) || !pending.add(dialogId)) {
+                continue;
+            }
+            try {
+                executor.executeRead(() -> prepare(dialogId));
+            } catch (Exception e) {
+                pending.remove(dialogId);
+                Log.w(TAG, "Cannot schedule prefetch of dialog " + dialogId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the prepared dialog, or null when it has not finished loading (or failed to load).
+     */
+    @Nullable
+    public PreparedDialog get(int dialogId) {
+        return prepared.get(dialogId);
+    }
+
+    public void clear() {
+        frontier = Collections.emptySet();
+        prepared.clear();
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        clear();
+    }
+
+    private void prepare(int dialogId) {
+        try {
+            // Skip targets that fell out of the frontier while queued
+            if (shutdown || !frontier.contains(dialogId)) {
+                return;
+            }
+
+            StoryGraph graph = db.getStoryGraph();
+            DialogEntry dialog = graph != null ? graph.getDialog(dialogId) : db.getDialogById(dialogId);
+            if (dialog == null) {
+                return;
+            }
+            List<Choice> choices = graph != null ? graph.getChoices(dialogId) : db.getChoicesForDialog(dialogId);
+            CharSequence formattedText = formatter.format(dialog);
+
+            if (!shutdown && frontier.contains(dialogId)) {
+                prepared.put(dialogId, new PreparedDialog(dialog, new ArrayList<>(choices), formattedText));
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Error prefetching dialog " + dialogId + ": " + e.getMessage());
+        } finally {
+            pending.remove(dialogId);
+        }
+    }
+}
@@ -18,6 +18,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 import android.widget.ProgressBar;
 import android.widget.ImageView;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
 import android.content.res.Configuration;
@@ -26,17 +27,10 @@ import android.view.WindowManager;
 import android.content.pm.ActivityInfo;
 import android.content.Intent;
 import android.app.AlertDialog;
-import android.text.SpannableString;
-import android.text.Spannable;
-import android.text.style.StyleSpan;
-import android.text.style.ForegroundColorSpan;
-import android.text.style.RelativeSizeSpan;
-import android.graphics.Typeface;
 import android.view.animation.DecelerateInterpolator;
 import android.view.animation.OvershootInterpolator;
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 public class GameActivity extends AppCompatActivity {
     private static final String TAG = "GameActivity";
@@ -53,12 +47,17 @@ public class GameActivity extends AppCompatActivity {
     private ImageView imageCharacter;
     private TextView characterNameText;
     private DatabaseHelper db;
+    private DialogFormatter dialogFormatter;
+    private DialogPrefetcher prefetcher;
+    private final DatabaseExecutor dbExecutor = DatabaseExecutor.getInstance();
+    private final DatabaseExecutor.Sequence dialogLoads = dbExecutor.newSequence("dialog");
     private User currentUser;
     private int currentDialogId;
     private MediaPlayer mediaPlayer;
     private boolean isChoiceClickable = true;
     private float currentMusicVolume = 0f;
     private final Handler handler = new Handler(Looper.getMainLooper());
+    private BackupScheduler backupScheduler;
     private static final int MAX_RETRY_ATTEMPTS = 3;
     private static final long RETRY_DELAY_MS = 1000;
     private int currentRetryAttempt = 0;
@@ -279,6 +278,7 @@ public class GameActivity extends AppCompatActivity {
                 showErrorAndReturn("Failed to initialize database");
                 return false;
             }
+            initializeFormatting();
 
             return true;
         } catch (Exception e) {
@@ -288,6 +288,12 @@ public class GameActivity extends AppCompatActivity {
         }
     }
 
+    private void initializeFormatting() {
+        dialogFormatter = new DialogFormatter(this);
+        dbExecutor.executeRead(dialogFormatter::loadPersisted);
+        prefetcher = new DialogPrefetcher(db, dialogFormatter::format);
+    }
+
     private void initializeGameState(Bundle savedInstanceState) {
         try {
             // Restore state or start new
@@ -330,25 +336,9 @@ public class GameActivity extends AppCompatActivity {
 
     private void setupPeriodicBackup() {
         try {
-            // Create periodic backup
-            handler.postDelayed(new Runnable() {
-                @Override
-                public void run() {
-                    if (isFinishing() || isDestroyed()) {
-                        return; // Don't backup if activity is finishing
-                    }
-
-                    try {
-                        db.backupDatabase(GameActivity.this);
-                        Log.d(TAG, "Periodic backup completed");
-                    } catch (Exception e) {
-                        Log.e(TAG, "Backup failed: " + e.getMessage());
-                    }
-
-                    // Schedule next backup
-                    handler.postDelayed(this, 300000); // Every 5 minutes
-                }
-            }, 300000);
+            // Backups run on their own low-priority thread and skip themselves when nothing changed
+            backupScheduler = BackupScheduler.getInstance(this);
+            backupScheduler.start();
         } catch (Exception e) {
             Log.e(TAG, "Error setting up periodic backup", e);
         }
@@ -436,17 +426,44 @@ public class GameActivity extends AppCompatActivity {
 
     private void loadDialog(int dialogId) {
         Log.d(TAG, "Loading dialog: " + dialogId);
-        showLoading(true);
         isChoiceClickable = true;
 
-        new Thread(() -> {
+        // Dialogs one choice away are prepared in the background; render those from memory
+        DialogPrefetcher.PreparedDialog prepared = prefetcher != null ? prefetcher.get(dialogId) : null;
+        if (prepared != null) {
+            Log.d(TAG, "Rendering prefetched dialog: " + dialogId);
+            dialogLoads.cancel();
+            showLoading(false);
+            updateDialogUI(prepared.dialog, prepared.choices, prepared.formattedText);
+            return;
+        }
+
+        showLoading(true);
+
+        // Only the most recent load may update the UI; older ones are cancelled or dropped
+        try {
+            submitDialogLoad(dialogId);
+        } catch (RejectedExecutionException e) {
+            showLoading(false);
+            handleLoadError(dialogId, e);
+        }
+    }
+
+    private void submitDialogLoad(int dialogId) {
+        dialogLoads.submitRead(sequence -> {
             try {
-                DialogEntry dialog = db.getDialogById(dialogId);
-                List<Choice> choices = db.getChoicesForDialog(dialogId);
+                // The story graph is loaded once; after that each node resolves without a query
+                StoryGraph graph = db.getStoryGraph();
+                DialogEntry dialog = graph != null ? graph.getDialog(dialogId) : db.getDialogById(dialogId);
+                List<Choice> choices = graph != null ? graph.getChoices(dialogId) : db.getChoicesForDialog(dialogId);
 
                 // Check if activity is still valid before UI update
                 if (!isFinishing() && !isDestroyed()) {
                     runOnUiThread(() -> {
+                        if (!dialogLoads.isCurrent(sequence)) {
+                            Log.d(TAG, "Dropping stale result for dialog " + dialogId);
+                            return;
+                        }
                         try {
                             showLoading(false);
                             if (dialog == null) {
@@ -464,22 +481,25 @@ public class GameActivity extends AppCompatActivity {
                 Log.e(TAG, "Error loading dialog from database", e);
                 if (!isFinishing() && !isDestroyed()) {
                     runOnUiThread(() -> {
+                        if (!dialogLoads.isCurrent(sequence)) return;
                         showLoading(false);
                         handleLoadError(dialogId, e);
                     });
                 }
             }
-        }).start();
+        });
     }
 
     private void updateDialogUI(DialogEntry dialog, List<Choice> choices) {
-        String formattedText = formatDialogText(dialog.getText());
+        updateDialogUI(dialog, choices, dialogFormatter.format(dialog));
+    }
 
+    private void updateDialogUI(DialogEntry dialog, List<Choice> choices, CharSequence formattedText) {
         // Check if this is an ending dialog
         boolean isEnding = isEndingDialog(dialog.getId());
 
         // Handle character display
-        handleCharacterDisplay(dialog.getText(), isEnding);
+        handleCharacterDisplay(dialog, isEnding);
 
         // Update dialog text with smooth transition
         updateDialogText(formattedText);
@@ -492,8 +512,9 @@ public class GameActivity extends AppCompatActivity {
         }
     }
 
-    private void handleCharacterDisplay(String dialogText, boolean isEnding) {
-        String detectedCharacter = detectCharacterInDialog(dialogText);
+    private void handleCharacterDisplay(DialogEntry dialog, boolean isEnding) {
+        // Detected once when the story was imported
+        String detectedCharacter = dialog.getCharacter();
 
         if (isEnding) {
             // Hide character for endings
@@ -520,7 +541,7 @@ public class GameActivity extends AppCompatActivity {
         }
     }
 
-    private void updateDialogText(String formattedText) {
+    private void updateDialogText(CharSequence formattedText) {
         if (textDialog == null) return;
 
         // Simple fade transition for text updates
@@ -528,7 +549,7 @@ public class GameActivity extends AppCompatActivity {
                 .alpha(0.3f)
                 .setDuration(150)
                 .withEndAction(() -> {
-                    textDialog.setText(createFormattedSpannable(formattedText));
+                    textDialog.setText(formattedText);
                     textDialog.animate()
                             .alpha(1f)
                             .setDuration(300)
@@ -537,8 +558,7 @@ public class GameActivity extends AppCompatActivity {
     }
 
     private boolean isEndingDialog(int dialogId) {
-        // Ending dialogs are 501-504 based on the story structure
-        return dialogId >= 501 && dialogId <= 504;
+        return StoryGraph.isEndingDialog(dialogId);
     }
 
     private void showEndingWithBackButton() {
@@ -548,206 +568,6 @@ public class GameActivity extends AppCompatActivity {
         handler.postDelayed(() -> addBackToMenuButton(), 2000); // Delay to let players read
     }
 
-    // Replace the formatDialogText method in GameActivity.java
-    private String formatDialogText(String rawText) {
-        if (rawText == null || rawText.trim().isEmpty()) return "";
-
-        // Clean up the raw text
-        String cleaned = rawText
-                .replaceAll("\\\\n", "\n") // Handle explicit line breaks
-                .replaceAll("\\s+", " ")   // Normalize whitespace
-                .trim();
-
-        // Split into natural conversation chunks
-        return createNaturalDialogueFlow(cleaned);
-    }
-
-    private String createNaturalDialogueFlow(String text) {
-        StringBuilder result = new StringBuilder();
-
-        // Split by existing paragraph breaks first
-        String[] existingParagraphs = text.split("\n\n+");
-
-        for (int i = 0; i < existingParagraphs.length; i++) {
-            String paragraph = existingParagraphs[i].trim();
-            if (paragraph.isEmpty()) continue;
-
-            // Process each paragraph for natural breaks
-            String formattedParagraph = formatSingleParagraph(paragraph);
-            result.append(formattedParagraph);
-
-            // Add spacing between paragraphs
-            if (i < existingParagraphs.length - 1) {
-                result.append("\n\n");
-            }
-        }
-
-        return result.toString();
-    }
-
-    private String formatSingleParagraph(String paragraph) {
-        // Check if paragraph is already short enough
-        if (paragraph.length() <= 150) {
-            return paragraph;
-        }
-
-        // Break long paragraphs at natural points
-        StringBuilder formatted = new StringBuilder();
-        String[] sentences = paragraph.split("(?<=\\.)\\s+(?=[A-Z])");
-
-        int currentLength = 0;
-        boolean needsBreak = false;
-
-        for (int i = 0; i < sentences.length; i++) {
-            String sentence = sentences[i].trim();
-            if (sentence.isEmpty()) continue;
-
-            // Add sentence
-            if (formatted.length() > 0 && !needsBreak) {
-                formatted.append(" ");
-                currentLength++;
-            }
-
-            formatted.append(sentence);
-            currentLength += sentence.length();
-
-            // Determine if we need a break
-            needsBreak = shouldBreakAfterSentence(sentence, currentLength, i, sentences);
-
-            if (needsBreak && i < sentences.length - 1) {
-                formatted.append("\n\n");
-                currentLength = 0;
-                needsBreak = false;
-            }
-        }
-
-        return formatted.toString();
-    }
-
-    private boolean shouldBreakAfterSentence(String sentence, int currentLength, int index, String[] allSentences) {
-        // Break after dialogue
-        if (sentence.contains("\"") && sentence.endsWith("\"")) {
-            return true;
-        }
-
-        // Break after character actions or descriptions
-        if (sentence.matches(".*\\*\\*[^*]+\\*\\*.*")) {
-            return true;
-        }
-
-        // Break if paragraph is getting long (>200 chars)
-        if (currentLength > 200) {
-            return true;
-        }
-
-        // Break before dramatic moments
-        if (index < allSentences.length - 1) {
-            String nextSentence = allSentences[index + 1];
-            if (nextSentence.startsWith("\"") ||
-                    nextSentence.matches("^(Suddenly|Then|But|However|Meanwhile).*") ||
-                    nextSentence.contains("**")) {
-                return true;
-            }
-        }
-
-        // Break after emotional or action beats
-        if (sentence.matches(".*(gasps|whispers|shouts|pauses|sighs|turns|looks|steps).*")) {
-            return true;
-        }
-
-        return false;
-    }
-
-
-
-    private SpannableString createFormattedSpannable(String text) {
-        SpannableString spannable = new SpannableString(text);
-
-        try {
-            // Format character names (bold formatting)
-            Pattern characterPattern = Pattern.compile("\\*\\*([^*]+)\\*\\*");
-            Matcher characterMatcher = characterPattern.matcher(text);
-
-            while (characterMatcher.find()) {
-                spannable.setSpan(new StyleSpan(Typeface.BOLD),
-                        characterMatcher.start(), characterMatcher.end(),
-                        Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-
-                // Slightly larger text for character names
-                spannable.setSpan(new RelativeSizeSpan(1.1f),
-                        characterMatcher.start(), characterMatcher.end(),
-                        Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-
-                try {
-                    int characterColor = ContextCompat.getColor(this, R.color.colorBackground);
-                    spannable.setSpan(new ForegroundColorSpan(characterColor),
-                            characterMatcher.start(), characterMatcher.end(),
-                            Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-                } catch (Exception e) {
-                    // Use default color if custom color not available
-                }
-            }
-
-            // Format dialogue text (italic and different color)
-            Pattern dialogPattern = Pattern.compile("\"([^\"]+)\"");
-            Matcher dialogMatcher = dialogPattern.matcher(text);
-
-            while (dialogMatcher.find()) {
-                spannable.setSpan(new StyleSpan(Typeface.ITALIC),
-                        dialogMatcher.start(), dialogMatcher.end(),
-                        Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-
-                try {
-                    int dialogColor = ContextCompat.getColor(this, R.color.character_speech);
-                    spannable.setSpan(new ForegroundColorSpan(dialogColor),
-                            dialogMatcher.start(), dialogMatcher.end(),
-                            Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-                } catch (Exception e) {
-                    // Use default if custom color not available
-                }
-            }
-
-            // Format italicized text (narrative emphasis)
-            Pattern italicPattern = Pattern.compile("\\*([^*]+)\\*");
-            Matcher italicMatcher = italicPattern.matcher(text);
-
-            while (italicMatcher.find()) {
-                spannable.setSpan(new StyleSpan(Typeface.ITALIC),
-                        italicMatcher.start(), italicMatcher.end(),
-                        Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-            }
-
-        } catch (Exception e) {
-            Log.e(TAG, "Error formatting spannable text", e);
-        }
-
-        return spannable;
-    }
-
-    private String detectCharacterInDialog(String dialogText) {
-        if (dialogText == null) return null;
-
-        // Enhanced character detection with more patterns
-        String[] characterPatterns = {
-                "\\*\\*Lord Viren\\*\\*", "\\*\\*Viren\\*\\*", "Viren",
-                "\\*\\*Lady Selene\\*\\*", "\\*\\*Selene\\*\\*", "Selene",
-                "\\*\\*Elira\\*\\*", "Elira",
-                "\\*\\*The Maskbearer\\*\\*", "\\*\\*Maskbearer\\*\\*", "Maskbearer",
-                "\\*\\*Lustrines\\*\\*", "Lustrines"
-        };
-
-        String[] characterNames = {"viren", "selene", "elira", "maskbearer", "lustrines"};
-
-        // Check for character patterns in order of specificity
-        for (int i = 0; i < characterPatterns.length; i++) {
-            if (dialogText.matches(".*" + characterPatterns[i] + ".*")) {
-                return characterNames[i % characterNames.length];
-            }
-        }
-
-        return null;
-    }
-
     private void showCharacterImage(String characterName) {
         try {
             int imageResource = getCharacterImage(characterName);
@@ -946,6 +766,10 @@ public class GameActivity extends AppCompatActivity {
         }
 
         Log.d(TAG, "Added " + choices.size() + " choice buttons to container");
+
+        if (prefetcher != null) {
+            prefetcher.prefetch(choices);
+        }
     }
 
     private void addErrorChoice(String text) {
@@ -1045,28 +869,24 @@ public class GameActivity extends AppCompatActivity {
             clickedView.setEnabled(false);
         }
 
-        // Update progress and load next dialog
-        new Thread(() -> {
-            try {
-                db.updateUserProgress(currentUser.getId(), choice.getNextDialogId());
-                currentDialogId = choice.getNextDialogId();
-
-                runOnUiThread(() -> {
-                    loadDialog(currentDialogId);
-                });
-
-            } catch (Exception e) {
-                Log.e(TAG, "Error updating progress", e);
-                runOnUiThread(() -> {
-                    Toast.makeText(GameActivity.this, "Error saving progress", Toast.LENGTH_SHORT).show();
-                    isChoiceClickable = true;
-                    if (clickedView != null) {
-                        clickedView.setAlpha(1.0f);
-                        clickedView.setEnabled(true);
-                    }
-                });
+        // Recording progress only touches memory and the progress journal, so the next
+        // dialog can be shown right away (straight from the prefetcher when it is ready)
+        int nextDialogId = choice.getNextDialogId();
+        try {
+            db.updateUserProgress(currentUser.getId(), nextDialogId);
+        } catch (Exception e) {
+            Log.e(TAG, "Error updating progress", e);
+            Toast.makeText(GameActivity.this, "Error saving progress", Toast.LENGTH_SHORT).show();
+            isChoiceClickable = true;
+            if (clickedView != null) {
+                clickedView.setAlpha(1.0f);
+                clickedView.setEnabled(true);
             }
-        }).start();
+            return;
+        }
+
+        currentDialogId = nextDialogId;
+        loadDialog(nextDialogId);
     }
 
     private void showLoading(boolean show) {
@@ -1376,6 +1196,21 @@ public class GameActivity extends AppCompatActivity {
     @Override
     protected void onPause() {
         super.onPause();
+        if (db != null) {
+            db.flushUserProgress();
+        }
+        if (dialogFormatter != null) {
+            dbExecutor.executeWrite(dialogFormatter::persist);
+        }
+        if (db != null) {
+            // Queued after the flush so the WAL holds everything written so far
+            DatabaseHelper helper = db;
+            dbExecutor.executeWrite(() -> helper.checkpoint(false));
+        }
+        if (backupScheduler != null) {
+            backupScheduler.stop();
+            backupScheduler.requestBackup();
+        }
         if (mediaPlayer != null && mediaPlayer.isPlaying()) {
             mediaPlayer.setVolume(0.3f * currentMusicVolume, 0.3f * currentMusicVolume); // Reduce volume when in background
         }
@@ -1384,18 +1219,35 @@ public class GameActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
+        if (backupScheduler != null) {
+            backupScheduler.start();
+        }
         if (mediaPlayer != null && mediaPlayer.isPlaying()) {
             mediaPlayer.setVolume(currentMusicVolume, currentMusicVolume); // Restore volume
         }
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (db != null) {
+            // No longer visible; shrink the WAL back to zero while nothing is reading
+            DatabaseHelper helper = db;
+            dbExecutor.executeWrite(() -> helper.checkpoint(true));
+        }
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
 
         try {
             handler.removeCallbacksAndMessages(null); // Clean up all pending handlers
+            dialogLoads.cancel();
             retryHandler.removeCallbacksAndMessages(null);
+            if (prefetcher != null) {
+                prefetcher.shutdown();
+            }
             releaseMediaPlayer();
             getWindow().clearFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
         } catch (Exception e) {
@@ -1416,6 +1268,7 @@ public class GameActivity extends AppCompatActivity {
                 return false;
             }
             Log.d(TAG, "Database initialized successfully");
+            initializeFormatting();
 
             return true;
         } catch (Exception e) {
@@ -0,0 +1,114 @@
+package com.example.finaltermproject;
+
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
+import android.util.Log;
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Consistent copies of the open database, taken while it stays in use.
+ *
+ * On Android 11+ (SQLite 3.28+) the snapshot is written by VACUUM INTO, which reads the database
+ * inside a single read transaction. Older versions copy the file page by page while a transaction
+ * holds the write lock; in WAL mode the committed WAL is copied along and folded into the copy
+ * afterwards, so the snapshot never misses data that is still waiting for a checkpoint.
+ */
+final class HotBackup {
+    private static final String TAG = "HotBackup";
+
+    static final int BUFFER_SIZE = 64 * 1024;
+    static final String METHOD_VACUUM = "vacuum-into";
+    static final String METHOD_PAGE_COPY = "page-copy";
+
+    private HotBackup() {
+    }
+
+    /**
+     * Writes a standalone copy of the database to {@code target} and returns how it was taken.
+     * Writes through {@code db} wait until this returns.
+     */
+    @NonNull
+    static String snapshot(@NonNull SQLiteDatabase db, @NonNull File source, @NonNull File target) throws IOException {
+        deleteSnapshot(target);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            try {
+                db.execSQL("VACUUM INTO ?", new Object[]{target.getPath()});
+                return METHOD_VACUUM;
+            } catch (SQLException e) {
+                Log.w(TAG, "VACUUM INTO failed, copying pages instead: " + e.getMessage());
+                deleteSnapshot(target);
+            }
+        }
+        copyPages(db, source, target);
+        return METHOD_PAGE_COPY;
+    }
+
+    static void deleteSnapshot(@NonNull File snapshot) {
+        snapshot.delete();
+        new File(snapshot.getPath() + "-wal").delete();
+        new File(snapshot.getPath() + "-shm").delete();
+        new File(snapshot.getPath() + "-journal").delete();
+    }
+
+    private static void copyPages(SQLiteDatabase db, File source, File target) throws IOException {
+        int pageSize = queryInt(db, "PRAGMA page_size", 4096);
+        byte[] buffer = new byte[Math.max(1, BUFFER_SIZE / pageSize) * pageSize];
+        File wal = new File(source.getPath() + "-wal");
+        File targetWal = new File(target.getPath() + "-wal");
+        boolean copiedWal = false;
+
+        // An exclusive transaction keeps every writer out, so the files only hold committed pages
+        db.beginTransaction();
+        try {
+            copyFile(source, target, buffer);
+            if (wal.length() > 0) {
+                copyFile(wal, targetWal, buffer);
+                copiedWal = true;
+            }
+        } finally {
+            db.endTransaction();
+        }
+
+        if (copiedWal) {
+            // Opening the copy replays its WAL; switching to a rollback journal checkpoints it
+            try (SQLiteDatabase copy = SQLiteDatabase.openDatabase(target.getPath(), null,
+                    SQLiteDatabase.OPEN_READWRITE)) {
+                queryInt(copy, "PRAGMA wal_checkpoint(TRUNCATE)", 0);
+                try (Cursor cursor = copy.rawQuery("PRAGMA journal_mode = DELETE", null)) {
+                    cursor.moveToFirst();
+                }
+            }
+            targetWal.delete();
+            new File(target.getPath() + "-shm").delete();
+        }
+    }
+
+    private static void copyFile(File source, File target, byte[] buffer) throws IOException {
+        try (InputStream in = new FileInputStream(source);
+             OutputStream out = new FileOutputStream(target)) {
+            copy(in, out, buffer);
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out, byte[] buffer) throws IOException {
+        int length;
+        while ((length = in.read(buffer)) > 0) {
+            out.write(buffer, 0, length);
+        }
+    }
+
+    private static int queryInt(SQLiteDatabase db, String sql, int fallback) {
+        try (Cursor cursor = db.rawQuery(sql, null)) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : fallback;
+        }
+    }
+}
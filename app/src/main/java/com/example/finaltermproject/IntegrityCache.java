@@ -0,0 +1,74 @@
+package com.example.finaltermproject;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Last integrity verdict, plus the tables written since it was computed.
+ *
+ * {@link DatabaseHelper} marks tables as written on every write it makes, and it is the only
+ * writer of game.db. Changes it does not make row by row (a restored database file, a reinstalled
+ * story) invalidate the cache explicitly. A check only re-runs the parts that read a table written
+ * since the last verdict.
+ *
+ * PRAGMA data_version is not used: it is per connection, and with WAL, reads run on whichever
+ * pooled connection is free, so it changed on every commit of the primary connection.
+ */
+final class IntegrityCache {
+    static final int DIALOGS = 1;
+    static final int CHOICES = 1 << 1;
+    static final int PROGRESS = 1 << 2;
+    static final int USERS = 1 << 3;
+    static final int ALL = DIALOGS | CHOICES | PROGRESS | USERS;
+
+    // Tables read by each part of the check
+    static final int STORY_CHECK = DIALOGS | CHOICES;
+    static final int PROGRESS_CHECK = PROGRESS | USERS | DIALOGS;
+
+    private int dirtyTables = ALL;
+    private IntegrityReport report;
+    private int hits = 0;
+    private int misses = 0;
+
+    synchronized void markWritten(int tables) {
+        dirtyTables |= tables;
+    }
+
+    /**
+     * Returns the tables written since the cached verdict and clears them, or 0 when the cached
+     * verdict is still current. Writes that happen while the check runs stay marked for the next one.
+     */
+    synchronized int beginCheck() {
+        if (report == null) {
+            dirtyTables = ALL;
+        }
+        int dirty = dirtyTables;
+        dirtyTables = 0;
+        if (dirty == 0) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return dirty;
+    }
+
+    @Nullable
+    synchronized IntegrityReport getReport() {
+        return report;
+    }
+
+    synchronized void store(IntegrityReport report) {
+        this.report = report;
+    }
+
+    /**
+     * Forgets the verdict, so the next check runs in full.
+     */
+    synchronized void invalidate() {
+        report = null;
+        dirtyTables = ALL;
+    }
+
+    synchronized String getStats() {
+        return hits + " cached, " + misses + " checked";
+    }
+}
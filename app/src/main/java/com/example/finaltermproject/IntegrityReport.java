@@ -0,0 +1,55 @@
+package com.example.finaltermproject;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Result of {@link DatabaseHelper#checkDatabaseIntegrity()}.
+ *
+ * The database is valid when progress only points at existing users and dialogs, every choice
+ * connects two existing dialogs and no loop in the story traps the player. Dead ends and
+ * ordinary cycles are reported but do not fail the check.
+ */
+public final class IntegrityReport {
+    @Nullable
+    public final StoryGraphAnalyzer.Analysis story;
+    public final int orphanedProgress;        // progress rows whose user is gone
+    public final int invalidProgressDialogs;  // progress rows pointing at a missing dialog
+    @Nullable
+    public final String error;                // set when the check itself could not run
+
+    IntegrityReport(@NonNull StoryGraphAnalyzer.Analysis story, int orphanedProgress, int invalidProgressDialogs) {
+        this.story = story;
+        this.orphanedProgress = orphanedProgress;
+        this.invalidProgressDialogs = invalidProgressDialogs;
+        this.error = null;
+    }
+
+    private IntegrityReport(@NonNull String error) {
+        this.story = null;
+        this.orphanedProgress = 0;
+        this.invalidProgressDialogs = 0;
+        this.error = error;
+    }
+
+    @NonNull
+    static IntegrityReport failed(@NonNull String error) {
+        return new IntegrityReport(error);
+    }
+
+    public boolean isValid() {
+        return error == null && story != null && story.isValid()
+                && orphanedProgress == 0 && invalidProgressDialogs == 0;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        if (error != null) {
+            return "Integrity check failed: " + error;
+        }
+        return (isValid() ? "Valid" : "Invalid") + " database: " + story
+                + ", " + orphanedProgress + " orphaned progress row(s)"
+                + ", " + invalidProgressDialogs + " progress row(s) with a missing dialog";
+    }
+}
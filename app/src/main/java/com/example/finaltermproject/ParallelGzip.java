@@ -0,0 +1,297 @@
+package com.example.finaltermproject;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Gzip that compresses and inflates independent blocks on a fork-join pool.
+ *
+ * The output is a series of ordinary gzip members, so any gzip reader (including
+ * {@link GZIPInputStream}) can read it as one stream. Each member also records its own length in
+ * a gzip extra field, which lets {@link #decompress} find the member boundaries without inflating
+ * and inflate the members in parallel. Streams written by other tools are inflated sequentially.
+ */
+final class ParallelGzip {
+    static final int BLOCK_SIZE = 256 * 1024;
+
+    private static final int HEADER_SIZE = 20;    // fixed header, XLEN, one 8-byte subfield
+    private static final int TRAILER_SIZE = 8;    // CRC32, ISIZE
+    private static final byte SUBFIELD_ID1 = 'S';
+    private static final byte SUBFIELD_ID2 = 'Z';
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Speed/size trade-off; each step roughly doubles the CPU time of the one before.
+     */
+    enum Level {
+        FAST(Deflater.BEST_SPEED),
+        BALANCED(6),
+        SMALLEST(Deflater.BEST_COMPRESSION);
+
+        final int deflaterLevel;
+
+        Level(int deflaterLevel) {
+            this.deflaterLevel = deflaterLevel;
+        }
+    }
+
+    private ParallelGzip() {
+    }
+
+    /**
+     * Compresses {@code in} in {@link #BLOCK_SIZE} blocks on the common fork-join pool.
+     * Blocks are written in order; at most two per worker are held in memory.
+     */
+    static void compress(@NonNull InputStream in, @NonNull OutputStream out, @NonNull Level level) throws IOException {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int window = Math.max(2, pool.getParallelism() * 2);
+        Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        while (true) {
+            byte[] block = new byte[BLOCK_SIZE];
+            int length = readFully(in, block, 0, BLOCK_SIZE);
+            if (length == 0) {
+                break;
+            }
+            pending.add(pool.submit(() -> gzip(block, 0, length, level)));
+            if (pending.size() >= window) {
+                out.write(await(pending.poll()));
+            }
+        }
+        while (!pending.isEmpty()) {
+            out.write(await(pending.poll()));
+        }
+    }
+
+    /**
+     * Inflates a gzip stream into {@code out}. Members written by this class are inflated in
+     * parallel; from the first member without a length field on, the rest is read sequentially.
+     */
+    static void decompress(@NonNull InputStream in, @NonNull OutputStream out) throws IOException {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int window = Math.max(2, pool.getParallelism() * 2);
+        Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        BufferedInputStream buffered = new BufferedInputStream(in, STREAM_BUFFER_SIZE);
+        byte[] header = new byte[HEADER_SIZE];
+
+        while (true) {
+            buffered.mark(HEADER_SIZE);
+            int read = readFully(buffered, header, 0, HEADER_SIZE);
+            if (read == 0) {
+                break;
+            }
+            int memberSize = read == HEADER_SIZE ? memberSize(header) : -1;
+            if (memberSize < 0) {
+                buffered.reset();
+                while (!pending.isEmpty()) {
+                    out.write(await(pending.poll()));
+                }
+                inflateSequentially(buffered, out);
+                return;
+            }
+
+            byte[] member = new byte[memberSize];
+            System.arraycopy(header, 0, member, 0, HEADER_SIZE);
+            if (readFully(buffered, member, HEADER_SIZE, memberSize - HEADER_SIZE) != memberSize - HEADER_SIZE) {
+                throw new EOFException("Truncated gzip member");
+            }
+            pending.add(pool.submit(() -> gunzip(member)));
+            if (pending.size() >= window) {
+                out.write(await(pending.poll()));
+            }
+        }
+        while (!pending.isEmpty()) {
+            out.write(await(pending.poll()));
+        }
+    }
+
+    /**
+     * One gzip member holding {@code data[offset, offset + length)}, with its length recorded.
+     */
+    @NonNull
+    static byte[] gzip(@NonNull byte[] data, int offset, int length, @NonNull Level level) {
+        Deflater deflater = new Deflater(level.deflaterLevel, true);
+        ByteArrayOutputStream member = new ByteArrayOutputStream(HEADER_SIZE + length / 2 + TRAILER_SIZE + 64);
+        member.write(new byte[HEADER_SIZE], 0, HEADER_SIZE);
+        try {
+            deflater.setInput(data, offset, length);
+            deflater.finish();
+            byte[] buffer = new byte[Math.min(STREAM_BUFFER_SIZE, length + 64)];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                member.write(buffer, 0, count);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        writeIntLE(member, (int) crc.getValue());
+        writeIntLE(member, length);
+
+        byte[] bytes = member.toByteArray();
+        bytes[0] = 0x1f;
+        bytes[1] = (byte) 0x8b;
+        bytes[2] = 8;       // deflate
+        bytes[3] = 4;       // FEXTRA
+        bytes[8] = (byte) (level == Level.SMALLEST ? 2 : level == Level.FAST ? 4 : 0);
+        bytes[9] = (byte) 255;  // unknown OS
+        bytes[10] = 8;      // XLEN
+        bytes[12] = SUBFIELD_ID1;
+        bytes[13] = SUBFIELD_ID2;
+        bytes[14] = 4;
+        putIntLE(bytes, 16, bytes.length);
+        return bytes;
+    }
+
+    /**
+     * Inflates one member written by {@link #gzip}, checking its CRC and length.
+     */
+    @NonNull
+    static byte[] gunzip(@NonNull byte[] member) throws IOException {
+        if (memberSize(member) != member.length) {
+            throw new IOException("Not a complete gzip member");
+        }
+        int expectedCrc = getIntLE(member, member.length - 8);
+        int size = getIntLE(member, member.length - 4);
+        if (size < 0) {
+            throw new IOException("Gzip member too large");
+        }
+
+        byte[] data = new byte[size];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(member, HEADER_SIZE, member.length - HEADER_SIZE - TRAILER_SIZE);
+            int total = 0;
+            while (total < size && !inflater.finished()) {
+                int count = inflater.inflate(data, total, size - total);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                total += count;
+            }
+            if (total != size || (!inflater.finished() && inflater.inflate(new byte[1]) != 0)) {
+                throw new IOException("Gzip member length mismatch");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt gzip member", e);
+        } finally {
+            inflater.end();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, size);
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new IOException("Gzip member CRC mismatch");
+        }
+        return data;
+    }
+
+    /**
+     * Inflates a complete gzip stream held in memory: one member written by {@link #gzip}, or
+     * anything else a gzip reader accepts. Runs on the calling thread.
+     */
+    @NonNull
+    static byte[] gunzipAny(@NonNull byte[] bytes) throws IOException {
+        if (memberSize(bytes) == bytes.length) {
+            return gunzip(bytes);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 2);
+        inflateSequentially(new ByteArrayInputStream(bytes), out);
+        return out.toByteArray();
+    }
+
+    // Length of a member written by gzip(), or -1 when the header is not one of ours
+    private static int memberSize(byte[] header) {
+        if (header.length < HEADER_SIZE
+                || header[0] != 0x1f || header[1] != (byte) 0x8b || header[2] != 8 || header[3] != 4
+                || header[10] != 8 || header[11] != 0
+                || header[12] != SUBFIELD_ID1 || header[13] != SUBFIELD_ID2
+                || header[14] != 4 || header[15] != 0) {
+            return -1;
+        }
+        int size = getIntLE(header, 16);
+        return size >= HEADER_SIZE + TRAILER_SIZE ? size : -1;
+    }
+
+    private static void inflateSequentially(InputStream in, OutputStream out) throws IOException {
+        // Not closed: the caller owns the underlying stream
+        GZIPInputStream gzip = new GZIPInputStream(in, STREAM_BUFFER_SIZE);
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        int length;
+        while ((length = gzip.read(buffer)) > 0) {
+            out.write(buffer, 0, length);
+        }
+    }
+
+    static byte[] await(Future<byte[]> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing", e);
+        } catch (ExecutionException e) {
+            // The pool wraps (and may re-create) the task's exception; report the original one
+            IOException original = null;
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException) {
+                    original = (IOException) cause;
+                }
+            }
+            if (original != null) {
+                throw original;
+            }
+            throw new IOException("Compression task failed", e.getCause());
+        }
+    }
+
+    static int readFully(InputStream in, byte[] buffer, int offset, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int read = in.read(buffer, offset + total, length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+
+    private static void putIntLE(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >>> 8);
+        bytes[offset + 2] = (byte) (value >>> 16);
+        bytes[offset + 3] = (byte) (value >>> 24);
+    }
+
+    private static int getIntLE(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff)
+                | (bytes[offset + 1] & 0xff) << 8
+                | (bytes[offset + 2] & 0xff) << 16
+                | (bytes[offset + 3] & 0xff) << 24;
+    }
+}
@@ -0,0 +1,327 @@
+package com.example.finaltermproject;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Write-behind store for player progress.
+ *
+ * A new position is kept in memory on the caller's thread and appended to a small journal file
+ * on the database writer thread, so recording from the UI thread never touches the disk. It is
+ * then written to the progress table in coalesced batches on the same thread.
+ * Each journal record carries a CRC32, so a torn final record from a crash is ignored on
+ * replay. Entries still in the journal at startup are flushed again.
+ *
+ * Appends are not fsynced. They survive a process crash but not a power loss; the progress
+ * table is durable once a flush completes.
+ */
+public class ProgressJournal {
+    private static final String TAG = "ProgressJournal";
+
+    static final String JOURNAL_FILE = "progress.journal";
+
+    // userId, dialogId, timestamp, crc32
+    static final int RECORD_SIZE = 4 + 4 + 8 + 4;
+
+    private static final long FLUSH_DELAY_MS = 2000;
+    private static final int FLUSH_THRESHOLD = 16;
+    private static final int MAX_FLUSH_ATTEMPTS = 3;
+
+    /**
+     * Applies one user's latest position to the database.
+     */
+    public interface Sink {
+        void write(int userId, int dialogId) throws Exception;
+    }
+
+    private static final class Entry {
+        final int dialogId;
+        final long timestamp;
+        int failedAttempts;
+
+        Entry(int dialogId, long timestamp) {
+            this.dialogId = dialogId;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private final File journalFile;
+    private final Sink sink;
+    private final DatabaseExecutor executor;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable scheduledFlush = this::flushAsync;
+
+    // Latest unflushed position per user, guarded by this
+    private final Map<Integer, Entry> pending = new LinkedHashMap<>();
+    private FileOutputStream journalOut;
+    private int recordsSinceFlush = 0;
+
+    public ProgressJournal(@NonNull File directory, @NonNull Sink sink, @NonNull DatabaseExecutor executor) {
+        this.journalFile = new File(directory, JOURNAL_FILE);
+        this.sink = sink;
+        this.executor = executor;
+        replay();
+    }
+
+    /**
+     * Records a new position. Returns once it is in memory; the journal append is queued on the
+     * writer thread, ahead of any flush scheduled after it.
+     */
+    public void record(int userId, int dialogId) {
+        Entry entry = new Entry(dialogId, System.currentTimeMillis());
+        boolean flushNow;
+        synchronized (this) {
+            pending.put(userId, entry);
+            flushNow = ++recordsSinceFlush >= FLUSH_THRESHOLD;
+        }
+
+        try {
+            executor.executeWrite(() -> appendIfPending(userId, entry));
+        } catch (Exception e) {
+            // The position is still held in memory and will reach the database on the next flush
+            Log.e(TAG, "Cannot schedule progress journal append", e);
+        }
+
+        handler.removeCallbacks(scheduledFlush);
+        if (flushNow) {
+            flushAsync();
+        } else {
+            handler.postDelayed(scheduledFlush, FLUSH_DELAY_MS);
+        }
+    }
+
+    /**
+     * Position that has been recorded but not yet written to the database, or null.
+     */
+    @Nullable
+    public synchronized Integer getPendingDialogId(int userId) {
+        Entry entry = pending.get(userId);
+        return entry != null ? entry.dialogId : null;
+    }
+
+    public synchronized boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Drops anything pending for a user, e.g. after the user was deleted.
+     */
+    public void discard(int userId) {
+        synchronized (this) {
+            if (pending.remove(userId) == null) {
+                return;
+            }
+        }
+        flushAsync();
+    }
+
+    /**
+     * Drops every pending entry and empties the journal, e.g. before restoring a backup.
+     */
+    public synchronized void clear() {
+        pending.clear();
+        rewriteJournal();
+    }
+
+    /**
+     * Schedules a flush on the database writer thread without waiting for the coalescing delay.
+     */
+    public void flushAsync() {
+        handler.removeCallbacks(scheduledFlush);
+        try {
+            executor.executeWrite(this::flush);
+        } catch (Exception e) {
+            Log.e(TAG, "Cannot schedule progress flush", e);
+        }
+    }
+
+    /**
+     * Writes every pending position to the database and compacts the journal. Runs on the caller's thread.
+     */
+    public void flush() {
+        Map<Integer, Entry> batch;
+        synchronized (this) {
+            batch = new HashMap<>(pending);
+            recordsSinceFlush = 0;
+        }
+
+        long start = System.nanoTime();
+        Map<Integer, Entry> done = new HashMap<>();
+        int dropped = 0;
+        for (Map.Entry<Integer, Entry> item : batch.entrySet()) {
+            Entry entry = item.getValue();
+            try {
+                sink.write(item.getKey(), entry.dialogId);
+                done.put(item.getKey(), entry);
+            } catch (Exception e) {
+                entry.failedAttempts++;
+                Log.e(TAG, "Error flushing progress for user " + item.getKey()
+                        + " (attempt " + entry.failedAttempts + ")", e);
+                if (entry.failedAttempts >= MAX_FLUSH_ATTEMPTS) {
+                    // Give up on it, e.g. the user no longer exists
+                    done.put(item.getKey(), entry);
+                    dropped++;
+                }
+            }
+        }
+
+        boolean retry;
+        synchronized (this) {
+            // Keep entries that were replaced by a newer position while flushing
+            for (Map.Entry<Integer, Entry> item : done.entrySet()) {
+                if (pending.get(item.getKey()) == item.getValue()) {
+                    pending.remove(item.getKey());
+                }
+            }
+            rewriteJournal();
+            retry = !pending.isEmpty();
+        }
+
+        if (!done.isEmpty()) {
+            Log.d(TAG, "Flushed " + (done.size() - dropped) + " progress update(s) in "
+                    + (System.nanoTime() - start) / 1000 + "us" + (dropped > 0 ? ", dropped " + dropped : ""));
+        }
+        if (retry) {
+            handler.removeCallbacks(scheduledFlush);
+            handler.postDelayed(scheduledFlush, FLUSH_DELAY_MS);
+        }
+    }
+
+    // Skips entries that were already flushed, replaced or cleared, so a late append cannot
+    // bring back a position the journal was compacted without
+    private synchronized void appendIfPending(int userId, Entry entry) {
+        if (pending.get(userId) == entry) {
+            append(userId, entry.dialogId, entry.timestamp);
+        }
+    }
+
+    /**
+     * Appends one record to the journal. Caller holds the lock.
+     */
+    private void append(int userId, int dialogId, long timestamp) {
+        try {
+            if (journalOut == null) {
+                journalOut = new FileOutputStream(journalFile, true);
+            }
+            journalOut.write(encode(userId, dialogId, timestamp));
+            journalOut.flush();
+        } catch (IOException e) {
+            // The position is still held in memory and will reach the database on the next flush
+            Log.e(TAG, "Error appending to progress journal", e);
+            closeJournal();
+        }
+    }
+
+    /**
+     * Replaces the journal with the entries that are still pending. Caller holds the lock.
+     */
+    private void rewriteJournal() {
+        closeJournal();
+        try {
+            if (pending.isEmpty()) {
+                if (journalFile.exists()) {
+                    try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+                        file.setLength(0);
+                    }
+                }
+                return;
+            }
+
+            File temp = new File(journalFile.getPath() + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                for (Map.Entry<Integer, Entry> item : pending.entrySet()) {
+                    out.write(encode(item.getKey(), item.getValue().dialogId, item.getValue().timestamp));
+                }
+                out.getFD().sync();
+            }
+            if (!temp.renameTo(journalFile)) {
+                throw new IOException("Cannot replace " + journalFile);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error compacting progress journal", e);
+        }
+    }
+
+    private void replay() {
+        if (!journalFile.exists() || journalFile.length() == 0) {
+            return;
+        }
+
+        int records = 0;
+        int corrupt = 0;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(journalFile))) {
+            byte[] record = new byte[RECORD_SIZE];
+            while (true) {
+                try {
+                    in.readFully(record);
+                } catch (EOFException e) {
+                    break; // End of journal, possibly a torn final record
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                int userId = buffer.getInt();
+                int dialogId = buffer.getInt();
+                long timestamp = buffer.getLong();
+                if (buffer.getInt() != checksum(record)) {
+                    corrupt++;
+                    break; // Nothing after a bad record can be trusted
+                }
+                synchronized (this) {
+                    pending.put(userId, new Entry(dialogId, timestamp));
+                }
+                records++;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error replaying progress journal", e);
+        }
+
+        Log.d(TAG, "Replayed " + records + " journal record(s) for " + pending.size() + " user(s)"
+                + (corrupt > 0 ? ", stopped at a corrupt record" : ""));
+        synchronized (this) {
+            rewriteJournal();
+        }
+        if (hasPending()) {
+            flushAsync();
+        }
+    }
+
+    static byte[] encode(int userId, int dialogId, long timestamp) {
+        byte[] record = new byte[RECORD_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.putInt(userId).putInt(dialogId).putLong(timestamp);
+        buffer.putInt(checksum(record));
+        return record;
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, RECORD_SIZE - 4);
+        return (int) crc.getValue();
+    }
+
+    private void closeJournal() {
+        if (journalOut != null) {
+            try {
+                journalOut.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Error closing progress journal: " + e.getMessage());
+            }
+            journalOut = null;
+        }
+    }
+}
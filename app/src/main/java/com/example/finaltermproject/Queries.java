@@ -0,0 +1,124 @@
+package com.example.finaltermproject;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The SQL the game runs against game.db and story.db, with the access path each query is expected
+ * to take.
+ *
+ * Every query is registered in {@link #ALL}; QueryPlanTest runs EXPLAIN QUERY PLAN on each of them
+ * and fails when a query reads a table in full that it is not declared to scan, so a schema or
+ * query change that loses an index shows up as a test failure instead of a slower game.
+ */
+final class Queries {
+    enum Database { GAME, STORY }
+
+    // game.db
+    static final String ANY_USER = "SELECT EXISTS(SELECT 1 FROM users)";
+    static final String ALL_USERS = "SELECT id, username FROM users ORDER BY id";
+    static final String USER_EXISTS = "SELECT 1 FROM users WHERE id = ?";
+    static final String USER_ID_BY_NAME = "SELECT id FROM users WHERE username = ?";
+    static final String OTHER_USER_WITH_NAME = "SELECT 1 FROM users WHERE username = ? AND id != ?";
+    static final String USER_DIALOG = "SELECT current_dialog_id FROM progress WHERE user_id = ?";
+    static final String ALL_PROGRESS_DIALOGS = "SELECT current_dialog_id FROM progress";
+    static final String ORPHANED_PROGRESS_COUNT =
+            "SELECT COUNT(*) FROM progress p LEFT JOIN users u ON p.user_id = u.id WHERE u.id IS NULL";
+
+    // story.db
+    static final String DIALOG_EXISTS = "SELECT EXISTS(SELECT 1 FROM dialogs WHERE id = ?)";
+    static final String DIALOG_TEXT = "SELECT text FROM dialogs WHERE id = ?";
+    static final String DIALOG_CHARACTER = "SELECT character_key FROM dialogs WHERE id = ?";
+    static final String DIALOG_COUNT = "SELECT COUNT(*) FROM dialogs";
+    static final String FIRST_DIALOG_ID = "SELECT COALESCE(MIN(id), 0) FROM dialogs";
+    static final String LAST_DIALOG_ID = "SELECT MAX(id) FROM dialogs";
+    static final String DIALOG_AT_OR_AFTER = "SELECT id FROM dialogs WHERE id >= ? ORDER BY id ASC LIMIT 1";
+    static final String DIALOG_AT_OR_BEFORE = "SELECT COALESCE(MAX(id), 1) FROM dialogs WHERE id <= ?";
+    static final String CHOICES_FOR_DIALOG =
+            "SELECT id, dialog_id, choice_text, next_dialog_id FROM choices WHERE dialog_id = ? ORDER BY id";
+    static final String CHOICE_COUNT_FOR_DIALOG = "SELECT COUNT(*) FROM choices WHERE dialog_id = ?";
+    static final String DANGLING_NEXT_DIALOGS =
+            "SELECT DISTINCT next_dialog_id FROM choices WHERE next_dialog_id NOT IN (SELECT id FROM dialogs)";
+    static final String INVALID_CHOICE_COUNT =
+            "SELECT COUNT(*) FROM choices c " +
+                    "LEFT JOIN dialogs d1 ON c.dialog_id = d1.id " +
+                    "LEFT JOIN dialogs d2 ON c.next_dialog_id = d2.id " +
+                    "WHERE d1.id IS NULL OR d2.id IS NULL";
+    static final String ALL_DIALOGS = "SELECT id, text, character_key FROM dialogs ORDER BY id";
+    static final String ALL_CHOICES =
+            "SELECT id, dialog_id, choice_text, next_dialog_id FROM choices ORDER BY dialog_id, id";
+    static final String ALL_DIALOG_IDS = "SELECT id FROM dialogs ORDER BY id";
+    static final String ALL_EDGES = "SELECT dialog_id, next_dialog_id FROM choices";
+
+    static final List<Query> ALL = Collections.unmodifiableList(Arrays.asList(
+            // Stops at the first row, so the scan reads one page
+            scanning(Database.GAME, ANY_USER, "users"),
+            scanning(Database.GAME, ALL_USERS, "users"),
+            indexed(Database.GAME, USER_EXISTS),
+            indexed(Database.GAME, USER_ID_BY_NAME),
+            indexed(Database.GAME, OTHER_USER_WITH_NAME),
+            // The statements SQLiteDatabase.update/delete build for renameUser, deleteUser and
+            // writeUserProgress
+            indexed(Database.GAME, "UPDATE users SET username=? WHERE id = ?"),
+            indexed(Database.GAME, "DELETE FROM users WHERE id = ?"),
+            indexed(Database.GAME, "UPDATE progress SET current_dialog_id=?,last_updated=? WHERE user_id = ?"),
+            indexed(Database.GAME, USER_DIALOG),
+            scanning(Database.GAME, ALL_PROGRESS_DIALOGS, "progress"),
+            scanning(Database.GAME, ORPHANED_PROGRESS_COUNT, "p"),
+
+            indexed(Database.STORY, DIALOG_EXISTS),
+            indexed(Database.STORY, DIALOG_TEXT),
+            indexed(Database.STORY, DIALOG_CHARACTER),
+            scanning(Database.STORY, DIALOG_COUNT, "dialogs"),
+            indexed(Database.STORY, FIRST_DIALOG_ID),
+            indexed(Database.STORY, LAST_DIALOG_ID),
+            indexed(Database.STORY, DIALOG_AT_OR_AFTER),
+            indexed(Database.STORY, DIALOG_AT_OR_BEFORE),
+            indexed(Database.STORY, CHOICES_FOR_DIALOG),
+            indexed(Database.STORY, CHOICE_COUNT_FOR_DIALOG),
+            scanning(Database.STORY, DANGLING_NEXT_DIALOGS, "choices"),
+            scanning(Database.STORY, INVALID_CHOICE_COUNT, "c"),
+            scanning(Database.STORY, ALL_DIALOGS, "dialogs"),
+            scanning(Database.STORY, ALL_CHOICES, "choices"),
+            scanning(Database.STORY, ALL_DIALOG_IDS, "dialogs"),
+            scanning(Database.STORY, ALL_EDGES, "choices")
+    ));
+
+    private Queries() {
+    }
+
+    /**
+     * One registered statement: where it runs and which tables, by the name the plan reports
+     * (the alias when there is one), it is allowed to read in full.
+     */
+    static final class Query {
+        @NonNull final Database database;
+        @NonNull final String sql;
+        @NonNull final Set<String> scans;
+
+        Query(@NonNull Database database, @NonNull String sql, @NonNull Set<String> scans) {
+            this.database = database;
+            this.sql = sql;
+            this.scans = scans;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return database + ": " + sql;
+        }
+    }
+
+    private static Query indexed(Database database, String sql) {
+        return new Query(database, sql, Collections.<String>emptySet());
+    }
+
+    private static Query scanning(Database database, String sql, String... tables) {
+        return new Query(database, sql, Collections.unmodifiableSet(new HashSet<>(Arrays.asList(tables))));
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.finaltermproject;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiled statements for single-value lookups, kept per thread.
+ *
+ * A {@link SQLiteStatement} holds its own bindings, so one instance cannot be shared between
+ * threads; each database thread keeps its own set instead. Running one uses
+ * {@code simpleQueryForLong}/{@code simpleQueryForString}, which reads the value straight from the
+ * connection's prepared statement without a Cursor or CursorWindow. Statements are kept per
+ * database and dropped once the database they were compiled against is closed, e.g. after a
+ * restore, or {@link #release released}, e.g. after story.db is reinstalled.
+ */
+final class StatementCache {
+    private final ThreadLocal<Statements> statements = new ThreadLocal<Statements>() {
+        @Override
+        protected Statements initialValue() {
+            return new Statements();
+        }
+    };
+
+    // Handles that were replaced; each thread drops its statements for them on its next lookup
+    private final Set<SQLiteDatabase> released = Collections.newSetFromMap(new WeakHashMap<>());
+    private final AtomicInteger releases = new AtomicInteger();
+
+    /**
+     * Marks a handle as replaced. Every thread closes the statements it compiled against it the
+     * next time it runs a lookup, instead of only when it first sees another handle.
+     */
+    void release(@NonNull SQLiteDatabase db) {
+        synchronized (released) {
+            released.add(db);
+        }
+        releases.incrementAndGet();
+    }
+
+    /**
+     * Runs {@code sql} with {@code args} and returns the first column of the first row.
+     *
+     * @throws SQLiteDoneException when there is no row
+     */
+    long queryForLong(@NonNull SQLiteDatabase db, @NonNull String sql, long... args) {
+        SQLiteStatement statement = bind(db, sql, args);
+        try {
+            return statement.simpleQueryForLong();
+        } finally {
+            statement.clearBindings();
+        }
+    }
+
+    /**
+     * Like {@link #queryForLong} for a text column; returns null for a NULL value.
+     *
+     * @throws SQLiteDoneException when there is no row
+     */
+    @Nullable
+    String queryForString(@NonNull SQLiteDatabase db, @NonNull String sql, long... args) {
+        SQLiteStatement statement = bind(db, sql, args);
+        try {
+            return statement.simpleQueryForString();
+        } finally {
+            statement.clearBindings();
+        }
+    }
+
+    private SQLiteStatement bind(SQLiteDatabase db, String sql, long[] args) {
+        Statements cache = statements.get();
+        int releaseCount = releases.get();
+        if (cache.releaseCount != releaseCount) {
+            cache.releaseCount = releaseCount;
+            cache.dropClosed();
+        }
+        SQLiteStatement statement = cache.get(db, sql);
+        for (int i = 0; i < args.length; i++) {
+            statement.bindLong(i + 1, args[i]);
+        }
+        return statement;
+    }
+
+    private boolean isReleased(SQLiteDatabase db) {
+        synchronized (released) {
+            return released.contains(db);
+        }
+    }
+
+    private final class Statements {
+        private final Map<SQLiteDatabase, Map<String, SQLiteStatement>> byDatabase = new IdentityHashMap<>();
+        int releaseCount;
+
+        SQLiteStatement get(SQLiteDatabase db, String sql) {
+            Map<String, SQLiteStatement> bySql = byDatabase.get(db);
+            if (bySql == null) {
+                dropClosed();
+                bySql = new HashMap<>();
+                byDatabase.put(db, bySql);
+            }
+            SQLiteStatement statement = bySql.get(sql);
+            if (statement == null) {
+                statement = db.compileStatement(sql);
+                bySql.put(sql, statement);
+            }
+            return statement;
+        }
+
+        private void dropClosed() {
+            Iterator<Map.Entry<SQLiteDatabase, Map<String, SQLiteStatement>>> entries = byDatabase.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<SQLiteDatabase, Map<String, SQLiteStatement>> entry = entries.next();
+                if (!entry.getKey().isOpen() || isReleased(entry.getKey())) {
+                    for (SQLiteStatement statement : entry.getValue().values()) {
+                        statement.close();
+                    }
+                    entries.remove();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.finaltermproject;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Loads the precompiled binary story asset produced by the compileStoryAsset Gradle task.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   header        magic 'POCS', u16 version, u16 flags,
+ *                 i32 dialogCount, i32 choiceCount, i32 stringCount, i32 stringBytes
+ *   dialog table  dialogCount x {i32 id, i32 string}              sorted by id
+ *   choice index  (dialogCount + 1) x i32                          CSR row pointers
+ *   choice table  choiceCount x {i32 id, i32 nextDialogId, i32 string}
+ *   string table  (stringCount + 1) x i32                          byte offsets into the blob
+ *   string blob   UTF-8
+ * </pre>
+ * The asset is stored uncompressed in the APK so it can be memory-mapped instead of copied.
+ */
+public final class StoryAssetLoader {
+    private static final String TAG = "StoryAssetLoader";
+
+    public static final String STORY_ASSET = "story.bin";
+
+    static final int MAGIC = 0x504F4353; // "POCS"
+    static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+
+    private StoryAssetLoader() {
+    }
+
+    /**
+     * Maps the story asset and decodes it into a {@link StoryGraph}.
+     *
+     * @throws IOException when the asset is missing or corrupt
+     */
+    @NonNull
+    public static StoryGraph load(@NonNull Context context) throws IOException {
+        long start = System.nanoTime();
+        StoryGraph graph = parse(map(context));
+        Log.d(TAG, "Loaded " + STORY_ASSET + ": " + graph.getDialogCount() + " dialogs, "
+                + graph.getChoiceCount() + " choices in " + (System.nanoTime() - start) / 1000 + "us");
+        return graph;
+    }
+
+    private static ByteBuffer map(Context context) throws IOException {
+        try (AssetFileDescriptor afd = context.getAssets().openFd(STORY_ASSET);
+             FileInputStream in = afd.createInputStream();
+             FileChannel channel = in.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, afd.getStartOffset(), afd.getLength());
+        } catch (IOException e) {
+            // openFd fails when the asset was packaged compressed; fall back to a plain read
+            Log.w(TAG, "Cannot map " + STORY_ASSET + ", reading it instead: " + e.getMessage());
+            try (InputStream in = context.getAssets().open(STORY_ASSET)) {
+                byte[] buffer = new byte[8192];
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                int length;
+                while ((length = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, length);
+                }
+                return ByteBuffer.wrap(out.toByteArray());
+            }
+        }
+    }
+
+    @NonNull
+    static StoryGraph parse(@NonNull ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a story asset");
+            }
+            int version = buffer.getShort(4) & 0xFFFF;
+            if (version != VERSION) {
+                throw new IOException("Unsupported story asset version: " + version);
+            }
+            int dialogCount = buffer.getInt(8);
+            int choiceCount = buffer.getInt(12);
+            int stringCount = buffer.getInt(16);
+            int stringBytes = buffer.getInt(20);
+            if (dialogCount < 0 || choiceCount < 0 || stringCount != dialogCount + choiceCount || stringBytes < 0) {
+                throw new IOException("Corrupt story asset header");
+            }
+
+            int dialogTable = HEADER_SIZE;
+            int choiceIndex = dialogTable + dialogCount * 8;
+            int choiceTable = choiceIndex + (dialogCount + 1) * 4;
+            int stringTable = choiceTable + choiceCount * 12;
+            int blob = stringTable + (stringCount + 1) * 4;
+            if (blob + stringBytes != buffer.limit()) {
+                throw new IOException("Corrupt story asset: size mismatch");
+            }
+
+            StoryGraph.Builder builder = new StoryGraph.Builder();
+            for (int i = 0; i < dialogCount; i++) {
+                int row = dialogTable + i * 8;
+                int dialogId = buffer.getInt(row);
+                builder.addDialog(dialogId, readString(buffer, stringTable, blob, buffer.getInt(row + 4)));
+
+                int from = buffer.getInt(choiceIndex + i * 4);
+                int to = buffer.getInt(choiceIndex + (i + 1) * 4);
+                for (int c = from; c < to; c++) {
+                    int choiceRow = choiceTable + c * 12;
+                    builder.addChoice(buffer.getInt(choiceRow), dialogId,
+                            readString(buffer, stringTable, blob, buffer.getInt(choiceRow + 8)),
+                            buffer.getInt(choiceRow + 4));
+                }
+            }
+            return builder.build();
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt story asset", e);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer, int stringTable, int blob, int index) {
+        int start = buffer.getInt(stringTable + index * 4);
+        int end = buffer.getInt(stringTable + (index + 1) * 4);
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(blob + end);
+        slice.position(blob + start);
+        return StandardCharsets.UTF_8.decode(slice).toString();
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.finaltermproject;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.util.Log;
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The story tables (dialogs and choices) in their own database file, opened read-only.
+ *
+ * The story does not change while the game runs, so it is kept out of game.db: story reads do not
+ * share a journal, locks or page cache with progress writes, and backups only copy player data.
+ * The file is built from the story the APK ships (story.bin, compiled from seed_story.sql) into a
+ * temporary file and renamed into place. When {@link #VERSION} changes, it is rebuilt.
+ */
+final class StoryDatabase {
+    private static final String TAG = "StoryDatabase";
+
+    static final String NAME = "story.db";
+    static final int VERSION = 3;  // Version 3: built from story.bin instead of the built-in story
+
+    // The whole file is mapped; the story is far smaller than this
+    private static final long MMAP_SIZE = 16 * 1024 * 1024;
+    private static final String BUILD_SUFFIX = "-build";
+
+    static final String CREATE_DIALOGS_TABLE =
+            "CREATE TABLE dialogs (id INTEGER PRIMARY KEY AUTOINCREMENT, text TEXT NOT NULL, " +
+                    "created_at INTEGER DEFAULT 0, character_key TEXT DEFAULT NULL);";
+    static final String CREATE_CHOICES_TABLE =
+            "CREATE TABLE choices (id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "dialog_id INTEGER NOT NULL, " +
+                    "choice_text TEXT NOT NULL, " +
+                    "next_dialog_id INTEGER NOT NULL, " +
+                    "created_at INTEGER DEFAULT 0, " +
+                    "FOREIGN KEY(dialog_id) REFERENCES dialogs(id) ON DELETE CASCADE, " +
+                    "FOREIGN KEY(next_dialog_id) REFERENCES dialogs(id) ON DELETE RESTRICT);";
+    // Every choices query reads its rows from this index alone, in (dialog_id, id) order. The file
+    // is never written at runtime, so the extra copy of choice_text costs no write time.
+    static final String[] CREATE_INDEXES = {
+            "CREATE INDEX IF NOT EXISTS idx_choices_covering " +
+                    "ON choices(dialog_id, id, next_dialog_id, choice_text);"
+    };
+
+    private final Context context;
+    private final File file;
+    private final StatementCache statements;
+    private SQLiteDatabase database;  // guarded by this
+
+    StoryDatabase(@NonNull Context context, @NonNull StatementCache statements) {
+        this.context = context.getApplicationContext();
+        this.file = context.getDatabasePath(NAME);
+        this.statements = statements;
+    }
+
+    /**
+     * The read-only story database, installing it first if it is missing, outdated or unreadable.
+     * A reference is held for the caller until it passes the handle to {@link #release}, so a
+     * {@link #reinstall} on another thread cannot close it mid-read.
+     *
+     * @throws SQLiteException when no story can be installed
+     */
+    @NonNull
+    synchronized SQLiteDatabase acquire() {
+        if (database == null) {
+            database = openOrInstall();
+        }
+        database.acquireReference();
+        return database;
+    }
+
+    void release(@NonNull SQLiteDatabase db) {
+        db.releaseReference();
+    }
+
+    /**
+     * Reinstalls the story the app ships with, discarding the current file. The new file is
+     * opened and handed out before the old handle is released; reads that still hold the old
+     * handle finish on the old file, which is closed when the last of them releases it.
+     */
+    synchronized void reinstall() {
+        installShippedStory();
+
+        SQLiteDatabase previous = database;
+        database = open();
+        if (previous != null) {
+            previous.close();
+            statements.release(previous);
+        }
+    }
+
+    private SQLiteDatabase openOrInstall() {
+        if (file.exists()) {
+            try {
+                SQLiteDatabase db = open();
+                if (db.getVersion() == VERSION) {
+                    return db;
+                }
+                Log.d(TAG, NAME + " is version " + db.getVersion() + ", rebuilding as version " + VERSION);
+                db.close();
+            } catch (SQLiteException e) {
+                Log.w(TAG, "Cannot open " + NAME + ", reinstalling it", e);
+            }
+        }
+        installShippedStory();
+        return open();
+    }
+
+    private SQLiteDatabase open() {
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(file.getPath(), null, SQLiteDatabase.OPEN_READONLY);
+        try (Cursor cursor = db.rawQuery("PRAGMA mmap_size = " + MMAP_SIZE, null)) {
+            cursor.moveToFirst();
+        } catch (Exception e) {
+            Log.w(TAG, "Cannot memory-map " + NAME + ": " + e.getMessage());
+        }
+        return db;
+    }
+
+    private void installShippedStory() {
+        try {
+            install(build(loadShippedStory()));
+        } catch (IOException e) {
+            throw new SQLiteException("Cannot install " + NAME, e);
+        }
+    }
+
+    // Renames a finished build over the installed file. A handle still open on the old file keeps
+    // reading it until closed; story.db is never written, so it has no journal to clean up.
+    private void install(File built) throws IOException {
+        if (!built.renameTo(file)) {
+            SQLiteDatabase.deleteDatabase(built);
+            throw new IOException("Cannot move " + built.getName() + " into place");
+        }
+    }
+
+    // story.bin, compiled from seed_story.sql by the build; the built-in story only when it is
+    // missing or unreadable
+    private StoryGraph loadShippedStory() {
+        try {
+            StoryGraph graph = StoryAssetLoader.load(context);
+            if (graph.getDialogCount() > 0) {
+                return graph;
+            }
+            Log.w(TAG, StoryAssetLoader.STORY_ASSET + " is empty, using the built-in story");
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot load " + StoryAssetLoader.STORY_ASSET + ", using the built-in story", e);
+        }
+        return BuiltInStory.build();
+    }
+
+    private File build(StoryGraph graph) throws IOException {
+        long start = System.nanoTime();
+        File partial = new File(file.getPath() + BUILD_SUFFIX);
+        SQLiteDatabase.deleteDatabase(partial);
+        File parent = partial.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(partial.getPath(), null,
+                SQLiteDatabase.OPEN_READWRITE | SQLiteDatabase.CREATE_IF_NECESSARY);
+        try {
+            db.beginTransaction();
+            try {
+                db.execSQL(CREATE_DIALOGS_TABLE);
+                db.execSQL(CREATE_CHOICES_TABLE);
+                for (String index : CREATE_INDEXES) {
+                    db.execSQL(index);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            StoryImporter.importStory(db, graph, System.currentTimeMillis());
+            db.setVersion(VERSION);
+        } catch (RuntimeException e) {
+            db.close();
+            SQLiteDatabase.deleteDatabase(partial);
+            throw new IOException("Cannot build " + NAME, e);
+        }
+        db.close();
+
+        Log.d(TAG, "Built " + NAME + ": " + graph.getDialogCount() + " dialogs, " + graph.getChoiceCount()
+                + " choices in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+        return partial;
+    }
+}
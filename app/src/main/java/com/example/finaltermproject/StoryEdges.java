@@ -0,0 +1,137 @@
+package com.example.finaltermproject;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Compact adjacency index of the raw choices table, for graph checks.
+ *
+ * Unlike {@link StoryGraph}, which repairs broken choices for display, this keeps the table
+ * exactly as stored: dialogs are numbered 0..n-1 in id order, edges between existing dialogs
+ * form a CSR list, and choices that reference a missing dialog are kept aside as dangling.
+ */
+final class StoryEdges {
+    final int[] ids;          // sorted dialog ids, index = node
+    final int[] edgeStart;    // ids.length + 1 row pointers into edgeTargets
+    final int[] edgeTargets;  // target node of each edge
+    final int[] danglingSources;  // dialog ids of choices with a missing source or target
+    final int[] danglingTargets;
+
+    private StoryEdges(int[] ids, int[] edgeStart, int[] edgeTargets, int[] danglingSources, int[] danglingTargets) {
+        this.ids = ids;
+        this.edgeStart = edgeStart;
+        this.edgeTargets = edgeTargets;
+        this.danglingSources = danglingSources;
+        this.danglingTargets = danglingTargets;
+    }
+
+    /**
+     * Reads the dialog ids and the choices edge list, one query each.
+     */
+    @NonNull
+    static StoryEdges load(@NonNull SQLiteDatabase db) {
+        int[] ids;
+        try (Cursor cursor = db.rawQuery(Queries.ALL_DIALOG_IDS, null)) {
+            ids = new int[cursor.getCount()];
+            int i = 0;
+            while (cursor.moveToNext()) {
+                ids[i++] = cursor.getInt(0);
+            }
+        }
+
+        int[] sources;
+        int[] targets;
+        try (Cursor cursor = db.rawQuery(Queries.ALL_EDGES, null)) {
+            sources = new int[cursor.getCount()];
+            targets = new int[sources.length];
+            int i = 0;
+            while (cursor.moveToNext()) {
+                sources[i] = cursor.getInt(0);
+                targets[i] = cursor.getInt(1);
+                i++;
+            }
+        }
+        return of(ids, sources, targets);
+    }
+
+    /**
+     * Builds the index from an already loaded story graph, without touching the database.
+     */
+    @NonNull
+    static StoryEdges of(@NonNull StoryGraph graph) {
+        int[] ids = new int[graph.getDialogCount()];
+        int[] sources = new int[graph.getChoiceCount()];
+        int[] targets = new int[sources.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = graph.getDialogIdAt(i);
+            for (int c = graph.getChoiceStart(i); c < graph.getChoiceStart(i + 1); c++) {
+                sources[c] = ids[i];
+                targets[c] = graph.getChoiceNextIdAt(c);
+            }
+        }
+        return of(ids, sources, targets);
+    }
+
+    /**
+     * Builds the index from dialog ids in ascending order and parallel edge arrays of dialog ids.
+     */
+    @NonNull
+    static StoryEdges of(@NonNull int[] sortedIds, @NonNull int[] sources, @NonNull int[] targets) {
+        int n = sortedIds.length;
+        int[] sourceNodes = new int[sources.length];
+        int[] targetNodes = new int[sources.length];
+        int[] edgeStart = new int[n + 1];
+        int dangling = 0;
+        for (int e = 0; e < sources.length; e++) {
+            sourceNodes[e] = Arrays.binarySearch(sortedIds, sources[e]);
+            targetNodes[e] = Arrays.binarySearch(sortedIds, targets[e]);
+            if (sourceNodes[e] < 0 || targetNodes[e] < 0) {
+                dangling++;
+            } else {
+                edgeStart[sourceNodes[e] + 1]++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            edgeStart[i + 1] += edgeStart[i];
+        }
+
+        int[] edgeTargets = new int[sources.length - dangling];
+        int[] danglingSources = new int[dangling];
+        int[] danglingTargets = new int[dangling];
+        int[] fill = Arrays.copyOf(edgeStart, n);
+        int d = 0;
+        for (int e = 0; e < sources.length; e++) {
+            if (sourceNodes[e] < 0 || targetNodes[e] < 0) {
+                danglingSources[d] = sources[e];
+                danglingTargets[d] = targets[e];
+                d++;
+            } else {
+                edgeTargets[fill[sourceNodes[e]]++] = targetNodes[e];
+            }
+        }
+        return new StoryEdges(sortedIds, edgeStart, edgeTargets, danglingSources, danglingTargets);
+    }
+
+    int getNodeCount() {
+        return ids.length;
+    }
+
+    int getEdgeCount() {
+        return edgeTargets.length;
+    }
+
+    /**
+     * Node of a dialog id, or -1 when the dialog does not exist.
+     */
+    int nodeOf(int dialogId) {
+        int node = Arrays.binarySearch(ids, dialogId);
+        return node >= 0 ? node : -1;
+    }
+
+    int outDegree(int node) {
+        return edgeStart[node + 1] - edgeStart[node];
+    }
+}
@@ -0,0 +1,365 @@
+package com.example.finaltermproject;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable, in-memory copy of the dialogs and choices tables.
+ *
+ * Dialogs are kept in id order with their text stored as offsets into one shared text pool,
+ * and choices are stored as a CSR adjacency list (choiceStart[i]..choiceStart[i + 1] are the
+ * choices of dialog i). Once loaded, every lookup is an array access and no cursor is opened.
+ */
+public final class StoryGraph {
+    private static final String TAG = "StoryGraph";
+
+    // Ids above this are looked up with a binary search instead of a dense id -> index table
+    private static final int MAX_DENSE_ID = 1 << 16;
+
+    // Ending dialogs are 501-504 based on the story structure
+    private static final int FIRST_ENDING_ID = 501;
+    private static final int LAST_ENDING_ID = 504;
+
+    private final String textPool;
+    private final int[] dialogIds;          // sorted ascending
+    private final int[] dialogTextOffsets;  // dialogCount + 1 offsets into textPool
+    private final String[] dialogCharacters; // precomputed character key per dialog, may hold nulls
+    private final int[] indexById;          // dense id -> index table, -1 when missing (null when ids are sparse)
+
+    private final int[] choiceStart;        // dialogCount + 1 row pointers into the choice arrays
+    private final int[] choiceIds;
+    private final int[] choiceNextIds;
+    private final int[] choiceTextOffsets;  // choiceCount + 1 offsets into textPool
+
+    private StoryGraph(String textPool, int[] dialogIds, int[] dialogTextOffsets, String[] dialogCharacters,
+                       int[] choiceStart, int[] choiceIds, int[] choiceNextIds, int[] choiceTextOffsets) {
+        this.textPool = textPool;
+        this.dialogIds = dialogIds;
+        this.dialogTextOffsets = dialogTextOffsets;
+        this.dialogCharacters = dialogCharacters;
+        this.choiceStart = choiceStart;
+        this.choiceIds = choiceIds;
+        this.choiceNextIds = choiceNextIds;
+        this.choiceTextOffsets = choiceTextOffsets;
+        this.indexById = buildDenseIndex(dialogIds);
+    }
+
+    private static int[] buildDenseIndex(int[] dialogIds) {
+        if (dialogIds.length == 0 || dialogIds[dialogIds.length - 1] > MAX_DENSE_ID) {
+            return null;
+        }
+        int[] index = new int[dialogIds[dialogIds.length - 1] + 1];
+        Arrays.fill(index, -1);
+        for (int i = 0; i < dialogIds.length; i++) {
+            index[dialogIds[i]] = i;
+        }
+        return index;
+    }
+
+    /**
+     * Reads both story tables with one cursor each and compiles them into a graph.
+     */
+    @NonNull
+    public static StoryGraph load(@NonNull SQLiteDatabase db) {
+        long start = System.nanoTime();
+        Builder builder = new Builder();
+
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(Queries.ALL_DIALOGS, null);
+            while (cursor.moveToNext()) {
+                builder.addDialog(cursor.getInt(0), cursor.getString(1), cursor.getString(2));
+            }
+            cursor.close();
+
+            cursor = db.rawQuery(Queries.ALL_CHOICES, null);
+            while (cursor.moveToNext()) {
+                builder.addChoice(cursor.getInt(0), cursor.getInt(1), cursor.getString(2), cursor.getInt(3));
+            }
+        } finally {
+            if (cursor != null && !cursor.isClosed()) {
+                cursor.close();
+            }
+        }
+
+        StoryGraph graph = builder.build();
+        Log.d(TAG, "Loaded story graph: " + graph.getDialogCount() + " dialogs, "
+                + graph.getChoiceCount() + " choices in " + (System.nanoTime() - start) / 1000 + "us");
+        return graph;
+    }
+
+    public static boolean isEndingDialog(int dialogId) {
+        return dialogId >= FIRST_ENDING_ID && dialogId <= LAST_ENDING_ID;
+    }
+
+    public int getDialogCount() {
+        return dialogIds.length;
+    }
+
+    public int getChoiceCount() {
+        return choiceIds.length;
+    }
+
+    public boolean isEmpty() {
+        return dialogIds.length == 0;
+    }
+
+    /**
+     * Returns the position of a dialog in id order, or -1 when the id does not exist.
+     */
+    public int indexOf(int dialogId) {
+        if (indexById != null) {
+            return dialogId >= 0 && dialogId < indexById.length ? indexById[dialogId] : -1;
+        }
+        int index = Arrays.binarySearch(dialogIds, dialogId);
+        return index >= 0 ? index : -1;
+    }
+
+    public boolean hasDialog(int dialogId) {
+        return indexOf(dialogId) >= 0;
+    }
+
+    public int getDialogIdAt(int index) {
+        return dialogIds[index];
+    }
+
+    public int getFirstDialogId() {
+        return dialogIds.length > 0 ? dialogIds[0] : -1;
+    }
+
+    public int getLastDialogId() {
+        return dialogIds.length > 0 ? dialogIds[dialogIds.length - 1] : -1;
+    }
+
+    @Nullable
+    public String getDialogText(int dialogId) {
+        int index = indexOf(dialogId);
+        if (index < 0) {
+            return null;
+        }
+        return textPool.substring(dialogTextOffsets[index], dialogTextOffsets[index + 1]);
+    }
+
+    /**
+     * Same contract as {@link DatabaseHelper#getDialogById(int)}: null when the dialog is missing
+     * or its stored text is not a valid {@link DialogEntry}.
+     */
+    @Nullable
+    public DialogEntry getDialog(int dialogId) {
+        int index = indexOf(dialogId);
+        if (index < 0) {
+            Log.w(TAG, "Dialog not found: " + dialogId);
+            return null;
+        }
+        try {
+            return new DialogEntry(dialogId, getDialogTextAt(index), dialogCharacters[index]);
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Invalid dialog " + dialogId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the choices of a dialog in id order. Choices pointing at a missing dialog are
+     * redirected to the nearest valid dialog and marked as recovered, matching the behaviour of
+     * the original per-row database validation.
+     */
+    @NonNull
+    public List<Choice> getChoices(int dialogId) {
+        int index = indexOf(dialogId);
+        if (index < 0) {
+            return new ArrayList<>();
+        }
+
+        int from = choiceStart[index];
+        int to = choiceStart[index + 1];
+        List<Choice> choices = new ArrayList<>(to - from);
+        for (int c = from; c < to; c++) {
+            String choiceText = getChoiceText(c);
+            int nextDialogId = choiceNextIds[c];
+            try {
+                if (hasDialog(nextDialogId)) {
+                    choices.add(new Choice(choiceIds[c], dialogId, choiceText, nextDialogId));
+                } else {
+                    Log.w(TAG, "Invalid next_dialog_id: " + nextDialogId + " for choice: " + choiceText);
+                    int fallbackDialogId = findNearestDialog(nextDialogId);
+                    if (fallbackDialogId > 0) {
+                        Log.w(TAG, "Using fallback dialog " + fallbackDialogId + " for choice: " + choiceText);
+                        choices.add(new Choice(choiceIds[c], dialogId, choiceText + " (Recovered)", fallbackDialogId));
+                    }
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error processing choice " + choiceIds[c], e);
+            }
+        }
+        return choices;
+    }
+
+    /**
+     * First dialog with an id at or after the target, otherwise the last dialog, otherwise 1.
+     */
+    public int findNearestDialog(int targetDialogId) {
+        if (dialogIds.length == 0) {
+            return 1;
+        }
+        int index = Arrays.binarySearch(dialogIds, targetDialogId);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index < dialogIds.length ? dialogIds[index] : dialogIds[dialogIds.length - 1];
+    }
+
+    // Raw row access by position, used when copying the graph into the database
+
+    String getDialogTextAt(int index) {
+        return textPool.substring(dialogTextOffsets[index], dialogTextOffsets[index + 1]);
+    }
+
+    @Nullable
+    String getDialogCharacterAt(int index) {
+        return dialogCharacters[index];
+    }
+
+    int getChoiceStart(int dialogIndex) {
+        return choiceStart[dialogIndex];
+    }
+
+    int getChoiceIdAt(int choiceIndex) {
+        return choiceIds[choiceIndex];
+    }
+
+    int getChoiceNextIdAt(int choiceIndex) {
+        return choiceNextIds[choiceIndex];
+    }
+
+    String getChoiceText(int choiceIndex) {
+        return textPool.substring(choiceTextOffsets[choiceIndex], choiceTextOffsets[choiceIndex + 1]);
+    }
+
+    /**
+     * Collects dialog and choice rows in any order and compiles them into a {@link StoryGraph}.
+     */
+    public static final class Builder {
+        private final List<Integer> dialogIds = new ArrayList<>();
+        private final List<String> dialogTexts = new ArrayList<>();
+        private final List<String> dialogCharacters = new ArrayList<>();
+        private final List<int[]> choiceRows = new ArrayList<>();  // {id, dialogId, nextDialogId}
+        private final List<String> choiceTexts = new ArrayList<>();
+
+        public Builder addDialog(int id, @Nullable String text) {
+            return addDialog(id, text, null);
+        }
+
+        public Builder addDialog(int id, @Nullable String text, @Nullable String character) {
+            dialogIds.add(id);
+            dialogTexts.add(text != null ? text : "");
+            dialogCharacters.add(character);
+            return this;
+        }
+
+        public Builder addChoice(int id, int dialogId, @Nullable String choiceText, int nextDialogId) {
+            choiceRows.add(new int[]{id, dialogId, nextDialogId});
+            choiceTexts.add(choiceText != null ? choiceText : "");
+            return this;
+        }
+
+        @NonNull
+        public StoryGraph build() {
+            int dialogCount = dialogIds.size();
+
+            // Sort dialogs by id, keeping the last row when an id appears twice
+            Integer[] dialogOrder = new Integer[dialogCount];
+            for (int i = 0; i < dialogCount; i++) {
+                dialogOrder[i] = i;
+            }
+            Arrays.sort(dialogOrder, (a, b) -> Integer.compare(dialogIds.get(a), dialogIds.get(b)));
+
+            int[] ids = new int[dialogCount];
+            int[] sourceRows = new int[dialogCount];
+            int unique = 0;
+            for (int i = 0; i < dialogCount; i++) {
+                int row = dialogOrder[i];
+                int id = dialogIds.get(row);
+                if (unique > 0 && ids[unique - 1] == id) {
+                    sourceRows[unique - 1] = Math.max(sourceRows[unique - 1], row);
+                } else {
+                    ids[unique] = id;
+                    sourceRows[unique] = row;
+                    unique++;
+                }
+            }
+            ids = Arrays.copyOf(ids, unique);
+
+            StringBuilder pool = new StringBuilder();
+            int[] dialogTextOffsets = new int[unique + 1];
+            String[] characters = new String[unique];
+            for (int i = 0; i < unique; i++) {
+                dialogTextOffsets[i] = pool.length();
+                pool.append(dialogTexts.get(sourceRows[i]));
+                characters[i] = dialogCharacters.get(sourceRows[i]);
+            }
+            dialogTextOffsets[unique] = pool.length();
+
+            // Bucket choices by the index of their source dialog (counting sort keeps id order stable)
+            Integer[] choiceOrder = new Integer[choiceRows.size()];
+            for (int i = 0; i < choiceOrder.length; i++) {
+                choiceOrder[i] = i;
+            }
+            Arrays.sort(choiceOrder, (a, b) -> Integer.compare(choiceRows.get(a)[0], choiceRows.get(b)[0]));
+
+            int[] choiceStart = new int[unique + 1];
+            int[] choiceDialogIndex = new int[choiceOrder.length];
+            int dropped = 0;
+            for (int i = 0; i < choiceOrder.length; i++) {
+                int dialogIndex = Arrays.binarySearch(ids, choiceRows.get(choiceOrder[i])[1]);
+                choiceDialogIndex[i] = dialogIndex;
+                if (dialogIndex >= 0) {
+                    choiceStart[dialogIndex + 1]++;
+                } else {
+                    dropped++;
+                }
+            }
+            for (int i = 0; i < unique; i++) {
+                choiceStart[i + 1] += choiceStart[i];
+            }
+
+            int choiceCount = choiceOrder.length - dropped;
+            int[] choiceIds = new int[choiceCount];
+            int[] choiceNextIds = new int[choiceCount];
+            int[] slotChoice = new int[choiceCount];
+            int[] fill = Arrays.copyOf(choiceStart, unique);
+            for (int i = 0; i < choiceOrder.length; i++) {
+                int dialogIndex = choiceDialogIndex[i];
+                if (dialogIndex < 0) {
+                    continue;
+                }
+                int slot = fill[dialogIndex]++;
+                int[] row = choiceRows.get(choiceOrder[i]);
+                choiceIds[slot] = row[0];
+                choiceNextIds[slot] = row[2];
+                slotChoice[slot] = choiceOrder[i];
+            }
+
+            int[] choiceTextOffsets = new int[choiceCount + 1];
+            for (int slot = 0; slot < choiceCount; slot++) {
+                choiceTextOffsets[slot] = pool.length();
+                pool.append(choiceTexts.get(slotChoice[slot]));
+            }
+            choiceTextOffsets[choiceCount] = pool.length();
+
+            if (dropped > 0) {
+                Log.w(TAG, "Ignored " + dropped + " choice(s) whose dialog does not exist");
+            }
+
+            return new StoryGraph(pool.toString(), ids, dialogTextOffsets, characters,
+                    choiceStart, choiceIds, choiceNextIds, choiceTextOffsets);
+        }
+    }
+}
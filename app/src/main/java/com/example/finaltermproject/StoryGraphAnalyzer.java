@@ -0,0 +1,226 @@
+package com.example.finaltermproject;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Linear-time structural checks over the choices graph.
+ *
+ * Cycles are found as strongly connected components with an iterative Tarjan pass, dead ends
+ * with an out-degree scan and dangling references from the set difference between referenced
+ * and existing dialog ids. Loops are normal in a branching story, so a cycle is only an error
+ * when it is a trap: no choice inside it leads out and it contains no ending. Endings may
+ * loop back to the start, which makes the whole story a single cycle that is not a trap.
+ */
+public final class StoryGraphAnalyzer {
+
+    private StoryGraphAnalyzer() {
+    }
+
+    /**
+     * Structure of the dialogs and choices tables. Ids are dialog ids, sorted ascending.
+     */
+    public static final class Analysis {
+        public final int dialogCount;
+        public final int choiceCount;
+        public final int[] danglingSources;  // choices whose source or target dialog is missing,
+        public final int[] danglingTargets;  // as parallel (dialog_id, next_dialog_id) arrays
+        public final int[] missingDialogIds; // distinct ids referenced by choices but not present
+        public final int[] deadEnds;         // dialogs without choices, except the last dialog
+        public final List<int[]> cycles;     // every component with a loop
+        public final List<int[]> traps;      // cycles no choice leads out of
+        public final long elapsedNanos;
+
+        Analysis(int dialogCount, int choiceCount, int[] danglingSources, int[] danglingTargets,
+                 int[] missingDialogIds, int[] deadEnds, List<int[]> cycles, List<int[]> traps, long elapsedNanos) {
+            this.dialogCount = dialogCount;
+            this.choiceCount = choiceCount;
+            this.danglingSources = danglingSources;
+            this.danglingTargets = danglingTargets;
+            this.missingDialogIds = missingDialogIds;
+            this.deadEnds = deadEnds;
+            this.cycles = Collections.unmodifiableList(cycles);
+            this.traps = Collections.unmodifiableList(traps);
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public boolean isValid() {
+            return danglingSources.length == 0 && traps.isEmpty();
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return dialogCount + " dialogs, " + choiceCount + " choices: "
+                    + danglingSources.length + " dangling choice(s) to " + Arrays.toString(missingDialogIds)
+                    + ", dead ends " + Arrays.toString(deadEnds)
+                    + ", " + cycles.size() + " cycle(s), " + traps.size() + " trap(s)"
+                    + " in " + elapsedNanos / 1000 + "us";
+        }
+    }
+
+    @NonNull
+    public static Analysis analyze(@NonNull StoryEdges edges) {
+        long start = System.nanoTime();
+        int n = edges.getNodeCount();
+
+        // Dangling references: ids referenced by choices minus ids that exist
+        int[] missing = new int[edges.danglingSources.length * 2];
+        int missingCount = 0;
+        boolean[] hasDanglingChoice = new boolean[n];
+        for (int d = 0; d < edges.danglingSources.length; d++) {
+            int sourceNode = edges.nodeOf(edges.danglingSources[d]);
+            if (sourceNode < 0) {
+                missing[missingCount++] = edges.danglingSources[d];
+            } else {
+                hasDanglingChoice[sourceNode] = true;
+            }
+            if (edges.nodeOf(edges.danglingTargets[d]) < 0) {
+                missing[missingCount++] = edges.danglingTargets[d];
+            }
+        }
+        int[] missingDialogIds = distinctSorted(missing, missingCount);
+
+        // Dead ends: no choice at all, valid or not. The last dialog has always been exempt.
+        int[] deadEnds = new int[n];
+        int deadEndCount = 0;
+        for (int node = 0; node < n - 1; node++) {
+            if (edges.outDegree(node) == 0 && !hasDanglingChoice[node]) {
+                deadEnds[deadEndCount++] = edges.ids[node];
+            }
+        }
+
+        int[] component = new int[n];
+        int componentCount = tarjan(edges, component);
+
+        // A component is a cycle when it has more than one node or a self loop. It is a trap
+        // when no edge leaves it and no node in it is an ending, a dead end or has a broken choice.
+        int[] size = new int[componentCount];
+        boolean[] looped = new boolean[componentCount];
+        boolean[] exits = new boolean[componentCount];
+        for (int node = 0; node < n; node++) {
+            int c = component[node];
+            size[c]++;
+            if (edges.outDegree(node) == 0 || hasDanglingChoice[node] || StoryGraph.isEndingDialog(edges.ids[node])) {
+                exits[c] = true;
+            }
+            for (int e = edges.edgeStart[node]; e < edges.edgeStart[node + 1]; e++) {
+                int target = edges.edgeTargets[e];
+                if (target == node) {
+                    looped[c] = true;
+                } else if (component[target] != c) {
+                    exits[c] = true;
+                }
+            }
+        }
+
+        List<int[]> cycles = new ArrayList<>();
+        List<int[]> traps = new ArrayList<>();
+        int[][] members = new int[componentCount][];
+        int[] fill = new int[componentCount];
+        for (int node = 0; node < n; node++) {
+            int c = component[node];
+            if (size[c] > 1 || looped[c]) {
+                if (members[c] == null) {
+                    members[c] = new int[size[c]];
+                }
+                members[c][fill[c]++] = edges.ids[node];
+            }
+        }
+        for (int c = 0; c < componentCount; c++) {
+            if (members[c] == null) continue;
+            cycles.add(members[c]);  // nodes were visited in id order, so already sorted
+            if (!exits[c]) {
+                traps.add(members[c]);
+            }
+        }
+
+        return new Analysis(n, edges.getEdgeCount() + edges.danglingSources.length,
+                edges.danglingSources, edges.danglingTargets, missingDialogIds,
+                Arrays.copyOf(deadEnds, deadEndCount), cycles, traps, System.nanoTime() - start);
+    }
+
+    /**
+     * Iterative Tarjan: fills the component of every node and returns the component count.
+     */
+    static int tarjan(@NonNull StoryEdges edges, @NonNull int[] component) {
+        int n = edges.getNodeCount();
+        int[] index = new int[n];
+        int[] lowLink = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int stackSize = 0;
+
+        // Explicit call stack of (node, next edge to visit)
+        int[] callNode = new int[n];
+        int[] callEdge = new int[n];
+
+        Arrays.fill(index, -1);
+        int nextIndex = 0;
+        int componentCount = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) continue;
+
+            int depth = 0;
+            callNode[0] = root;
+            callEdge[0] = edges.edgeStart[root];
+            index[root] = lowLink[root] = nextIndex++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                int node = callNode[depth];
+                int e = callEdge[depth];
+                if (e < edges.edgeStart[node + 1]) {
+                    callEdge[depth]++;
+                    int target = edges.edgeTargets[e];
+                    if (index[target] < 0) {
+                        index[target] = lowLink[target] = nextIndex++;
+                        stack[stackSize++] = target;
+                        onStack[target] = true;
+                        depth++;
+                        callNode[depth] = target;
+                        callEdge[depth] = edges.edgeStart[target];
+                    } else if (onStack[target]) {
+                        lowLink[node] = Math.min(lowLink[node], index[target]);
+                    }
+                    continue;
+                }
+
+                // All edges done: pop a component if this node is its root
+                if (lowLink[node] == index[node]) {
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        onStack[member] = false;
+                        component[member] = componentCount;
+                    } while (member != node);
+                    componentCount++;
+                }
+                depth--;
+                if (depth >= 0) {
+                    int parent = callNode[depth];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                }
+            }
+        }
+        return componentCount;
+    }
+
+    private static int[] distinctSorted(int[] values, int count) {
+        int[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+        int unique = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (unique == 0 || sorted[unique - 1] != sorted[i]) {
+                sorted[unique++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, unique);
+    }
+}
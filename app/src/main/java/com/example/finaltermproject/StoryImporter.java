@@ -0,0 +1,228 @@
+package com.example.finaltermproject;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+import androidx.annotation.NonNull;
+
+/**
+ * Bulk-inserts a {@link StoryGraph} into the dialogs and choices tables.
+ *
+ * One compiled statement per table is rebound for every row, and all rows are written in a
+ * single transaction. When the caller is not already in a transaction the journal is kept in
+ * memory and fsyncs are skipped for the duration of the import, then restored.
+ * Dialogs are written before choices so every foreign key target already exists.
+ *
+ * The character shown with each dialog is detected here, once per import, and stored in the
+ * character_key column so the game never has to scan dialog text.
+ */
+public final class StoryImporter {
+    private static final String TAG = "StoryImporter";
+
+    private static final String INSERT_DIALOG =
+            "INSERT INTO dialogs (id, text, created_at, character_key) VALUES (?, ?, ?, ?)";
+    private static final String UPDATE_CHARACTER = "UPDATE dialogs SET character_key = ? WHERE id = ?";
+    private static final String INSERT_CHOICE =
+            "INSERT INTO choices (id, dialog_id, choice_text, next_dialog_id, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    // 8 MB page cache while importing (negative values are KiB)
+    private static final int IMPORT_CACHE_SIZE = -8192;
+
+    private StoryImporter() {
+    }
+
+    public static final class Result {
+        public final int dialogCount;
+        public final int choiceCount;
+        public final long elapsedNanos;
+
+        Result(int dialogCount, int choiceCount, long elapsedNanos) {
+            this.dialogCount = dialogCount;
+            this.choiceCount = choiceCount;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getRowCount() {
+            return dialogCount + choiceCount;
+        }
+
+        public long getRowsPerSecond() {
+            return elapsedNanos > 0 ? getRowCount() * 1_000_000_000L / elapsedNanos : getRowCount();
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return dialogCount + " dialogs, " + choiceCount + " choices in "
+                    + elapsedNanos / 1_000_000 + "ms (" + getRowsPerSecond() + " rows/s)";
+        }
+    }
+
+    /**
+     * Inserts every dialog and choice of the graph. Choices with id 0 get an id assigned by the
+     * database. Any constraint violation aborts the whole import.
+     */
+    @NonNull
+    public static Result importStory(@NonNull SQLiteDatabase db, @NonNull StoryGraph graph, long createdAt) {
+        long start = System.nanoTime();
+        boolean tuneJournal = !db.inTransaction();
+
+        String previousJournalMode = null;
+        long previousSynchronous = -1;
+        long previousCacheSize = queryPragma(db, "cache_size");
+        if (tuneJournal) {
+            // Both settings can only be changed outside of a transaction
+            previousSynchronous = queryPragma(db, "synchronous");
+            previousJournalMode = setJournalMode(db, "MEMORY");
+            db.execSQL("PRAGMA synchronous = OFF");
+        }
+        db.execSQL("PRAGMA cache_size = " + IMPORT_CACHE_SIZE);
+
+        SQLiteStatement insertDialog = null;
+        SQLiteStatement insertChoice = null;
+        db.beginTransaction();
+        try {
+            CharacterDetector detector = CharacterDetector.getDefault();
+            insertDialog = db.compileStatement(INSERT_DIALOG);
+            for (int i = 0; i < graph.getDialogCount(); i++) {
+                String text = graph.getDialogTextAt(i);
+                String character = graph.getDialogCharacterAt(i);
+                if (character == null) {
+                    character = detector.detectPrimary(text);
+                }
+                insertDialog.clearBindings();
+                insertDialog.bindLong(1, graph.getDialogIdAt(i));
+                insertDialog.bindString(2, text);
+                insertDialog.bindLong(3, createdAt);
+                bindNullable(insertDialog, 4, character);
+                insertDialog.executeInsert();
+            }
+
+            insertChoice = db.compileStatement(INSERT_CHOICE);
+            for (int i = 0; i < graph.getDialogCount(); i++) {
+                int dialogId = graph.getDialogIdAt(i);
+                for (int c = graph.getChoiceStart(i); c < graph.getChoiceStart(i + 1); c++) {
+                    insertChoice.clearBindings();
+                    int choiceId = graph.getChoiceIdAt(c);
+                    if (choiceId > 0) {
+                        insertChoice.bindLong(1, choiceId);
+                    } else {
+                        insertChoice.bindNull(1);
+                    }
+                    insertChoice.bindLong(2, dialogId);
+                    insertChoice.bindString(3, graph.getChoiceText(c));
+                    insertChoice.bindLong(4, graph.getChoiceNextIdAt(c));
+                    insertChoice.bindLong(5, createdAt);
+                    insertChoice.executeInsert();
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            if (insertDialog != null) {
+                insertDialog.close();
+            }
+            if (insertChoice != null) {
+                insertChoice.close();
+            }
+            restorePragmas(db, previousJournalMode, previousSynchronous, previousCacheSize);
+        }
+
+        Result result = new Result(graph.getDialogCount(), graph.getChoiceCount(), System.nanoTime() - start);
+        Log.d(TAG, "Imported " + result);
+        return result;
+    }
+
+    /**
+     * Recomputes character_key for every dialog already in the table, e.g. after a schema
+     * upgrade or when the character registry changed. Returns the number of dialogs that
+     * have a character.
+     */
+    public static int updateCharacters(@NonNull SQLiteDatabase db) {
+        long start = System.nanoTime();
+        CharacterDetector detector = CharacterDetector.getDefault();
+        int withCharacter = 0;
+
+        SQLiteStatement update = null;
+        db.beginTransaction();
+        try (Cursor cursor = db.rawQuery("SELECT id, text FROM dialogs", null)) {
+            update = db.compileStatement(UPDATE_CHARACTER);
+            while (cursor.moveToNext()) {
+                String character = detector.detectPrimary(cursor.getString(1));
+                update.clearBindings();
+                bindNullable(update, 1, character);
+                update.bindLong(2, cursor.getInt(0));
+                update.executeUpdateDelete();
+                if (character != null) {
+                    withCharacter++;
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            if (update != null) {
+                update.close();
+            }
+        }
+
+        Log.d(TAG, "Precomputed characters: " + withCharacter + " dialog(s) with a character in "
+                + (System.nanoTime() - start) / 1_000_000 + "ms");
+        return withCharacter;
+    }
+
+    private static void bindNullable(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    private static void restorePragmas(SQLiteDatabase db, String journalMode, long synchronous, long cacheSize) {
+        try {
+            if (cacheSize != -1) {
+                db.execSQL("PRAGMA cache_size = " + cacheSize);
+            }
+            if (!db.inTransaction()) {
+                if (synchronous >= 0) {
+                    db.execSQL("PRAGMA synchronous = " + synchronous);
+                }
+                if (journalMode != null) {
+                    setJournalMode(db, journalMode);
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Error restoring pragmas after import: " + e.getMessage());
+        }
+    }
+
+    private static long queryPragma(SQLiteDatabase db, String pragma) {
+        try (Cursor cursor = db.rawQuery("PRAGMA " + pragma, null)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        } catch (Exception e) {
+            Log.w(TAG, "Cannot read PRAGMA " + pragma + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Switches the journal mode and returns the previous one, or null when it was left alone.
+     * WAL databases are not touched since leaving WAL needs exclusive access.
+     */
+    private static String setJournalMode(SQLiteDatabase db, String mode) {
+        try (Cursor cursor = db.rawQuery("PRAGMA journal_mode", null)) {
+            String previous = cursor.moveToFirst() ? cursor.getString(0) : null;
+            if (previous == null || "wal".equalsIgnoreCase(previous) || previous.equalsIgnoreCase(mode)) {
+                return null;
+            }
+            try (Cursor changed = db.rawQuery("PRAGMA journal_mode = " + mode, null)) {
+                changed.moveToFirst();
+            }
+            return previous;
+        } catch (Exception e) {
+            Log.w(TAG, "Cannot change journal mode: " + e.getMessage());
+            return null;
+        }
+    }
+}
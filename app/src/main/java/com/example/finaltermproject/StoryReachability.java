@@ -0,0 +1,167 @@
+package com.example.finaltermproject;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Which dialogs can be reached from the start, and how many choices away each one is.
+ *
+ * Computed with one breadth-first pass over {@link StoryEdges}: the visited set is a BitSet and
+ * the frontier an int array of node indexes, so a story of a few hundred dialogs takes
+ * microseconds. Depths are shortest choice counts from the start dialog.
+ */
+public final class StoryReachability {
+    private final StoryEdges edges;
+    private final int startDialogId;
+    private final BitSet reachable;
+    private final BitSet endings;     // reachable endings and dialogs without choices
+    private final int[] depth;        // per node, -1 when unreachable
+    private final int maxDepth;
+    private final int maxEndingDepth;
+    private final long elapsedNanos;
+
+    private StoryReachability(StoryEdges edges, int startDialogId, BitSet reachable, BitSet endings,
+                              int[] depth, int maxDepth, int maxEndingDepth, long elapsedNanos) {
+        this.edges = edges;
+        this.startDialogId = startDialogId;
+        this.reachable = reachable;
+        this.endings = endings;
+        this.depth = depth;
+        this.maxDepth = maxDepth;
+        this.maxEndingDepth = maxEndingDepth;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    @NonNull
+    static StoryReachability compute(@NonNull StoryEdges edges, int startDialogId) {
+        long start = System.nanoTime();
+        int n = edges.getNodeCount();
+        BitSet reachable = new BitSet(n);
+        BitSet endings = new BitSet(n);
+        int[] depth = new int[n];
+        Arrays.fill(depth, -1);
+        int maxDepth = 0;
+        int maxEndingDepth = 0;
+
+        int startNode = edges.nodeOf(startDialogId);
+        if (startNode >= 0) {
+            int[] queue = new int[n];
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = startNode;
+            reachable.set(startNode);
+            depth[startNode] = 0;
+
+            while (head < tail) {
+                int node = queue[head++];
+                int d = depth[node];
+                maxDepth = Math.max(maxDepth, d);
+                if (edges.outDegree(node) == 0 || StoryGraph.isEndingDialog(edges.ids[node])) {
+                    endings.set(node);
+                    maxEndingDepth = Math.max(maxEndingDepth, d);
+                }
+                for (int e = edges.edgeStart[node]; e < edges.edgeStart[node + 1]; e++) {
+                    int target = edges.edgeTargets[e];
+                    if (!reachable.get(target)) {
+                        reachable.set(target);
+                        depth[target] = d + 1;
+                        queue[tail++] = target;
+                    }
+                }
+            }
+        }
+
+        return new StoryReachability(edges, startDialogId, reachable, endings, depth,
+                maxDepth, maxEndingDepth, System.nanoTime() - start);
+    }
+
+    public int getStartDialogId() {
+        return startDialogId;
+    }
+
+    public boolean isReachable(int dialogId) {
+        int node = edges.nodeOf(dialogId);
+        return node >= 0 && reachable.get(node);
+    }
+
+    /**
+     * Fewest choices needed to get from the start to the dialog, or -1 when it cannot be reached.
+     */
+    public int getDepth(int dialogId) {
+        int node = edges.nodeOf(dialogId);
+        return node >= 0 ? depth[node] : -1;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * How far into the story a dialog is, from 0 at the start to 1 at the deepest ending.
+     * Returns 0 for unreachable dialogs.
+     */
+    public float getProgress(int dialogId) {
+        int d = getDepth(dialogId);
+        int total = maxEndingDepth > 0 ? maxEndingDepth : maxDepth;
+        if (d <= 0 || total == 0) {
+            return 0f;
+        }
+        return Math.min(1f, d / (float) total);
+    }
+
+    public int getReachableCount() {
+        return reachable.cardinality();
+    }
+
+    public int getUnreachableCount() {
+        return edges.getNodeCount() - reachable.cardinality();
+    }
+
+    @NonNull
+    public int[] getReachableIds() {
+        return toIds(reachable, false);
+    }
+
+    @NonNull
+    public int[] getUnreachableIds() {
+        return toIds(reachable, true);
+    }
+
+    /**
+     * Reachable endings, plus any reachable dialog without choices.
+     */
+    @NonNull
+    public int[] getEndingIds() {
+        return toIds(endings, false);
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    private int[] toIds(BitSet set, boolean complement) {
+        int n = edges.getNodeCount();
+        int[] ids = new int[complement ? n - set.cardinality() : set.cardinality()];
+        int i = 0;
+        if (complement) {
+            for (int node = set.nextClearBit(0); node < n; node = set.nextClearBit(node + 1)) {
+                ids[i++] = edges.ids[node];
+            }
+        } else {
+            for (int node = set.nextSetBit(0); node >= 0; node = set.nextSetBit(node + 1)) {
+                ids[i++] = edges.ids[node];
+            }
+        }
+        return ids;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return getReachableCount() + " reachable, " + getUnreachableCount() + " unreachable, "
+                + endings.cardinality() + " ending(s), max depth " + maxDepth
+                + " in " + elapsedNanos / 1000 + "us";
+    }
+}
@@ -17,6 +17,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import android.util.Log;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.RejectedExecutionException;
 
 public class UserManagementActivity extends AppCompatActivity {
     private static final String TAG = "UserManagementActivity";
@@ -29,6 +30,8 @@ public class UserManagementActivity extends AppCompatActivity {
     private Button btnCreateUser;
     private Handler mainHandler;
     private boolean isActivityActive = false;
+    private final DatabaseExecutor dbExecutor = DatabaseExecutor.getInstance();
+    private final DatabaseExecutor.Sequence userLoads = dbExecutor.newSequence("users");
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -112,12 +115,22 @@ public class UserManagementActivity extends AppCompatActivity {
     }
 
     private void loadUsers() {
-        // Use background thread for database operations
-        new Thread(() -> {
+        // Reload requests can overlap (onResume, after create/rename/delete); only the latest one is shown
+        try {
+            submitUserLoad();
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, "Cannot start loading users", e);
+            showToastSafely("Error loading users");
+        }
+    }
+
+    private void submitUserLoad() {
+        userLoads.submitRead(sequence -> {
             try {
                 List<User> loadedUsers = db.getAllUsers();
 
                 runOnUiThread(() -> {
+                    if (!userLoads.isCurrent(sequence)) return;
                     try {
                         users = loadedUsers != null ? loadedUsers : new ArrayList<>();
                         setupAdapter();
@@ -132,13 +145,14 @@ public class UserManagementActivity extends AppCompatActivity {
             } catch (Exception e) {
                 Log.e(TAG, "Error loading users from database", e);
                 runOnUiThread(() -> {
+                    if (!userLoads.isCurrent(sequence)) return;
                     users = new ArrayList<>();
                     setupAdapter();
                     updateEmptyState();
                     showToastSafely("Error loading users");
                 });
             }
-        }).start();
+        });
     }
 
     private void setupAdapter() {
@@ -255,8 +269,8 @@ public class UserManagementActivity extends AppCompatActivity {
         Button createButton = dialog.getButton(AlertDialog.BUTTON_POSITIVE);
         createButton.setEnabled(false);
 
-        // Use background thread for database operation
-        new Thread(() -> {
+        // Writes are serialized on the shared database writer thread
+        dbExecutor.executeWrite(() -> {
             try {
                 long userId = db.addUser(username);
                 User newUser = new User((int)userId, username);
@@ -285,7 +299,7 @@ public class UserManagementActivity extends AppCompatActivity {
                     createButton.setEnabled(true);
                 });
             }
-        }).start();
+        });
 
         return true;
     }
@@ -335,8 +349,8 @@ public class UserManagementActivity extends AppCompatActivity {
         Button renameButton = dialog.getButton(AlertDialog.BUTTON_POSITIVE);
         renameButton.setEnabled(false);
 
-        // Use background thread for database operation
-        new Thread(() -> {
+        // Writes are serialized on the shared database writer thread
+        dbExecutor.executeWrite(() -> {
             try {
                 db.renameUser(user.getId(), newName);
 
@@ -369,7 +383,7 @@ public class UserManagementActivity extends AppCompatActivity {
                     renameButton.setEnabled(true);
                 });
             }
-        }).start();
+        });
 
         return true;
     }
@@ -389,8 +403,8 @@ public class UserManagementActivity extends AppCompatActivity {
     }
 
     private void deleteUser(User user) {
-        // Use background thread for database operation
-        new Thread(() -> {
+        // Writes are serialized on the shared database writer thread
+        dbExecutor.executeWrite(() -> {
             try {
                 db.deleteUser(user.getId());
 
@@ -417,7 +431,7 @@ public class UserManagementActivity extends AppCompatActivity {
                     showToastSafely("Error deleting player");
                 });
             }
-        }).start();
+        });
     }
 
     @Override
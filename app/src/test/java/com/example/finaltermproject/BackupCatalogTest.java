@@ -0,0 +1,179 @@
+package com.example.finaltermproject;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class BackupCatalogTest {
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long NOW = 1000 * DAY + 12 * HOUR;
+
+    @Test
+    public void replaysAdditionsRemovalsAndBadMarks() throws IOException {
+        File dir = Files.createTempDirectory("catalog").toFile();
+        try {
+            File file = new File(dir, "catalog");
+            BackupCatalog catalog = new BackupCatalog(file);
+            assertFalse(catalog.exists());
+            catalog.add(entry("a", 100));
+            catalog.add(entry("b", 200));
+            catalog.add(entry("c", 300));
+            catalog.remove("a");
+            catalog.markBad("c");
+
+            BackupCatalog reloaded = new BackupCatalog(file);
+            assertTrue(reloaded.exists());
+            assertEquals(2, reloaded.size());
+            assertNull(reloaded.get("a"));
+            assertTrue(reloaded.get("c").bad);
+            assertEquals("b", reloaded.getLatestGood().name);
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void latestGoodAtOrBeforeSkipsBadBackups() throws IOException {
+        File dir = Files.createTempDirectory("catalog").toFile();
+        try {
+            BackupCatalog catalog = new BackupCatalog(new File(dir, "catalog"));
+            catalog.add(entry("a", 100));
+            catalog.add(entry("b", 200));
+            catalog.add(entry("c", 300));
+            assertEquals("b", catalog.getLatestGoodAtOrBefore(250).name);
+            catalog.markBad("b");
+            assertEquals("a", catalog.getLatestGoodAtOrBefore(250).name);
+            assertNull(catalog.getLatestGoodAtOrBefore(50));
+            assertEquals("c", catalog.getLatestGood().name);
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void tornLastLineIsSkippedAndRewritten() throws IOException {
+        File dir = Files.createTempDirectory("catalog").toFile();
+        try {
+            File file = new File(dir, "catalog");
+            new BackupCatalog(file).add(entry("a", 100));
+            try (FileOutputStream out = new FileOutputStream(file, true)) {
+                out.write("+\tb\t20".getBytes(StandardCharsets.UTF_8));
+            }
+
+            BackupCatalog catalog = new BackupCatalog(file);
+            assertEquals(1, catalog.size());
+            catalog.add(entry("c", 300));
+
+            BackupCatalog reloaded = new BackupCatalog(file);
+            assertEquals(2, reloaded.size());
+            assertNotNull(reloaded.get("a"));
+            assertNotNull(reloaded.get("c"));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void compactsOnceDeletionsDominate() throws IOException {
+        File dir = Files.createTempDirectory("catalog").toFile();
+        try {
+            File file = new File(dir, "catalog");
+            BackupCatalog catalog = new BackupCatalog(file);
+            for (int i = 0; i < 40; i++) {
+                catalog.add(entry("g" + i, i));
+            }
+            for (int i = 0; i < 39; i++) {
+                catalog.remove("g" + i);
+            }
+            assertTrue(Files.readAllLines(file.toPath()).size() < 40);
+            assertEquals("g39", new BackupCatalog(file).getLatestGood().name);
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void retentionKeepsRecentHourlyDailyAndWeeklyBackups() {
+        List<BackupCatalog.Entry> entries = new ArrayList<>();
+        // Every 10 minutes for the last 2 hours, then every hour back to 40 days
+        for (long t = NOW - 40 * DAY; t < NOW - 2 * HOUR; t += HOUR) {
+            entries.add(entry("h" + t, t));
+        }
+        for (long t = NOW - 2 * HOUR; t <= NOW; t += 10 * 60 * 1000) {
+            entries.add(entry("m" + t, t));
+        }
+
+        List<BackupCatalog.Entry> expired = BackupCatalog.Retention.DEFAULT.selectExpired(entries, NOW);
+        List<String> expiredNames = new ArrayList<>();
+        for (BackupCatalog.Entry entry : expired) {
+            expiredNames.add(entry.name);
+        }
+        List<BackupCatalog.Entry> kept = new ArrayList<>(entries);
+        kept.removeIf(entry -> expiredNames.contains(entry.name));
+
+        for (BackupCatalog.Entry entry : kept) {
+            long age = NOW - entry.createdMillis;
+            assertTrue("kept " + entry.name + " at age " + age, age < 4 * 7 * DAY);
+        }
+        // Everything from the last hour
+        for (BackupCatalog.Entry entry : entries) {
+            if (NOW - entry.createdMillis < HOUR) {
+                assertFalse(expiredNames.contains(entry.name));
+            }
+        }
+        // At most one per hour older than an hour, within a day
+        assertTrue(countKeptBetween(kept, HOUR, DAY) <= 24);
+        // One per day between 1 and 7 days old
+        assertEquals(6, countKeptBetween(kept, 2 * DAY, 8 * DAY), 1);
+        // Oldest expired first
+        for (int i = 1; i < expired.size(); i++) {
+            assertTrue(expired.get(i - 1).createdMillis <= expired.get(i).createdMillis);
+        }
+    }
+
+    @Test
+    public void retentionAlwaysKeepsNewestAndExpiresBad() {
+        List<BackupCatalog.Entry> entries = new ArrayList<>();
+        entries.add(entry("old", NOW - 365 * DAY));
+        entries.add(new BackupCatalog.Entry("broken", NOW - HOUR / 2, 1, "-", true));
+
+        List<BackupCatalog.Entry> expired = BackupCatalog.Retention.DEFAULT.selectExpired(entries, NOW);
+        assertEquals(1, expired.size());
+        assertEquals("broken", expired.get(0).name);
+    }
+
+    private static int countKeptBetween(List<BackupCatalog.Entry> kept, long minAge, long maxAge) {
+        int count = 0;
+        for (BackupCatalog.Entry entry : kept) {
+            long age = NOW - entry.createdMillis;
+            if (age >= minAge && age < maxAge) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static BackupCatalog.Entry entry(String name, long created) {
+        return new BackupCatalog.Entry(name, created, 4096, "ab", false);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.finaltermproject;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BackupCipherTest {
+    private static final byte[] AAD = "chunk:abc".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void sealedSegmentsOpenWithTheSameKeyAndData() throws IOException {
+        BackupCipher cipher = new BackupCipher(key(1));
+        byte[] plaintext = randomBytes(5000, 1);
+        byte[] sealed = cipher.seal(plaintext, AAD);
+        assertTrue(BackupCipher.isSealed(sealed));
+        assertArrayEquals(plaintext, cipher.open(sealed, AAD));
+
+        // Fresh nonce each time
+        assertFalse(Arrays.equals(sealed, cipher.seal(plaintext, AAD)));
+    }
+
+    @Test
+    public void tamperedSegmentIsRejected() throws IOException {
+        BackupCipher cipher = new BackupCipher(key(1));
+        byte[] sealed = cipher.seal(randomBytes(100, 2), AAD);
+        sealed[sealed.length / 2] ^= 1;
+        assertOpenFails(cipher, sealed, AAD);
+    }
+
+    @Test
+    public void segmentIsBoundToItsName() throws IOException {
+        BackupCipher cipher = new BackupCipher(key(1));
+        byte[] sealed = cipher.seal(randomBytes(100, 3), AAD);
+        assertOpenFails(cipher, sealed, "chunk:def".getBytes(StandardCharsets.UTF_8));
+        assertOpenFails(new BackupCipher(key(2)), sealed, AAD);
+    }
+
+    @Test
+    public void encryptedStoreRoundTripsWithoutPlaintextOnDisk() throws IOException {
+        File dir = Files.createTempDirectory("encrypted").toFile();
+        try {
+            ChunkStore store = new ChunkStore(dir, ParallelGzip.Level.FAST, new BackupCipher(key(1)));
+            byte[] data = new byte[6 * ChunkStore.CHUNK_SIZE];
+            byte[] marker = "Lady Selene keeps the ledger".getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i + marker.length <= data.length; i += marker.length) {
+                System.arraycopy(marker, 0, data, i, marker.length);
+            }
+            File source = new File(dir, "a.db");
+            Files.write(source.toPath(), data);
+            store.write(source, "gen1");
+
+            for (File chunk : new File(dir, "chunks").listFiles()) {
+                assertTrue(BackupCipher.isSealed(Files.readAllBytes(chunk.toPath())));
+            }
+            assertTrue(BackupCipher.isSealed(Files.readAllBytes(store.getManifestFile("gen1").toPath())));
+
+            File target = new File(dir, "restored.db");
+            store.restore(store.readManifest(store.getManifestFile("gen1")), target);
+            assertArrayEquals(data, Files.readAllBytes(target.toPath()));
+
+            try {
+                new ChunkStore(dir).readManifest(store.getManifestFile("gen1"));
+                fail("Encrypted manifest was read without a key");
+            } catch (IOException expected) {
+                // No cipher
+            }
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void encryptedGenerationDoesNotReusePlaintextChunks() throws IOException {
+        File dir = Files.createTempDirectory("encrypted").toFile();
+        try {
+            byte[] original = randomBytes(3 * ChunkStore.CHUNK_SIZE, 4);
+            byte[] data = original.clone();
+            File source = new File(dir, "a.db");
+            Files.write(source.toPath(), data);
+            new ChunkStore(dir).write(source, "plain");
+
+            ChunkStore encrypted = new ChunkStore(dir, ParallelGzip.Level.FAST, new BackupCipher(key(1)));
+            data[0] ^= 1;
+            Files.write(source.toPath(), data);
+            ChunkStore.Manifest manifest = encrypted.write(source, "mixed");
+            assertEquals(3, manifest.newChunkCount);
+            for (String chunk : manifest.chunks) {
+                File file = new File(new File(dir, "chunks"), chunk + ".gz");
+                assertTrue(BackupCipher.isSealed(Files.readAllBytes(file.toPath())));
+            }
+
+            File target = new File(dir, "restored.db");
+            encrypted.restore(encrypted.readManifest(encrypted.getManifestFile("mixed")), target);
+            assertArrayEquals(data, Files.readAllBytes(target.toPath()));
+            // The generation written before encryption still restores
+            encrypted.restore(encrypted.readManifest(encrypted.getManifestFile("plain")), target);
+            assertArrayEquals(original, Files.readAllBytes(target.toPath()));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void encryptedChunkNamesAreNotPageHashes() throws Exception {
+        File dir = Files.createTempDirectory("encrypted").toFile();
+        try {
+            byte[] data = randomBytes(2 * ChunkStore.CHUNK_SIZE, 5);
+            File source = new File(dir, "a.db");
+            Files.write(source.toPath(), data);
+            ChunkStore.Manifest manifest = new ChunkStore(dir, ParallelGzip.Level.FAST, new BackupCipher(key(1)))
+                    .write(source, "gen1");
+            ChunkStore.Manifest otherKey = new ChunkStore(dir, ParallelGzip.Level.FAST, new BackupCipher(key(2)))
+                    .write(source, "gen2");
+
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            for (int i = 0; i < manifest.chunks.length; i++) {
+                byte[] page = Arrays.copyOfRange(data, i * ChunkStore.CHUNK_SIZE, (i + 1) * ChunkStore.CHUNK_SIZE);
+                String pageHash = String.format("%064x", new BigInteger(1, sha256.digest(page)));
+                assertNotEquals(pageHash, manifest.chunks[i]);
+                assertNotEquals(otherKey.chunks[i], manifest.chunks[i]);
+            }
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    private static void assertOpenFails(BackupCipher cipher, byte[] sealed, byte[] aad) {
+        try {
+            cipher.open(sealed, aad);
+            fail("Segment opened");
+        } catch (IOException expected) {
+            // Authentication failure
+        }
+    }
+
+    private static byte[] key(int seed) {
+        return randomBytes(32, 100 + seed);
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
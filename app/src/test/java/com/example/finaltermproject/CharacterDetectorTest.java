@@ -0,0 +1,89 @@
+package com.example.finaltermproject;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CharacterDetectorTest {
+    private final CharacterDetector detector = CharacterDetector.getDefault();
+
+    @Test
+    public void noCharacters() {
+        assertNull(detector.detectPrimary(null));
+        assertNull(detector.detectPrimary(""));
+        assertNull(detector.detectPrimary("The silver rain falls softly."));
+    }
+
+    @Test
+    public void speakingRanksAboveMentioned() {
+        String text = "Viren glances at Viren's map.\n\n**Lady Selene** steps forward. \"Enough,\" she says.";
+        List<CharacterDetector.Match> matches = detector.detect(text);
+        assertEquals(2, matches.size());
+        assertEquals("selene", matches.get(0).key);
+        assertEquals(1, matches.get(0).speakingCount);
+        assertEquals("viren", matches.get(1).key);
+        assertEquals(2, matches.get(1).mentionCount);
+        assertEquals("selene", detector.detectPrimary(text));
+    }
+
+    @Test
+    public void fullNameIsCountedOnce() {
+        List<CharacterDetector.Match> matches = detector.detect("**Lord Viren** nods.");
+        assertEquals(1, matches.size());
+        assertEquals(1, matches.get(0).mentionCount);
+        assertEquals(1, matches.get(0).speakingCount);
+        assertEquals(2, matches.get(0).firstPosition);
+    }
+
+    @Test
+    public void matchesOnlyWholeWords() {
+        assertNull(detector.detectPrimary("Virenna and Maskbearers"));
+        assertEquals("maskbearer", detector.detectPrimary("(Maskbearer)"));
+    }
+
+    @Test
+    public void ranksByFirstAppearanceOnTies() {
+        assertEquals("elira", detector.detectPrimary("Elira and Lustrines"));
+        assertEquals("lustrines", detector.detectPrimary("Lustrines and Elira"));
+    }
+
+    @Test
+    public void randomText_findsSameCharactersAsSubstringSearch() {
+        String[] pieces = {"Viren", "Lord ", "Selene", "Lady", " ", "**", "Elira", "Mask", "bearer", "The ",
+                "Lustrines", "a", "\n", ".", "V"};
+        String[][] names = {{"viren", "Viren"}, {"selene", "Selene"}, {"elira", "Elira"},
+                {"maskbearer", "Maskbearer"}, {"lustrines", "Lustrines"}};
+        Random random = new Random(7L);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder builder = new StringBuilder();
+            int count = random.nextInt(40);
+            for (int p = 0; p < count; p++) {
+                builder.append(pieces[random.nextInt(pieces.length)]);
+            }
+            String text = builder.toString();
+            List<CharacterDetector.Match> matches = detector.detect(text);
+            for (String[] name : names) {
+                boolean expected = countWholeWords(text, name[1]) > 0;
+                boolean found = false;
+                for (CharacterDetector.Match match : matches) {
+                    found |= match.key.equals(name[0]);
+                }
+                assertEquals(text, expected, found);
+            }
+        }
+    }
+
+    private static int countWholeWords(String text, String word) {
+        int count = 0;
+        for (int i = text.indexOf(word); i >= 0; i = text.indexOf(word, i + 1)) {
+            boolean before = i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1));
+            int end = i + word.length();
+            boolean after = end == text.length() || !Character.isLetterOrDigit(text.charAt(end));
+            if (before && after) count++;
+        }
+        return count;
+    }
+}
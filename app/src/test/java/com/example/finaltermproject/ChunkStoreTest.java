@@ -0,0 +1,159 @@
+package com.example.finaltermproject;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ChunkStoreTest {
+
+    @Test
+    public void secondGenerationStoresOnlyChangedChunks() throws IOException {
+        File dir = Files.createTempDirectory("chunks").toFile();
+        try {
+            ChunkStore store = new ChunkStore(dir);
+            byte[] data = randomBytes(10 * ChunkStore.CHUNK_SIZE + 123, 1);
+            File source = write(dir, "a.db", data);
+
+            ChunkStore.Manifest first = store.write(source, "gen1");
+            assertEquals(11, first.chunks.length);
+            assertEquals(11, first.newChunkCount);
+
+            data[3 * ChunkStore.CHUNK_SIZE + 7] ^= 1;
+            write(dir, "a.db", data);
+            ChunkStore.Manifest second = store.write(source, "gen2");
+            assertEquals(1, second.newChunkCount);
+            assertEquals(2, store.listManifests().size());
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void everyGenerationRestoresByteForByte() throws IOException {
+        File dir = Files.createTempDirectory("chunks").toFile();
+        try {
+            ChunkStore store = new ChunkStore(dir);
+            byte[] original = randomBytes(5 * ChunkStore.CHUNK_SIZE, 2);
+            byte[] changed = original.clone();
+            changed[changed.length - 1] ^= 0x55;
+
+            store.write(write(dir, "a.db", original), "gen1");
+            store.write(write(dir, "a.db", changed), "gen2");
+
+            File target = new File(dir, "restored.db");
+            store.restore(store.readManifest(store.getManifestFile("gen1")), target);
+            assertArrayEquals(original, Files.readAllBytes(target.toPath()));
+            store.restore(store.readManifest(store.getManifestFile("gen2")), target);
+            assertArrayEquals(changed, Files.readAllBytes(target.toPath()));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void corruptChunkIsDetected() throws IOException {
+        File dir = Files.createTempDirectory("chunks").toFile();
+        try {
+            ChunkStore store = new ChunkStore(dir);
+            ChunkStore.Manifest manifest = store.write(write(dir, "a.db", randomBytes(3 * ChunkStore.CHUNK_SIZE, 3)), "gen1");
+
+            // Replace one stored chunk with the compressed bytes of another
+            File[] chunks = new File(dir, "chunks").listFiles();
+            assertNotNull(chunks);
+            byte[] other = Files.readAllBytes(chunks[0].toPath());
+            try (RandomAccessFile file = new RandomAccessFile(chunks[1], "rw")) {
+                file.setLength(0);
+                file.write(other);
+            }
+
+            try {
+                store.restore(manifest, new File(dir, "restored.db"));
+                fail("Corrupt chunk was not detected");
+            } catch (IOException expected) {
+                assertTrue(expected.getMessage(), expected.getMessage().contains("corrupt"));
+            }
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void garbageCollectionKeepsOnlyLiveChunks() throws IOException {
+        File dir = Files.createTempDirectory("chunks").toFile();
+        try {
+            ChunkStore store = new ChunkStore(dir);
+            store.write(write(dir, "a.db", randomBytes(2 * ChunkStore.CHUNK_SIZE, 4)), "gen1");
+            store.write(write(dir, "a.db", randomBytes(2 * ChunkStore.CHUNK_SIZE, 5)), "gen2");
+            store.getManifestFile("gen1").delete();
+
+            assertEquals(2, store.collectGarbage(Collections.singletonList(store.getManifestFile("gen2"))));
+            assertEquals(2, new File(dir, "chunks").listFiles().length);
+            File target = new File(dir, "restored.db");
+            store.restore(store.readManifest(store.getManifestFile("gen2")), target);
+            assertArrayEquals(randomBytes(2 * ChunkStore.CHUNK_SIZE, 5), Files.readAllBytes(target.toPath()));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void garbageCollectionDeletesNothingWhenAManifestIsMissing() throws IOException {
+        File dir = Files.createTempDirectory("chunks").toFile();
+        try {
+            ChunkStore store = new ChunkStore(dir);
+            store.write(write(dir, "a.db", randomBytes(2 * ChunkStore.CHUNK_SIZE, 6)), "gen1");
+            try {
+                store.collectGarbage(Collections.singletonList(store.getManifestFile("missing")));
+                fail("Missing manifest was ignored");
+            } catch (IOException expected) {
+                assertEquals(2, new File(dir, "chunks").listFiles().length);
+            }
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void emptyFileRoundTrips() throws IOException {
+        File dir = Files.createTempDirectory("chunks").toFile();
+        try {
+            ChunkStore store = new ChunkStore(dir);
+            ChunkStore.Manifest manifest = store.write(write(dir, "a.db", new byte[0]), "gen1");
+            assertEquals(0, manifest.chunks.length);
+            File target = new File(dir, "restored.db");
+            store.restore(store.readManifest(store.getManifestFile("gen1")), target);
+            assertEquals(0, target.length());
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static File write(File dir, String name, byte[] data) throws IOException {
+        File file = new File(dir, name);
+        Files.write(file.toPath(), data);
+        return file;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.finaltermproject;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the single-pass tokenizer produces exactly what the regex formatter produced.
+ */
+public class DialogMarkupTokenizerTest {
+    private static final Pattern DIALOG_INSERT =
+            Pattern.compile("INSERT INTO dialogs \\(id, text\\) VALUES \\((\\d+), '((?:[^']|'')*)'\\)");
+
+    @Test
+    public void seedStory_matchesLegacyFormatter() throws IOException {
+        List<String> texts = readSeedDialogs();
+        assertFalse("No dialogs found in seed script", texts.isEmpty());
+        for (int i = 0; i < texts.size(); i++) {
+            assertSameLayout(i, texts.get(i));
+        }
+    }
+
+    @Test
+    public void emptyAndBlankText() {
+        assertSameLayout(1, null);
+        assertSameLayout(1, "");
+        assertSameLayout(1, "   \n\t ");
+        assertSameLayout(1, "\\n\\n");
+        assertEquals("", DialogLayout.compute(1, " ").getText());
+    }
+
+    @Test
+    public void escapedLineBreaksAndWhitespace() {
+        assertSameLayout(1, "First line.\\nSecond line.\\n\\nThird \t line.");
+        assertSameLayout(1, "\\\\n is not a break\\");
+        assertSameLayout(1, "\u0001 leading control and trailing \u0002");
+        assertSameLayout(1, "Line\u2028separator. And \u2029 paragraph\u0085 next.");
+    }
+
+    @Test
+    public void spanEdgeCases() {
+        assertSameLayout(1, "***Bold*** and **** and *** x ** and **name**");
+        assertSameLayout(1, "An \"unclosed quote and \"\" empty quotes \"closed\"");
+        assertSameLayout(1, "*a*b*c* **x* *y** ***z**");
+        assertSameLayout(1, "**A**: \"Hi,\" she says, *softly*.");
+    }
+
+    @Test
+    public void longParagraphBreaks() {
+        String text = "The hall is quiet. **Viren** looks up from the table. \"We are late,\" he says. "
+                + "Suddenly the doors open. Then nothing happens for a long while, and the rain keeps falling "
+                + "on the glass roof above the archive. She whispers a name. However, nobody answers. "
+                + "Meanwhile the candles burn low. But the scale tips **slightly** toward the sea.";
+        DialogLayout layout = DialogLayout.compute(3, text);
+        assertTrue(layout.getText().contains("\n\n"));
+        assertSameLayout(3, text);
+    }
+
+    @Test
+    public void oversizedLayoutRoundTrips() throws IOException {
+        // More than writeUTF's 65535 encoded bytes, with multi-byte characters
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 40000) {
+            text.append("**\u00c9lira** says \"\u00c7a va\" \u2014 ");
+        }
+        DialogLayout layout = DialogLayout.compute(7, text.toString());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        layout.writeTo(new DataOutputStream(bytes));
+        assertTrue(bytes.size() > 65535);
+        DialogLayout read = DialogLayout.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(layout, read);
+    }
+
+    @Test
+    public void randomMarkup_matchesLegacyFormatter() {
+        String[] pieces = {"*", "**", "\"", ". ", ".", " ", "\\n", "\n", "\t", "A", "b", "Then", "Suddenly",
+                "gasps", "steps", "s", "Name", "x", "However", "\u2028", "'", ":"};
+        Random random = new Random(20240601L);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder text = new StringBuilder();
+            int count = 1 + random.nextInt(120);
+            for (int p = 0; p < count; p++) {
+                text.append(pieces[random.nextInt(pieces.length)]);
+            }
+            assertSameLayout(i, text.toString());
+        }
+    }
+
+    private static void assertSameLayout(int dialogId, String rawText) {
+        DialogLayout expected = LegacyDialogFormatter.compute(dialogId, rawText);
+        DialogLayout actual = DialogMarkupTokenizer.layout(dialogId, rawText);
+        String message = "Dialog " + dialogId + ": " + rawText;
+        assertEquals(message, expected.getText(), actual.getText());
+        assertEquals(message, expected.getRunCount(), actual.getRunCount());
+        for (int run = 0; run < expected.getRunCount(); run++) {
+            assertEquals(message, expected.getRunType(run), actual.getRunType(run));
+            assertEquals(message, expected.getRunStart(run), actual.getRunStart(run));
+            assertEquals(message, expected.getRunEnd(run), actual.getRunEnd(run));
+        }
+        assertEquals(message, expected, actual);
+    }
+
+    private static List<String> readSeedDialogs() throws IOException {
+        File seed = new File("src/main/assets/seed_story.sql");
+        if (!seed.exists()) {
+            seed = new File("app/src/main/assets/seed_story.sql");
+        }
+        String sql = new String(Files.readAllBytes(seed.toPath()), StandardCharsets.UTF_8);
+        List<String> texts = new ArrayList<>();
+        Matcher matcher = DIALOG_INSERT.matcher(sql);
+        while (matcher.find()) {
+            texts.add(matcher.group(2).replace("''", "'"));
+        }
+        return texts;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.finaltermproject;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The regex-based formatter that {@link DialogMarkupTokenizer} replaced, kept verbatim as the
+ * reference its output is compared against.
+ */
+final class LegacyDialogFormatter {
+    private static final Pattern NAME_PATTERN = Pattern.compile("\\*\\*([^*]+)\\*\\*");
+    private static final Pattern SPEECH_PATTERN = Pattern.compile("\"([^\"]+)\"");
+    private static final Pattern EMPHASIS_PATTERN = Pattern.compile("\\*([^*]+)\\*");
+
+    private static final Pattern NAME_IN_SENTENCE = Pattern.compile(".*\\*\\*[^*]+\\*\\*.*");
+    private static final Pattern DRAMATIC_OPENER = Pattern.compile("^(Suddenly|Then|But|However|Meanwhile).*");
+    private static final Pattern ACTION_BEAT = Pattern.compile(".*(gasps|whispers|shouts|pauses|sighs|turns|looks|steps).*");
+
+    private LegacyDialogFormatter() {
+    }
+
+    static DialogLayout compute(int dialogId, String rawText) {
+        String text = formatDialogText(rawText);
+        return new DialogLayout(dialogId, DialogLayout.contentHash(rawText), text, findRuns(text));
+    }
+
+    static String formatDialogText(String rawText) {
+        if (rawText == null || rawText.trim().isEmpty()) return "";
+
+        // Clean up the raw text
+        String cleaned = rawText
+                .replaceAll("\\\\n", "\n") // Handle explicit line breaks
+                .replaceAll("\\s+", " ")   // Normalize whitespace
+                .trim();
+
+        // Split into natural conversation chunks
+        return createNaturalDialogueFlow(cleaned);
+    }
+
+    private static String createNaturalDialogueFlow(String text) {
+        StringBuilder result = new StringBuilder();
+
+        // Split by existing paragraph breaks first
+        String[] existingParagraphs = text.split("\n\n+");
+
+        for (int i = 0; i < existingParagraphs.length; i++) {
+            String paragraph = existingParagraphs[i].trim();
+            if (paragraph.isEmpty()) continue;
+
+            // Process each paragraph for natural breaks
+            String formattedParagraph = formatSingleParagraph(paragraph);
+            result.append(formattedParagraph);
+
+            // Add spacing between paragraphs
+            if (i < existingParagraphs.length - 1) {
+                result.append("\n\n");
+            }
+        }
+
+        return result.toString();
+    }
+
+    private static String formatSingleParagraph(String paragraph) {
+        // Check if paragraph is already short enough
+        if (paragraph.length() <= 150) {
+            return paragraph;
+        }
+
+        // Break long paragraphs at natural points
+        StringBuilder formatted = new StringBuilder();
+        String[] sentences = paragraph.split("(?<=\\.)\\s+(?=[A-Z])");
+
+        int currentLength = 0;
+        boolean needsBreak = false;
+
+        for (int i = 0; i < sentences.length; i++) {
+            String sentence = sentences[i].trim();
+            if (sentence.isEmpty()) continue;
+
+            // Add sentence
+            if (formatted.length() > 0 && !needsBreak) {
+                formatted.append(" ");
+                currentLength++;
+            }
+
+            formatted.append(sentence);
+            currentLength += sentence.length();
+
+            // Determine if we need a break
+            needsBreak = shouldBreakAfterSentence(sentence, currentLength, i, sentences);
+
+            if (needsBreak && i < sentences.length - 1) {
+                formatted.append("\n\n");
+                currentLength = 0;
+                needsBreak = false;
+            }
+        }
+
+        return formatted.toString();
+    }
+
+    private static boolean shouldBreakAfterSentence(String sentence, int currentLength, int index, String[] allSentences) {
+        // Break after dialogue
+        if (sentence.contains("\"") && sentence.endsWith("\"")) {
+            return true;
+        }
+
+        // Break after character actions or descriptions
+        if (NAME_IN_SENTENCE.matcher(sentence).matches()) {
+            return true;
+        }
+
+        // Break if paragraph is getting long (>200 chars)
+        if (currentLength > 200) {
+            return true;
+        }
+
+        // Break before dramatic moments
+        if (index < allSentences.length - 1) {
+            String nextSentence = allSentences[index + 1];
+            if (nextSentence.startsWith("\"") ||
+                    DRAMATIC_OPENER.matcher(nextSentence).matches() ||
+                    nextSentence.contains("**")) {
+                return true;
+            }
+        }
+
+        // Break after emotional or action beats
+        return ACTION_BEAT.matcher(sentence).matches();
+    }
+
+    // Style runs, in the order they were applied by the original formatter:
+    // all names, then all speech, then all emphasis
+
+    static int[] findRuns(String text) {
+        int[] runs = new int[24];
+        int size = 0;
+        Pattern[] patterns = {NAME_PATTERN, SPEECH_PATTERN, EMPHASIS_PATTERN};
+        int[] types = {DialogLayout.RUN_NAME, DialogLayout.RUN_SPEECH, DialogLayout.RUN_EMPHASIS};
+        for (int p = 0; p < patterns.length; p++) {
+            Matcher matcher = patterns[p].matcher(text);
+            while (matcher.find()) {
+                if (size + 3 > runs.length) {
+                    runs = Arrays.copyOf(runs, runs.length * 2);
+                }
+                runs[size++] = types[p];
+                runs[size++] = matcher.start();
+                runs[size++] = matcher.end();
+            }
+        }
+        return Arrays.copyOf(runs, size);
+    }
+}
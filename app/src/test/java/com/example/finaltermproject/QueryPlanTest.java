@@ -0,0 +1,169 @@
+package com.example.finaltermproject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs EXPLAIN QUERY PLAN on every query in {@link Queries#ALL} against the real schemas filled
+ * with a story of realistic size, and fails when a query reads a table in full that it is not
+ * declared to scan, or sorts rows an index should already deliver in order.
+ *
+ * Uses a local SQLite through sqlite-jdbc. Like the game, the databases are not ANALYZEd, so the
+ * planner works without sqlite_stat1 here too.
+ */
+public class QueryPlanTest {
+    private static final int DIALOGS = 2000;
+    private static final int CHOICES_PER_DIALOG = 3;
+    private static final int USERS = 200;
+
+    // "SCAN choices USING COVERING INDEX ..." on current SQLite, "SCAN TABLE choices ..." before 3.24
+    private static final Pattern ACCESS = Pattern.compile("^(SCAN|SEARCH) (?:TABLE )?(\\S+)(.*)$");
+
+    private Connection game;
+    private Connection story;
+
+    @Before
+    public void setUp() throws SQLException {
+        game = DriverManager.getConnection("jdbc:sqlite::memory:");
+        execute(game, DatabaseHelper.CREATE_USERS_TABLE);
+        execute(game, DatabaseHelper.CREATE_PROGRESS_TABLE);
+        game.setAutoCommit(false);
+        try (PreparedStatement user = game.prepareStatement("INSERT INTO users (username) VALUES (?)");
+             PreparedStatement progress = game.prepareStatement(
+                     "INSERT INTO progress (user_id, current_dialog_id, last_updated) VALUES (?, ?, 0)")) {
+            for (int u = 1; u <= USERS; u++) {
+                user.setString(1, "player" + u);
+                user.executeUpdate();
+                progress.setInt(1, u);
+                progress.setInt(2, 1 + (u * 7) % DIALOGS);
+                progress.executeUpdate();
+            }
+        }
+        game.commit();
+
+        story = DriverManager.getConnection("jdbc:sqlite::memory:");
+        execute(story, StoryDatabase.CREATE_DIALOGS_TABLE);
+        execute(story, StoryDatabase.CREATE_CHOICES_TABLE);
+        for (String index : StoryDatabase.CREATE_INDEXES) {
+            execute(story, index);
+        }
+        story.setAutoCommit(false);
+        try (PreparedStatement dialog = story.prepareStatement(
+                "INSERT INTO dialogs (text, character_key) VALUES (?, ?)");
+             PreparedStatement choice = story.prepareStatement(
+                     "INSERT INTO choices (dialog_id, choice_text, next_dialog_id) VALUES (?, ?, ?)")) {
+            for (int i = 1; i <= DIALOGS; i++) {
+                dialog.setString(1, "Lady Selene waits for the verdict. #" + i);
+                dialog.setString(2, i % 4 == 0 ? null : "selene");
+                dialog.executeUpdate();
+            }
+            for (int c = 0; c < CHOICES_PER_DIALOG; c++) {
+                for (int i = 1; i <= DIALOGS; i++) {
+                    choice.setInt(1, i);
+                    choice.setString(2, "Answer " + c + " to " + i);
+                    choice.setInt(3, 1 + (i + c) % DIALOGS);
+                    choice.executeUpdate();
+                }
+            }
+        }
+        story.commit();
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        game.close();
+        story.close();
+    }
+
+    @Test
+    public void everyQueryKeepsItsAccessPath() throws SQLException {
+        List<String> failures = new ArrayList<>();
+        for (Queries.Query query : Queries.ALL) {
+            failures.addAll(check(query));
+        }
+        assertTrue("Query plan regressions:\n" + String.join("\n", failures), failures.isEmpty());
+    }
+
+    @Test
+    public void droppedIndexIsReported() throws SQLException {
+        execute(story, "DROP INDEX idx_choices_covering");
+        Queries.Query choices = null;
+        for (Queries.Query query : Queries.ALL) {
+            if (query.sql.equals(Queries.CHOICES_FOR_DIALOG)) {
+                choices = query;
+            }
+        }
+        assertNotNull(choices);
+        assertFalse(check(choices).isEmpty());
+    }
+
+    @Test
+    public void registeredQueriesRun() throws SQLException {
+        for (Queries.Query query : Queries.ALL) {
+            if (!query.sql.startsWith("SELECT")) {
+                continue;
+            }
+            try (PreparedStatement statement = prepare(query, "")) {
+                try (ResultSet rows = statement.executeQuery()) {
+                    rows.next();
+                }
+            }
+        }
+    }
+
+    // Problems in the plan of one query, empty when it only reads what it is declared to read
+    private List<String> check(Queries.Query query) throws SQLException {
+        List<String> failures = new ArrayList<>();
+        StringBuilder plan = new StringBuilder();
+        try (PreparedStatement statement = prepare(query, "EXPLAIN QUERY PLAN ");
+             ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                String detail = rows.getString("detail");
+                plan.append("\n    ").append(detail);
+                Matcher access = ACCESS.matcher(detail);
+                if (access.matches() && access.group(1).equals("SCAN")
+                        && !access.group(2).equals("CONSTANT") && !query.scans.contains(access.group(2))) {
+                    failures.add(query + " scans " + access.group(2));
+                }
+                if (detail.startsWith("USE TEMP B-TREE FOR") && detail.contains("ORDER BY")) {
+                    failures.add(query + " sorts its rows");
+                }
+            }
+        }
+        if (!failures.isEmpty()) {
+            failures.add("  plan:" + plan);
+        }
+        return failures;
+    }
+
+    // Every parameter is bound to 1, which is a valid id in both databases
+    private PreparedStatement prepare(Queries.Query query, String prefix) throws SQLException {
+        Connection connection = query.database == Queries.Database.GAME ? game : story;
+        PreparedStatement statement = connection.prepareStatement(prefix + query.sql);
+        int parameters = statement.getParameterMetaData().getParameterCount();
+        for (int i = 1; i <= parameters; i++) {
+            statement.setLong(i, 1);
+        }
+        return statement;
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
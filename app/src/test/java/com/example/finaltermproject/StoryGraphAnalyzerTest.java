@@ -0,0 +1,130 @@
+package com.example.finaltermproject;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StoryGraphAnalyzerTest {
+
+    @Test
+    public void branchingStoryWithEndingsIsValid() {
+        StoryGraphAnalyzer.Analysis analysis = analyze(new int[]{1, 11, 12, 111, 501, 502},
+                new int[][]{{1, 11}, {1, 12}, {11, 111}, {12, 111}, {111, 501}, {111, 502}});
+        assertTrue(analysis.isValid());
+        assertEquals(0, analysis.cycles.size());
+        assertArrayEquals(new int[]{501}, analysis.deadEnds);
+    }
+
+    @Test
+    public void idsAreNotMatchedAsSubstrings() {
+        // 11 -> 111 -> 1 looked like a cycle through "11" to the old path-string check
+        StoryGraphAnalyzer.Analysis analysis = analyze(new int[]{1, 11, 111, 501},
+                new int[][]{{1, 11}, {11, 111}, {111, 501}});
+        assertTrue(analysis.cycles.isEmpty());
+        assertTrue(analysis.isValid());
+    }
+
+    @Test
+    public void loopWithAnExitIsNotATrap() {
+        StoryGraphAnalyzer.Analysis analysis = analyze(new int[]{1, 2, 3, 9},
+                new int[][]{{1, 2}, {2, 3}, {3, 1}, {3, 9}});
+        assertEquals(1, analysis.cycles.size());
+        assertArrayEquals(new int[]{1, 2, 3}, analysis.cycles.get(0));
+        assertTrue(analysis.traps.isEmpty());
+        assertTrue(analysis.isValid());
+    }
+
+    @Test
+    public void closedLoopIsATrap() {
+        StoryGraphAnalyzer.Analysis analysis = analyze(new int[]{1, 2, 3, 4, 9},
+                new int[][]{{1, 2}, {1, 9}, {2, 3}, {3, 2}, {4, 4}});
+        assertEquals(2, analysis.cycles.size());
+        assertEquals(2, analysis.traps.size());
+        assertFalse(analysis.isValid());
+    }
+
+    @Test
+    public void storyLoopingBackFromEndingIsNotATrap() {
+        StoryGraphAnalyzer.Analysis analysis = analyze(new int[]{1, 11, 501},
+                new int[][]{{1, 11}, {11, 501}, {501, 1}});
+        assertEquals(1, analysis.cycles.size());
+        assertTrue(analysis.traps.isEmpty());
+    }
+
+    @Test
+    public void danglingReferences() {
+        StoryGraphAnalyzer.Analysis analysis = analyze(new int[]{1, 2},
+                new int[][]{{1, 2}, {1, 7}, {5, 2}});
+        assertArrayEquals(new int[]{5, 7}, analysis.missingDialogIds);
+        assertEquals(2, analysis.danglingSources.length);
+        assertEquals(3, analysis.choiceCount);
+        assertFalse(analysis.isValid());
+    }
+
+    @Test
+    public void deepChainDoesNotOverflow() {
+        int n = 200000;
+        int[] ids = new int[n];
+        int[][] edges = new int[n][];
+        for (int i = 0; i < n; i++) {
+            ids[i] = 1000 + i;
+            edges[i] = new int[]{1000 + i, 1000 + (i + 1) % n};
+        }
+        StoryGraphAnalyzer.Analysis analysis = analyze(ids, edges);
+        assertEquals(1, analysis.cycles.size());
+        assertEquals(n, analysis.cycles.get(0).length);
+        assertEquals(1, analysis.traps.size());
+    }
+
+    @Test
+    public void randomGraphs_componentsMatchMutualReachability() {
+        Random random = new Random(11L);
+        for (int round = 0; round < 300; round++) {
+            int n = 1 + random.nextInt(12);
+            int[] ids = new int[n];
+            for (int i = 0; i < n; i++) {
+                ids[i] = i * 10 + 1;
+            }
+            int m = random.nextInt(n * 2 + 1);
+            int[] sources = new int[m];
+            int[] targets = new int[m];
+            boolean[][] reach = new boolean[n][n];
+            for (int e = 0; e < m; e++) {
+                int a = random.nextInt(n);
+                int b = random.nextInt(n);
+                sources[e] = ids[a];
+                targets[e] = ids[b];
+                reach[a][b] = true;
+            }
+            for (int k = 0; k < n; k++) {
+                for (int i = 0; i < n; i++) {
+                    for (int j = 0; j < n; j++) {
+                        reach[i][j] |= reach[i][k] && reach[k][j];
+                    }
+                }
+            }
+
+            StoryEdges edges = StoryEdges.of(ids, sources, targets);
+            int[] component = new int[n];
+            StoryGraphAnalyzer.tarjan(edges, component);
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    boolean together = i == j || (reach[i][j] && reach[j][i]);
+                    assertEquals(together, component[i] == component[j]);
+                }
+            }
+        }
+    }
+
+    private static StoryGraphAnalyzer.Analysis analyze(int[] ids, int[][] edges) {
+        int[] sources = new int[edges.length];
+        int[] targets = new int[edges.length];
+        for (int e = 0; e < edges.length; e++) {
+            sources[e] = edges[e][0];
+            targets[e] = edges[e][1];
+        }
+        return StoryGraphAnalyzer.analyze(StoryEdges.of(ids, sources, targets));
+    }
+}
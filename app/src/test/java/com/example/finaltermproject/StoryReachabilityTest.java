@@ -0,0 +1,55 @@
+package com.example.finaltermproject;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StoryReachabilityTest {
+
+    // 1 -> 11 -> 111 -> 501, 1 -> 12 -> 501, 12 -> 502 -> 1, 301 unreachable, 7 dangling
+    private static final int[] IDS = {1, 11, 12, 111, 301, 501, 502};
+    private static final int[] SOURCES = {1, 1, 11, 12, 111, 12, 502, 301, 11};
+    private static final int[] TARGETS = {11, 12, 111, 501, 501, 502, 1, 111, 7};
+
+    @Test
+    public void depthsAreShortestChoiceCounts() {
+        StoryReachability reachability = compute(1);
+        assertEquals(0, reachability.getDepth(1));
+        assertEquals(1, reachability.getDepth(12));
+        assertEquals(2, reachability.getDepth(111));
+        assertEquals(2, reachability.getDepth(501));
+        assertEquals(-1, reachability.getDepth(301));
+        assertEquals(-1, reachability.getDepth(7));
+        assertEquals(2, reachability.getMaxDepth());
+    }
+
+    @Test
+    public void reachableUnreachableAndEndingSets() {
+        StoryReachability reachability = compute(1);
+        assertArrayEquals(new int[]{1, 11, 12, 111, 501, 502}, reachability.getReachableIds());
+        assertArrayEquals(new int[]{301}, reachability.getUnreachableIds());
+        assertArrayEquals(new int[]{501, 502}, reachability.getEndingIds());
+        assertTrue(reachability.isReachable(502));
+        assertFalse(reachability.isReachable(301));
+    }
+
+    @Test
+    public void progressRunsFromStartToDeepestEnding() {
+        StoryReachability reachability = compute(1);
+        assertEquals(0f, reachability.getProgress(1), 0f);
+        assertEquals(0.5f, reachability.getProgress(11), 0f);
+        assertEquals(1f, reachability.getProgress(501), 0f);
+        assertEquals(0f, reachability.getProgress(301), 0f);
+    }
+
+    @Test
+    public void missingStartReachesNothing() {
+        StoryReachability reachability = compute(2);
+        assertEquals(0, reachability.getReachableCount());
+        assertEquals(IDS.length, reachability.getUnreachableCount());
+    }
+
+    private static StoryReachability compute(int start) {
+        return StoryReachability.compute(StoryEdges.of(IDS, SOURCES, TARGETS), start);
+    }
+}